@@ -0,0 +1,131 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import analysis.utils.StubWebServer;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import search.scraper.HttpRequester;
+import search.scraper.Scraper;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Measures how much Scraper.recrawl(...) saves when only some pages have changed.
+ *
+ * We crawl every page of a local StubWebServer, change a percentage of its pages,
+ * then recrawl. We do this once with a server that sends ETags (so unchanged pages
+ * come back as "304 Not Modified") and once with a server that doesn't (so every
+ * page is sent again, and the recrawl has to compare hashes instead).
+ *
+ * We record how many body bytes the server sent during each recrawl, and how many
+ * saved pages each recrawl rewrote. Before recrawl(...) existed, refreshing the
+ * crawl meant sending every page again and rewriting every file.
+ */
+public class Experiment10 {
+    public static final int HOSTS = 4;
+    public static final int PAGES_PER_HOST = 5;
+    public static final int PAGE_BYTES = 16 * 1024;
+    public static final long DELAY = 500;
+
+    public static void main(String[] args) {
+        IList<Long> percentChanged = new DoubleLinkedList<>();
+        for (long percent = 0; percent <= 100; percent += 25) {
+            percentChanged.add(percent);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> etagBytes = AnalysisUtils.runSingleTrial(percentChanged, pct -> testRecrawl(pct, true)[0]);
+        IList<Long> hashBytes = AnalysisUtils.runSingleTrial(percentChanged, pct -> testRecrawl(pct, false)[0]);
+        IList<Long> etagRewrites = AnalysisUtils.runSingleTrial(percentChanged, pct -> testRecrawl(pct, true)[1]);
+        IList<Long> hashRewrites = AnalysisUtils.runSingleTrial(percentChanged, pct -> testRecrawl(pct, false)[1]);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("PercentChanged", percentChanged);
+        writer.addColumn("EtagWireBytes", etagBytes);
+        writer.addColumn("NoEtagWireBytes", hashBytes);
+        writer.addColumn("EtagFilesRewritten", etagRewrites);
+        writer.addColumn("NoEtagFilesRewritten", hashRewrites);
+        writer.writeToFile("experimentdata/experiment10.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Returns the body bytes sent during the recrawl, and the number of saved pages
+     * it rewrote.
+     */
+    public static long[] testRecrawl(long percentChanged, boolean sendEtags) {
+        Path output = null;
+        try (StubWebServer server = new StubWebServer(HOSTS, PAGES_PER_HOST, PAGE_BYTES, 0);
+             HttpRequester requester = new HttpRequester(HttpRequester.DEFAULT_USER_AGENT, DELAY)) {
+            server.setSendEtags(sendEtags);
+            output = Files.createTempDirectory("recrawl");
+            Scraper scraper = new Scraper(output, requester);
+            for (int host = 0; host < HOSTS; host++) {
+                scraper.addDomainToWhitelist(server.getHost(host));
+            }
+            scraper.addSeedUri(server.getPageUri(0, 0));
+            scraper.run(HOSTS * PAGES_PER_HOST, HOSTS);
+
+            int toChange = (int) (HOSTS * PAGES_PER_HOST * percentChanged / 100);
+            for (int i = 0; i < toChange; i++) {
+                server.changePage(i % HOSTS, i / HOSTS);
+            }
+
+            IDictionary<Path, FileTime> before = modifiedTimes(output);
+            long bytesBefore = server.getBytesSent();
+            scraper.recrawl(HOSTS * PAGES_PER_HOST);
+            long bytes = server.getBytesSent() - bytesBefore;
+
+            long rewritten = 0;
+            IDictionary<Path, FileTime> after = modifiedTimes(output);
+            for (Path path : listPages(output)) {
+                if (!after.get(path).equals(before.get(path))) {
+                    rewritten++;
+                }
+            }
+            return new long[] {bytes, rewritten};
+        } catch (IOException | URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            deleteRecursively(output);
+        }
+    }
+
+    private static IDictionary<Path, FileTime> modifiedTimes(Path root) throws IOException {
+        IDictionary<Path, FileTime> times = new ChainedHashDictionary<>();
+        for (Path path : listPages(root)) {
+            times.put(path, Files.getLastModifiedTime(path));
+        }
+        return times;
+    }
+
+    private static IList<Path> listPages(Path root) throws IOException {
+        IList<Path> pages = new DoubleLinkedList<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.filter(path -> path.toString().endsWith(".html")).forEach(pages::add);
+        }
+        return pages;
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (root == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ex) {
+            System.out.println("Could not delete " + root + ": " + ex.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.misc.WordTokenizer;
+
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+import java.util.Random;
+
+/**
+ * Compares the streaming WordTokenizer against the regex-based one it replaced.
+ *
+ * For each size, we generate page text from a fixed mix of words: mostly plain
+ * English, with punctuation, capitals, accented and non-Latin words, emoji, and
+ * assorted whitespace mixed in. Before timing anything we check that both
+ * tokenizers return exactly the same words, and stop if they don't.
+ *
+ * We record the time in microseconds each tokenizer takes over the text (averaged
+ * over REPEATS runs, after warming up), the time the new one takes when it hands
+ * words to a callback instead of building a list, and the number of bytes each one
+ * allocates per word.
+ */
+public class Experiment11 {
+    public static final int NUM_TRIALS = 5;
+    public static final int REPEATS = 20;
+    public static final long MIN_TEXT_KB = 16;
+    public static final long MAX_TEXT_KB = 1024;
+
+    private static final String[] WORDS = new String[] {
+        "the", "of", "and", "Seattle", "city", "newspaper", "in", "was", "Times", "a", "to",
+        "Seattle's", "(1851)", "e-mail,", "U.S.", "history.", "\"quoted\"", "co-operative;",
+        "--", "...", "$1,000", "50%", "[edit]",
+        // Non-ASCII words are escaped so this file compiles the same under any locale
+        "Caf\u00e9", // "Cafe" with an e-acute
+        "na\u00efve", // "naive" with an i-diaeresis
+        "r\u00e9sum\u00e9", // "resume" with two e-acutes
+        "\u039f\u0394\u039f\u03a3", // Greek capitals "ODOS"
+        "\u03a3\u03af\u03c3\u03c5\u03c6\u03bf\u03c2.", // Greek "Sisyphos.", ending in a final sigma
+        "\u0130stanbul", // "Istanbul" with a dotted capital I
+        "STRASSE",
+        "\u65e5\u672c\u8a9e", // Japanese "nihongo"
+        "\u041c\u043e\u0441\u043a\u0432\u0430", // Russian "Moskva"
+        "\ud83d\ude00", // the grinning face emoji, as a surrogate pair
+        "x\u00a0y", // "x", a no-break space, "y"
+    };
+    private static final String[] SPACES = new String[] {" ", " ", " ", " ", "  ", "\n", "\t", " \r\n"};
+
+    public static void main(String[] args) {
+        IList<Long> textKb = new DoubleLinkedList<>();
+        for (long kb = MIN_TEXT_KB; kb <= MAX_TEXT_KB; kb *= 4) {
+            textKb.add(kb);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> regexMicros = AnalysisUtils.runTrials(textKb, Experiment11::testRegexTime, NUM_TRIALS);
+        IList<Long> streamingMicros = AnalysisUtils.runTrials(textKb, Experiment11::testStreamingTime, NUM_TRIALS);
+        IList<Long> callbackMicros = AnalysisUtils.runTrials(textKb, Experiment11::testCallbackTime, NUM_TRIALS);
+        IList<Long> regexBytes = AnalysisUtils.runSingleTrial(textKb, kb -> testAllocatedBytes(kb, true));
+        IList<Long> streamingBytes = AnalysisUtils.runSingleTrial(textKb, kb -> testAllocatedBytes(kb, false));
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("TextKb", textKb);
+        writer.addColumn("RegexMicros", regexMicros);
+        writer.addColumn("StreamingMicros", streamingMicros);
+        writer.addColumn("StreamingCallbackMicros", callbackMicros);
+        writer.addColumn("RegexBytesPerWord", regexBytes);
+        writer.addColumn("StreamingBytesPerWord", streamingBytes);
+        writer.writeToFile("experimentdata/experiment11.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testRegexTime(long kb) {
+        String text = prepareText(kb);
+        return time(() -> regexExtract(text));
+    }
+
+    public static long testStreamingTime(long kb) {
+        String text = prepareText(kb);
+        return time(() -> WordTokenizer.extract(text));
+    }
+
+    public static long testCallbackTime(long kb) {
+        String text = prepareText(kb);
+        long[] count = new long[1];
+        return time(() -> WordTokenizer.extract(text, word -> count[0]++));
+    }
+
+    public static long testAllocatedBytes(long kb, boolean regex) {
+        String text = prepareText(kb);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+
+        long before = threads.getThreadAllocatedBytes(threadId);
+        IList<String> words = regex ? regexExtract(text) : WordTokenizer.extract(text);
+        long after = threads.getThreadAllocatedBytes(threadId);
+        return (after - before) / words.size();
+    }
+
+    /**
+     * Returns text of about the given size, after checking both tokenizers agree on
+     * it and warming them up.
+     */
+    private static String prepareText(long kb) {
+        String text = makeText(kb);
+        IList<String> expected = regexExtract(text);
+        IList<String> actual = WordTokenizer.extract(text);
+        if (expected.size() != actual.size()) {
+            throw new IllegalStateException(String.format(
+                    "Tokenizers disagree: %d words vs %d", expected.size(), actual.size()));
+        }
+        Iterator<String> expectedWords = expected.iterator();
+        int i = 0;
+        for (String word : actual) {
+            String expectedWord = expectedWords.next();
+            if (!word.equals(expectedWord)) {
+                throw new IllegalStateException(String.format(
+                        "Tokenizers disagree on word %d: '%s' vs '%s'", i, expectedWord, word));
+            }
+            i++;
+        }
+        for (int j = 0; j < REPEATS; j++) {
+            regexExtract(text);
+            WordTokenizer.extract(text);
+        }
+        return text;
+    }
+
+    private static long time(Runnable tokenize) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            tokenize.run();
+        }
+        return (System.nanoTime() - start) / REPEATS / 1000;
+    }
+
+    private static String makeText(long kb) {
+        Random random = new Random(kb);
+        StringBuilder text = new StringBuilder();
+        while (text.length() < kb * 1024) {
+            // Mostly plain words, like real pages
+            if (random.nextInt(4) == 0) {
+                text.append(WORDS[random.nextInt(WORDS.length)]);
+            } else {
+                text.append(WORDS[random.nextInt(11)]);
+            }
+            text.append(SPACES[random.nextInt(SPACES.length)]);
+        }
+        return text.toString();
+    }
+
+    /**
+     * The tokenizer WordTokenizer used to use.
+     */
+    private static IList<String> regexExtract(String input) {
+        IList<String> out = new DoubleLinkedList<>();
+        for (String word : input.toLowerCase().split("\\s+")) {
+            word = word.replaceAll("\\p{Punct}", "");
+            if (!word.isEmpty()) {
+                out.add(word);
+            }
+        }
+        return out;
+    }
+}
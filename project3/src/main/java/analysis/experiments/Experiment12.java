@@ -0,0 +1,224 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.Main;
+import search.SearchEngine;
+import search.Webapp;
+import search.misc.WordTokenizer;
+import spark.ModelAndView;
+import spark.Service;
+import spark.template.mustache.MustacheTemplateEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load tests the webapp before and after templates were compiled once at startup.
+ *
+ * We index Main.DATA_FOLDER_NAME, then serve it twice: once with the old handlers,
+ * which build a new MustacheTemplateEngine (and so reload and recompile the template)
+ * for every request and render the whole page into a String, and once with Webapp,
+ * which streams search results through templates compiled at startup and sends the
+ * home page from bytes rendered once.
+ *
+ * For each number of client threads, every thread requests the same page over and
+ * over for DURATION milliseconds, and we record the requests per second the server
+ * answered. We test the home page, the home page when the browser already has it
+ * (Webapp answers "304 Not Modified"), and a mix of search queries. The search
+ * numbers for Webapp include its result cache, since QUERIES is small.
+ *
+ * Before measuring anything, both servers get WARMUP_DURATION milliseconds of the
+ * same traffic, so the JIT compiler has warmed up before the first (old) trial
+ * instead of during it.
+ */
+public class Experiment12 {
+    public static final long DURATION = 5000;
+    public static final long WARMUP_DURATION = 3000;
+    public static final long MAX_CLIENTS = 16;
+    public static final int OLD_PORT = Main.PORT + 1;
+    public static final int NEW_PORT = Main.PORT + 2;
+
+    private static final String[] QUERIES = new String[] {
+        "the", "seattle times", "whale", "pride and prejudice", "war peace", "sherlock holmes",
+        "adventure", "ship captain sea", "king queen", "love letter",
+    };
+
+    public static void main(String[] args) {
+        IList<Long> clients = new DoubleLinkedList<>();
+        for (long count = 1; count <= MAX_CLIENTS; count *= 2) {
+            clients.add(count);
+        }
+
+        System.out.println("Indexing web pages");
+        SearchEngine engine = new SearchEngine(Main.DATA_FOLDER_NAME);
+        Service oldApp = startOldWebapp(engine, OLD_PORT);
+        Webapp newApp = new Webapp(engine, Main.SITE_TITLE, NEW_PORT);
+        newApp.launch();
+        oldApp.awaitInitialization();
+
+        try {
+            waitUntilUp(OLD_PORT);
+            waitUntilUp(NEW_PORT);
+
+            System.out.println("Warming up");
+            for (int port : new int[] {OLD_PORT, NEW_PORT}) {
+                runLoad(MAX_CLIENTS, port, false, null, WARMUP_DURATION);
+                runLoad(MAX_CLIENTS, port, true, null, WARMUP_DURATION);
+            }
+
+            System.out.println("Starting test");
+            IList<Long> oldMain = AnalysisUtils.runSingleTrial(clients, n -> testLoad(n, OLD_PORT, false, null));
+            IList<Long> newMain = AnalysisUtils.runSingleTrial(clients, n -> testLoad(n, NEW_PORT, false, null));
+            String etag = fetchEtag(NEW_PORT);
+            IList<Long> newMainCached = AnalysisUtils.runSingleTrial(clients, n -> testLoad(n, NEW_PORT, false, etag));
+            IList<Long> oldSearch = AnalysisUtils.runSingleTrial(clients, n -> testLoad(n, OLD_PORT, true, null));
+            IList<Long> newSearch = AnalysisUtils.runSingleTrial(clients, n -> testLoad(n, NEW_PORT, true, null));
+
+            System.out.println("Saving experiment results to file");
+            CsvWriter writer = new CsvWriter();
+            writer.addColumn("Clients", clients);
+            writer.addColumn("OldMainRps", oldMain);
+            writer.addColumn("NewMainRps", newMain);
+            writer.addColumn("NewMainNotModifiedRps", newMainCached);
+            writer.addColumn("OldSearchRps", oldSearch);
+            writer.addColumn("NewSearchRps", newSearch);
+            writer.writeToFile("experimentdata/experiment12.csv");
+        } finally {
+            oldApp.stop();
+            newApp.stop();
+        }
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Serves "/" and "/search" the way Webapp did before it compiled its templates once.
+     */
+    private static Service startOldWebapp(SearchEngine engine, int port) {
+        Service http = Service.ignite().port(port);
+        http.get("/", (req, res) -> {
+            Map<String, Object> model = new HashMap<>();
+            model.put("siteTitle", Main.SITE_TITLE);
+            return new MustacheTemplateEngine("webapp/templates").render(new ModelAndView(model, "main.mustache"));
+        });
+        http.get("/search", (req, res) -> {
+            String query = req.queryParams("query");
+            int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
+            Map<String, Object> model = new HashMap<>();
+            model.put("siteTitle", Main.SITE_TITLE);
+            model.put("results", engine.getTopKResults(WordTokenizer.extract(query), numResults));
+            model.put("initialQuery", query);
+            return new MustacheTemplateEngine("webapp/templates").render(new ModelAndView(model, "search.mustache"));
+        });
+        http.init();
+        return http;
+    }
+
+    /**
+     * Returns the number of requests per second the server on 'port' answered while
+     * 'clients' threads sent requests as fast as they could.
+     *
+     * If 'search' is true, the threads cycle through QUERIES; otherwise they request
+     * the home page, sending 'etag' in If-None-Match if it isn't null.
+     */
+    public static long testLoad(long clients, int port, boolean search, String etag) {
+        return runLoad(clients, port, search, etag, DURATION);
+    }
+
+    private static long runLoad(long clients, int port, boolean search, String etag, long duration) {
+        AtomicLong completed = new AtomicLong(0);
+        long deadline = System.currentTimeMillis() + duration;
+        Thread[] threads = new Thread[(int) clients];
+        for (int i = 0; i < threads.length; i++) {
+            int offset = i;
+            threads[i] = new Thread(() -> {
+                int request = offset;
+                while (System.currentTimeMillis() < deadline) {
+                    String path = search ? searchPath(QUERIES[request % QUERIES.length]) : "/";
+                    request++;
+                    try {
+                        get(port, path, etag);
+                        completed.incrementAndGet();
+                    } catch (IOException ex) {
+                        throw new RuntimeException(ex);
+                    }
+                }
+            });
+            threads[i].start();
+        }
+
+        try {
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+        return completed.get() * 1000 / duration;
+    }
+
+    private static String searchPath(String query) {
+        try {
+            return "/search?query=" + URLEncoder.encode(query, "UTF-8");
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Requests the given path and reads the whole response, so the connection can be
+     * reused. Returns the response's ETag header.
+     */
+    private static String get(int port, String path, String etag) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http", "localhost", port, path).openConnection();
+        if (etag != null) {
+            connection.setRequestProperty("If-None-Match", etag);
+        }
+        int status = connection.getResponseCode();
+        if (status != 200 && status != 304) {
+            throw new IOException("Got status " + status + " for " + path);
+        }
+        try (InputStream body = connection.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            while (body.read(buffer) != -1) {
+                // Just drain it
+            }
+        }
+        return connection.getHeaderField("ETag");
+    }
+
+    private static String fetchEtag(int port) {
+        try {
+            return get(port, "/", null);
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void waitUntilUp(int port) {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            try {
+                get(port, "/", null);
+                return;
+            } catch (IOException ex) {
+                try {
+                    Thread.sleep(100);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException(interrupted);
+                }
+            }
+        }
+        throw new IllegalStateException("Server on port " + port + " never came up");
+    }
+}
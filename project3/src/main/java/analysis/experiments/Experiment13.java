@@ -0,0 +1,73 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Measures the slowest single put into a ChainedHashDictionary, with and without
+ * incremental resizing.
+ *
+ * A stop-the-world resize moves every chain during the put that triggers it, so its
+ * worst put grows with the size of the dictionary. An incremental resize spreads
+ * that work over the following puts, so its worst put should stay roughly flat.
+ *
+ * We subtract any time the garbage collector spent during a put, since it would
+ * otherwise swamp the cost of resizing in either mode.
+ */
+public class Experiment13 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MAX_KEYS = 1 << 20;
+    public static final long STEP = 1 << 17;
+
+    public static void main(String[] args) {
+        IList<Long> keys = new DoubleLinkedList<>();
+        for (long count = STEP; count <= MAX_KEYS; count += STEP) {
+            keys.add(count);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> fullWorst = AnalysisUtils.runTrials(keys, count -> worstPutNanos(count, false), NUM_TRIALS);
+        IList<Long> incrementalWorst = AnalysisUtils.runTrials(keys, count -> worstPutNanos(count, true), NUM_TRIALS);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("Keys", keys);
+        writer.addColumn("FullResizeWorstPutNs", fullWorst);
+        writer.addColumn("IncrementalResizeWorstPutNs", incrementalWorst);
+        writer.writeToFile("experimentdata/experiment13.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Returns the longest time any single put took while inserting 'count' keys,
+     * not counting time the garbage collector spent during that put.
+     */
+    public static long worstPutNanos(long count, boolean incremental) {
+        IDictionary<Long, Long> dict = new ChainedHashDictionary<>(16, 1.0, incremental);
+        long worst = 0;
+        for (long i = 0; i < count; i++) {
+            long gcMillis = totalGcMillis();
+            long start = System.nanoTime();
+            dict.put(i, i);
+            long elapsed = System.nanoTime() - start - (totalGcMillis() - gcMillis) * 1000000;
+            worst = Math.max(worst, elapsed);
+        }
+        return worst;
+    }
+
+    private static long totalGcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean bean : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += bean.getCollectionTime();
+        }
+        return total;
+    }
+}
@@ -0,0 +1,142 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Compares ChainedHashDictionary against OpenAddressingDictionary.
+ *
+ * For each dictionary size (10^3 to 10^7 keys) we record the time in milliseconds
+ * it takes to put, get and remove every key, along with the retained heap size
+ * of the fully-populated dictionary.
+ */
+public class Experiment4 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MIN_DICTIONARY_SIZE = 1000;
+    public static final long MAX_DICTIONARY_SIZE = 10000000;
+
+    // Use a fixed seed so both dictionaries see exactly the same keys
+    public static final long SEED = 373;
+
+    public static void main(String[] args) {
+        IList<Long> dictionarySize = new DoubleLinkedList<>();
+        for (long size = MIN_DICTIONARY_SIZE; size <= MAX_DICTIONARY_SIZE; size *= 10) {
+            dictionarySize.add(size);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> chainedPut = AnalysisUtils.runTrials(
+                dictionarySize, size -> testPut(size, ChainedHashDictionary::new), NUM_TRIALS);
+        IList<Long> openPut = AnalysisUtils.runTrials(
+                dictionarySize, size -> testPut(size, OpenAddressingDictionary::new), NUM_TRIALS);
+        IList<Long> chainedGet = AnalysisUtils.runTrials(
+                dictionarySize, size -> testGet(size, ChainedHashDictionary::new), NUM_TRIALS);
+        IList<Long> openGet = AnalysisUtils.runTrials(
+                dictionarySize, size -> testGet(size, OpenAddressingDictionary::new), NUM_TRIALS);
+        IList<Long> chainedRemove = AnalysisUtils.runTrials(
+                dictionarySize, size -> testRemove(size, ChainedHashDictionary::new), NUM_TRIALS);
+        IList<Long> openRemove = AnalysisUtils.runTrials(
+                dictionarySize, size -> testRemove(size, OpenAddressingDictionary::new), NUM_TRIALS);
+
+        // Memory usage is deterministic, so one trial is enough
+        IList<Long> chainedMemory = AnalysisUtils.runSingleTrial(
+                dictionarySize, size -> testMemory(size, ChainedHashDictionary::new));
+        IList<Long> openMemory = AnalysisUtils.runSingleTrial(
+                dictionarySize, size -> testMemory(size, OpenAddressingDictionary::new));
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("DictionarySize", dictionarySize);
+        writer.addColumn("ChainedPutMillis", chainedPut);
+        writer.addColumn("OpenPutMillis", openPut);
+        writer.addColumn("ChainedGetMillis", chainedGet);
+        writer.addColumn("OpenGetMillis", openGet);
+        writer.addColumn("ChainedRemoveMillis", chainedRemove);
+        writer.addColumn("OpenRemoveMillis", openRemove);
+        writer.addColumn("ChainedMemoryBytes", chainedMemory);
+        writer.addColumn("OpenMemoryBytes", openMemory);
+        writer.writeToFile("experimentdata/experiment4.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testPut(long dictionarySize, Supplier<IDictionary<Long, Long>> factory) {
+        Long[] keys = generateKeys((int) dictionarySize);
+
+        long start = System.currentTimeMillis();
+        IDictionary<Long, Long> dict = factory.get();
+        for (Long key : keys) {
+            dict.put(key, key);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    public static long testGet(long dictionarySize, Supplier<IDictionary<Long, Long>> factory) {
+        Long[] keys = generateKeys((int) dictionarySize);
+        IDictionary<Long, Long> dict = fill(keys, factory);
+
+        long start = System.currentTimeMillis();
+        long checksum = 0;
+        for (Long key : keys) {
+            checksum += dict.get(key);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+
+        // Use the checksum so the JIT can't discard the lookups
+        if (checksum == 42) {
+            System.out.println("    (checksum collision)");
+        }
+        return elapsed;
+    }
+
+    public static long testRemove(long dictionarySize, Supplier<IDictionary<Long, Long>> factory) {
+        Long[] keys = generateKeys((int) dictionarySize);
+        IDictionary<Long, Long> dict = fill(keys, factory);
+
+        long start = System.currentTimeMillis();
+        for (Long key : keys) {
+            dict.remove(key);
+        }
+        return System.currentTimeMillis() - start;
+    }
+
+    public static long testMemory(long dictionarySize, Supplier<IDictionary<Long, Long>> factory) {
+        Long[] keys = generateKeys((int) dictionarySize);
+        IDictionary<Long, Long> dict = fill(keys, factory);
+        return AnalysisUtils.getApproximateMemoryUsed(dict);
+    }
+
+    private static IDictionary<Long, Long> fill(Long[] keys, Supplier<IDictionary<Long, Long>> factory) {
+        IDictionary<Long, Long> dict = factory.get();
+        for (Long key : keys) {
+            dict.put(key, key);
+        }
+        return dict;
+    }
+
+    /**
+     * Returns 'size' distinct, randomly ordered keys.
+     */
+    private static Long[] generateKeys(int size) {
+        Random rand = new Random(SEED);
+        Long[] keys = new Long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (long) i;
+        }
+        for (int i = size - 1; i > 0; i--) {
+            int j = rand.nextInt(i + 1);
+            Long temp = keys[i];
+            keys[i] = keys[j];
+            keys[j] = temp;
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,225 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.Searcher;
+import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TopKEvaluator;
+import search.models.Result;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.net.URI;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Compares exhaustive top-k scoring against TopKEvaluator (WAND with block-max bounds).
+ *
+ * For each corpus size we generate a synthetic corpus whose word frequencies and page
+ * ranks both follow power laws, then run the same batch of queries through each
+ * method. Exhaustive scoring computes the relevance of every page containing a query
+ * word, multiplies in sqrt(pageRank) and sorts with Searcher.topKSort, which is what
+ * SearchEngine.getTopKResults used to do.
+ *
+ * We record the mean and 99th percentile latency of a single query in microseconds.
+ * Both methods must return the same scores, or the experiment stops.
+ */
+public class Experiment5 {
+    public static final int NUM_TRIALS = 5;
+    public static final long MIN_CORPUS_SIZE = 1000;
+    public static final long MAX_CORPUS_SIZE = 100000;
+
+    public static final int VOCABULARY_SIZE = 50000;
+    public static final int WORDS_PER_PAGE = 60;
+    public static final int NUM_QUERIES = 2000;
+    public static final int MAX_QUERY_WORDS = 3;
+    public static final int K = 10;
+
+    // Use a fixed seed so both methods see exactly the same corpus and queries
+    public static final long SEED = 373;
+
+    // Building a corpus takes far longer than querying it, so build each one once
+    private static IDictionary<Long, Corpus> corpora = new ChainedHashDictionary<>();
+
+    public static void main(String[] args) {
+        IList<Long> corpusSize = new DoubleLinkedList<>();
+        for (long size = MIN_CORPUS_SIZE; size <= MAX_CORPUS_SIZE; size *= 10) {
+            corpusSize.add(size);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> exhaustiveMean = AnalysisUtils.runTrials(
+                corpusSize, size -> testExhaustive(size, false), NUM_TRIALS);
+        IList<Long> exhaustiveP99 = AnalysisUtils.runTrials(
+                corpusSize, size -> testExhaustive(size, true), NUM_TRIALS);
+        IList<Long> wandMean = AnalysisUtils.runTrials(
+                corpusSize, size -> testWand(size, false), NUM_TRIALS);
+        IList<Long> wandP99 = AnalysisUtils.runTrials(
+                corpusSize, size -> testWand(size, true), NUM_TRIALS);
+
+        // Checking correctness is deterministic, so one trial is enough
+        AnalysisUtils.runSingleTrial(corpusSize, Experiment5::checkResults);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("CorpusSize", corpusSize);
+        writer.addColumn("ExhaustiveMeanMicros", exhaustiveMean);
+        writer.addColumn("ExhaustiveP99Micros", exhaustiveP99);
+        writer.addColumn("WandMeanMicros", wandMean);
+        writer.addColumn("WandP99Micros", wandP99);
+        writer.writeToFile("experimentdata/experiment5.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testExhaustive(long corpusSize, boolean percentile) {
+        Corpus corpus = getCorpus(corpusSize);
+        long[] latencies = new long[corpus.queries.length];
+        for (int i = 0; i < corpus.queries.length; i++) {
+            long start = System.nanoTime();
+            exhaustiveTopK(corpus, corpus.queries[i]);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return summarize(latencies, percentile);
+    }
+
+    public static long testWand(long corpusSize, boolean percentile) {
+        Corpus corpus = getCorpus(corpusSize);
+        long[] latencies = new long[corpus.queries.length];
+        for (int i = 0; i < corpus.queries.length; i++) {
+            long start = System.nanoTime();
+            corpus.evaluator.findTopK(corpus.queries[i], K);
+            latencies[i] = System.nanoTime() - start;
+        }
+        return summarize(latencies, percentile);
+    }
+
+    public static long checkResults(long corpusSize) {
+        Corpus corpus = getCorpus(corpusSize);
+        for (IList<String> query : corpus.queries) {
+            IList<Result> expected = exhaustiveTopK(corpus, query);
+            IList<KVPair<URI, Double>> actual = corpus.evaluator.findTopK(query, K);
+            if (expected.size() != actual.size()) {
+                throw new IllegalStateException("Result counts differ for query " + query);
+            }
+            // Ties may be broken differently, so only compare scores position by position
+            for (int i = 0; i < expected.size(); i++) {
+                double want = expected.get(expected.size() - 1 - i).getScore();
+                double got = actual.get(i).getValue();
+                if (Math.abs(want - got) > 1e-9 * Math.max(1.0, want)) {
+                    throw new IllegalStateException("Scores differ for query " + query);
+                }
+            }
+        }
+        return 0L;
+    }
+
+    /**
+     * Returns the top K results worst first, the way Searcher.topKSort does.
+     */
+    private static IList<Result> exhaustiveTopK(Corpus corpus, IList<String> query) {
+        IList<Result> results = new DoubleLinkedList<>();
+        for (KVPair<URI, Double> pair : corpus.analyzer.computeRelevances(query)) {
+            double score = pair.getValue() * Math.sqrt(corpus.pageRanks.get(pair.getKey()));
+            results.add(new Result(corpus.summaries.get(pair.getKey()), score));
+        }
+        return Searcher.topKSort(K, results);
+    }
+
+    /**
+     * Returns the mean (or 99th percentile) of the given latencies, converted to microseconds.
+     */
+    private static long summarize(long[] nanos, boolean percentile) {
+        if (percentile) {
+            long[] sorted = Arrays.copyOf(nanos, nanos.length);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.ceil(sorted.length * 0.99) - 1] / 1000;
+        }
+        long total = 0;
+        for (long value : nanos) {
+            total += value;
+        }
+        return total / nanos.length / 1000;
+    }
+
+    private static Corpus getCorpus(long corpusSize) {
+        if (!corpora.containsKey(corpusSize)) {
+            System.out.println("    Generating corpus of " + corpusSize + " pages");
+            corpora.put(corpusSize, new Corpus((int) corpusSize));
+        }
+        return corpora.get(corpusSize);
+    }
+
+    private static class Corpus {
+        public final TfIdfAnalyzer analyzer;
+        public final TopKEvaluator evaluator;
+        public final IDictionary<URI, Double> pageRanks;
+        public final IDictionary<URI, WebpageSummary> summaries;
+        public final IList<String>[] queries;
+
+        @SuppressWarnings("unchecked")
+        public Corpus(int size) {
+            Random rand = new Random(SEED);
+            double[] wordWeights = zipfCumulative(VOCABULARY_SIZE);
+
+            ISet<Webpage> pages = new ChainedHashSet<>(size * 2, 0.75, false);
+            this.pageRanks = new ChainedHashDictionary<>(size * 2, 0.75);
+            this.summaries = new ChainedHashDictionary<>(size * 2, 0.75);
+            for (int i = 0; i < size; i++) {
+                URI uri = URI.create("http://example.com/page" + i + ".html");
+                IList<String> words = new DoubleLinkedList<>();
+                for (int j = 0; j < WORDS_PER_PAGE; j++) {
+                    words.add("w" + sample(wordWeights, rand));
+                }
+                Webpage page = new Webpage(uri, new DoubleLinkedList<>(), words, "Page " + i, "");
+                pages.add(page);
+                this.summaries.put(uri, page.getSummary());
+
+                // Pareto-distributed page ranks: most are small, a few are huge
+                this.pageRanks.put(uri, 1.0 / Math.pow(1.0 - rand.nextDouble(), 1.0 / 1.5));
+            }
+
+            this.analyzer = new TfIdfAnalyzer(pages);
+            this.evaluator = new TopKEvaluator(this.analyzer, uri -> Math.sqrt(this.pageRanks.get(uri)));
+
+            this.queries = (IList<String>[]) new IList[NUM_QUERIES];
+            for (int i = 0; i < NUM_QUERIES; i++) {
+                IList<String> query = new DoubleLinkedList<>();
+                int numWords = 1 + rand.nextInt(MAX_QUERY_WORDS);
+                for (int j = 0; j < numWords; j++) {
+                    query.add("w" + sample(wordWeights, rand));
+                }
+                this.queries[i] = query;
+            }
+        }
+
+        /**
+         * Returns the cumulative distribution of a Zipf distribution over 'n' items.
+         */
+        private static double[] zipfCumulative(int n) {
+            double[] cumulative = new double[n];
+            double total = 0.0;
+            for (int i = 0; i < n; i++) {
+                total += 1.0 / (i + 1);
+                cumulative[i] = total;
+            }
+            for (int i = 0; i < n; i++) {
+                cumulative[i] /= total;
+            }
+            return cumulative;
+        }
+
+        private static int sample(double[] cumulative, Random rand) {
+            int index = Arrays.binarySearch(cumulative, rand.nextDouble());
+            return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+        }
+    }
+}
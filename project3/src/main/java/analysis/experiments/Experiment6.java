@@ -0,0 +1,123 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.SearchEngine;
+import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PageRankIteration;
+import search.models.Webpage;
+
+import java.net.URI;
+import java.util.Random;
+
+/**
+ * Measures how PageRankAnalyzer scales with the number of threads.
+ *
+ * We generate a synthetic web graph whose in-degrees follow a power law, then
+ * compute page ranks using 1, 2, ... up to one thread per core, with the same
+ * decay, epsilon and iteration limit SearchEngine uses. For each thread count we
+ * record the total time in milliseconds spent iterating (building the graph is
+ * not included) and the number of iterations.
+ *
+ * Every run must agree with the single-threaded ranks to within the epsilon, or
+ * the experiment stops.
+ */
+public class Experiment6 {
+    public static final int NUM_TRIALS = 5;
+    public static final int GRAPH_SIZE = 200000;
+    public static final int MAX_OUT_DEGREE = 16;
+    public static final double DANGLING_FRACTION = 0.1;
+    public static final long MAX_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // Use a fixed seed so every run sees exactly the same graph
+    public static final long SEED = 373;
+
+    private static ISet<Webpage> graph;
+    private static PageRankAnalyzer baseline;
+
+    public static void main(String[] args) {
+        IList<Long> threads = new DoubleLinkedList<>();
+        for (long count = 1; count <= MAX_THREADS; count++) {
+            threads.add(count);
+        }
+
+        System.out.println("Generating graph of " + GRAPH_SIZE + " pages");
+        graph = makeGraph();
+        baseline = analyze(1);
+
+        System.out.println("Starting test");
+        IList<Long> iterationMillis = AnalysisUtils.runTrials(threads, Experiment6::testIterationTime, NUM_TRIALS);
+
+        // The number of iterations is deterministic, so one trial is enough
+        IList<Long> iterations = AnalysisUtils.runSingleTrial(threads, Experiment6::testIterationCount);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("Threads", threads);
+        writer.addColumn("IterationMillis", iterationMillis);
+        writer.addColumn("Iterations", iterations);
+        writer.writeToFile("experimentdata/experiment6.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testIterationTime(long threads) {
+        long nanos = 0;
+        for (PageRankIteration iteration : analyze((int) threads).getIterations()) {
+            nanos += iteration.getNanos();
+        }
+        return nanos / 1000000;
+    }
+
+    public static long testIterationCount(long threads) {
+        PageRankAnalyzer analyzer = analyze((int) threads);
+        for (Webpage page : graph) {
+            double difference = analyzer.computePageRank(page.getUri()) - baseline.computePageRank(page.getUri());
+            if (Math.abs(difference) > SearchEngine.PAGE_RANK_EPSILON) {
+                throw new IllegalStateException("Ranks differ for " + page.getUri() + " with " + threads + " threads");
+            }
+        }
+        return analyzer.getIterations().size();
+    }
+
+    private static PageRankAnalyzer analyze(int threads) {
+        return new PageRankAnalyzer(
+                graph,
+                SearchEngine.PAGE_RANK_DECAY,
+                SearchEngine.PAGE_RANK_EPSILON,
+                SearchEngine.PAGE_RANK_ITERATION_LIMIT,
+                threads);
+    }
+
+    /**
+     * Returns GRAPH_SIZE pages. Each page links to between 1 and MAX_OUT_DEGREE others
+     * (or to none, for DANGLING_FRACTION of them), and link targets are skewed so a
+     * few pages receive most of the links.
+     */
+    private static ISet<Webpage> makeGraph() {
+        Random rand = new Random(SEED);
+        URI[] uris = new URI[GRAPH_SIZE];
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            uris[i] = URI.create("http://example.com/page" + i + ".html");
+        }
+
+        ISet<Webpage> pages = new ChainedHashSet<>(GRAPH_SIZE * 2, 0.75, false);
+        for (int i = 0; i < GRAPH_SIZE; i++) {
+            IList<URI> links = new DoubleLinkedList<>();
+            if (rand.nextDouble() >= DANGLING_FRACTION) {
+                int outDegree = 1 + rand.nextInt(MAX_OUT_DEGREE);
+                for (int j = 0; j < outDegree; j++) {
+                    // Cubing a uniform number piles the targets up near page 0
+                    double skew = rand.nextDouble();
+                    links.add(uris[(int) (GRAPH_SIZE * skew * skew * skew)]);
+                }
+            }
+            pages.add(new Webpage(uris[i], links, new DoubleLinkedList<>(), "Page " + i, ""));
+        }
+        return pages;
+    }
+}
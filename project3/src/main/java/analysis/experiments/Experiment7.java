@@ -0,0 +1,92 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import analysis.utils.StubWebServer;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.scraper.HttpRequester;
+import search.scraper.Scraper;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the single-threaded crawler (Scraper.run(limit)) against the concurrent
+ * one (Scraper.run(limit, threads)) as the number of hosts grows.
+ *
+ * Both crawl every page of a local StubWebServer with the smallest delay the
+ * HttpRequester allows, using one thread per host in the concurrent case. We record
+ * the time in milliseconds each crawl takes.
+ *
+ * Each crawl takes several seconds of mostly waiting on the per-host delay, so
+ * timings barely vary and we only run one trial.
+ */
+public class Experiment7 {
+    public static final long MIN_HOSTS = 1;
+    public static final long MAX_HOSTS = 8;
+    public static final int PAGES_PER_HOST = 8;
+    public static final long DELAY = 500;
+
+    public static void main(String[] args) {
+        IList<Long> hosts = new DoubleLinkedList<>();
+        for (long count = MIN_HOSTS; count <= MAX_HOSTS; count *= 2) {
+            hosts.add(count);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> sequential = AnalysisUtils.runSingleTrial(hosts, numHosts -> testCrawl(numHosts, false));
+        IList<Long> concurrent = AnalysisUtils.runSingleTrial(hosts, numHosts -> testCrawl(numHosts, true));
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("Hosts", hosts);
+        writer.addColumn("SequentialMillis", sequential);
+        writer.addColumn("ConcurrentMillis", concurrent);
+        writer.writeToFile("experimentdata/experiment7.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testCrawl(long numHosts, boolean concurrent) {
+        int hosts = (int) numHosts;
+        Path output = null;
+        try (StubWebServer server = new StubWebServer(hosts, PAGES_PER_HOST);
+             HttpRequester requester = new HttpRequester(HttpRequester.DEFAULT_USER_AGENT, DELAY)) {
+            output = Files.createTempDirectory("crawl");
+            Scraper scraper = new Scraper(output, requester);
+            for (int host = 0; host < hosts; host++) {
+                scraper.addDomainToWhitelist(server.getHost(host));
+            }
+            scraper.addSeedUri(server.getPageUri(0, 0));
+
+            int limit = hosts * PAGES_PER_HOST;
+            long start = System.currentTimeMillis();
+            if (concurrent) {
+                scraper.run(limit, hosts);
+            } else {
+                scraper.run(limit);
+            }
+            return System.currentTimeMillis() - start;
+        } catch (IOException | URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        } finally {
+            deleteRecursively(output);
+        }
+    }
+
+    private static void deleteRecursively(Path root) {
+        if (root == null) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException ex) {
+            System.out.println("Could not delete " + root + ": " + ex.getMessage());
+        }
+    }
+}
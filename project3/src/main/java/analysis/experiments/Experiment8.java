@@ -0,0 +1,136 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.scraper.SeenUriSet;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.ToLongFunction;
+
+/**
+ * Measures how much memory the crawler needs to remember the URIs it has seen.
+ *
+ * For each number of URIs we fill three structures with the same synthetic URIs:
+ *
+ * 1. The ChainedHashSet<URI> the crawler used to use.
+ * 2. A SeenUriSet keeping every fingerprint in memory.
+ * 3. A SeenUriSet keeping an eighth of the fingerprints in memory and spilling the
+ *    rest to disk, behind a Bloom filter sized for a 1% false positive rate.
+ *
+ * We record the heap bytes per URI of each (the spill file itself is not counted),
+ * then look up as many URIs that were never added and record how many parts per
+ * million the Bloom filter wrongly sent to disk, and how many of them either
+ * SeenUriSet wrongly reported as seen (which should be none).
+ */
+public class Experiment8 {
+    public static final long MIN_URIS = 100000;
+    public static final long MAX_URIS = 800000;
+    public static final double FALSE_POSITIVE_RATE = 0.01;
+
+    public static void main(String[] args) {
+        IList<Long> counts = new DoubleLinkedList<>();
+        for (long count = MIN_URIS; count <= MAX_URIS; count *= 2) {
+            counts.add(count);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> uriSetBytes = AnalysisUtils.runSingleTrial(counts, Experiment8::testUriSetBytes);
+        IList<Long> fingerprintBytes = AnalysisUtils.runSingleTrial(counts, Experiment8::testFingerprintBytes);
+        IList<Long> spillingBytes = AnalysisUtils.runSingleTrial(counts, Experiment8::testSpillingBytes);
+        IList<Long> filterFalsePositives = AnalysisUtils.runSingleTrial(counts, Experiment8::testFilterFalsePositives);
+        IList<Long> wronglySeen = AnalysisUtils.runSingleTrial(counts, Experiment8::testWronglySeen);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("Uris", counts);
+        writer.addColumn("UriSetBytesPerUri", uriSetBytes);
+        writer.addColumn("FingerprintBytesPerUri", fingerprintBytes);
+        writer.addColumn("SpillingBytesPerUri", spillingBytes);
+        writer.addColumn("FilterFalsePositivePpm", filterFalsePositives);
+        writer.addColumn("WronglySeen", wronglySeen);
+        writer.writeToFile("experimentdata/experiment8.csv");
+
+        System.out.println("All done!");
+    }
+
+    public static long testUriSetBytes(long count) {
+        ISet<URI> set = new ChainedHashSet<>(1024, ChainedHashDictionary.DEFAULT_LOAD_FACTOR, true);
+        for (long i = 0; i < count; i++) {
+            set.add(makeUri(i));
+        }
+        return AnalysisUtils.getApproximateMemoryUsed(set) / count;
+    }
+
+    public static long testFingerprintBytes(long count) {
+        SeenUriSet set = new SeenUriSet();
+        for (long i = 0; i < count; i++) {
+            set.add(makeUri(i));
+        }
+        return AnalysisUtils.getApproximateMemoryUsed(set) / count;
+    }
+
+    public static long testSpillingBytes(long count) {
+        return withSpillingSet(count, set -> AnalysisUtils.getApproximateMemoryUsed(set) / count);
+    }
+
+    public static long testFilterFalsePositives(long count) {
+        return withSpillingSet(count, set -> {
+            if (set.getSpilledCount() == 0) {
+                throw new IllegalStateException("Nothing was spilled to disk");
+            }
+            // None of these URIs were added, so every disk search is a false positive
+            long searchesBefore = set.getDiskSearches();
+            for (long i = count; i < 2 * count; i++) {
+                set.contains(makeUri(i));
+            }
+            return (set.getDiskSearches() - searchesBefore) * 1000000 / count;
+        });
+    }
+
+    public static long testWronglySeen(long count) {
+        SeenUriSet inMemory = new SeenUriSet();
+        for (long i = 0; i < count; i++) {
+            inMemory.add(makeUri(i));
+        }
+        return withSpillingSet(count, spilling -> {
+            long wrong = 0;
+            for (long i = count; i < 2 * count; i++) {
+                URI uri = makeUri(i);
+                if (inMemory.contains(uri) || spilling.contains(uri)) {
+                    wrong++;
+                }
+            }
+            return wrong;
+        });
+    }
+
+    private static long withSpillingSet(long count, ToLongFunction<SeenUriSet> test) {
+        try {
+            Path spillPath = Files.createTempFile("seen", ".spill");
+            try (SeenUriSet set = new SeenUriSet((int) (count / 8), count, FALSE_POSITIVE_RATE, spillPath)) {
+                for (long i = 0; i < count; i++) {
+                    set.add(makeUri(i));
+                }
+                return test.applyAsLong(set);
+            }
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Returns a plausible-looking URI, spread over a thousand hosts.
+     */
+    private static URI makeUri(long i) {
+        return URI.create(String.format("http://www.site%d.example.com/articles/%d/page-%d.html",
+                i % 1000, i / 1000, i));
+    }
+}
@@ -0,0 +1,100 @@
+package analysis.experiments;
+
+import analysis.utils.AnalysisUtils;
+import analysis.utils.CsvWriter;
+import analysis.utils.StubWebServer;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.scraper.HttpRequester;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+
+/**
+ * Measures how long HttpRequester takes to fetch a page, as pages grow.
+ *
+ * We fetch every page of a local StubWebServer that pretends each response takes
+ * LATENCY milliseconds to arrive, the way a faraway server would. The crawler tells
+ * the requester about each host as soon as it finds it, so we do the same, then wait
+ * a delay before fetching anything. Pages are fetched one round at a time (one page
+ * from every host per round), waiting a delay between rounds so the requester never
+ * has to wait to be polite; we only time the fetches themselves.
+ *
+ * We record the mean time in microseconds of the first fetch from each host (which
+ * may need robots.txt) and of every later fetch (which may reuse a connection), and
+ * the mean number of bytes each page took on the wire.
+ */
+public class Experiment9 {
+    public static final int NUM_TRIALS = 3;
+    public static final int HOSTS = 8;
+    public static final int PAGES_PER_HOST = 6;
+    public static final long LATENCY = 20;
+    public static final long DELAY = 500;
+
+    public static void main(String[] args) {
+        IList<Long> pageKb = new DoubleLinkedList<>();
+        for (long kb = 1; kb <= 256; kb *= 4) {
+            pageKb.add(kb);
+        }
+
+        System.out.println("Starting test");
+        IList<Long> firstFetch = AnalysisUtils.runTrials(pageKb, kb -> testFetch(kb)[0], NUM_TRIALS);
+        IList<Long> repeatFetch = AnalysisUtils.runTrials(pageKb, kb -> testFetch(kb)[1], NUM_TRIALS);
+        IList<Long> wireBytes = AnalysisUtils.runSingleTrial(pageKb, kb -> testFetch(kb)[2]);
+
+        System.out.println("Saving experiment results to file");
+        CsvWriter writer = new CsvWriter();
+        writer.addColumn("PageKb", pageKb);
+        writer.addColumn("FirstFetchMicros", firstFetch);
+        writer.addColumn("RepeatFetchMicros", repeatFetch);
+        writer.addColumn("WireBytesPerPage", wireBytes);
+        writer.writeToFile("experimentdata/experiment9.csv");
+
+        System.out.println("All done!");
+    }
+
+    /**
+     * Returns the mean first fetch time, the mean later fetch time, and the mean wire
+     * bytes per page.
+     */
+    public static long[] testFetch(long pageKb) {
+        try (StubWebServer server = new StubWebServer(HOSTS, PAGES_PER_HOST, (int) pageKb * 1024, LATENCY);
+             HttpRequester requester = new HttpRequester(HttpRequester.DEFAULT_USER_AGENT, DELAY)) {
+            for (int host = 0; host < HOSTS; host++) {
+                requester.prefetchRobots(server.getPageUri(host, 0));
+            }
+            Thread.sleep(DELAY);
+
+            long firstNanos = 0;
+            long repeatNanos = 0;
+            long bytesBefore = server.getBytesSent();
+            for (int page = 0; page < PAGES_PER_HOST; page++) {
+                for (int host = 0; host < HOSTS; host++) {
+                    long start = System.nanoTime();
+                    if (requester.makeRequest(server.getPageUri(host, page)) == null) {
+                        throw new IllegalStateException("Could not fetch " + server.getPageUri(host, page));
+                    }
+                    long elapsed = System.nanoTime() - start;
+                    if (page == 0) {
+                        firstNanos += elapsed;
+                    } else {
+                        repeatNanos += elapsed;
+                    }
+                }
+                Thread.sleep(DELAY + 10);
+            }
+            long pages = (long) HOSTS * PAGES_PER_HOST;
+            return new long[] {
+                firstNanos / HOSTS / 1000,
+                repeatNanos / (pages - HOSTS) / 1000,
+                // Any robots.txt fetched inside the loop counts too, but those are tiny
+                (server.getBytesSent() - bytesBefore) / pages,
+            };
+        } catch (IOException | URISyntaxException ex) {
+            throw new RuntimeException(ex);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        }
+    }
+}
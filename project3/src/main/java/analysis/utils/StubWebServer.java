@@ -0,0 +1,239 @@
+package analysis.utils;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A tiny local web server for testing the crawler without touching the internet.
+ *
+ * The server pretends to be several different hosts: host i (counting from 0) is
+ * reached at 127.0.0.(i + 1), which all point back at this machine. Every host has
+ * a robots.txt allowing everything and pages p0.html, p1.html, ..., each of which
+ * links to the next page on the same host and to the same page on the next host.
+ *
+ * Pages can be padded with filler text to a given size, and responses can be delayed
+ * to simulate the round trip to a faraway server. Responses are gzipped whenever the
+ * client says it accepts gzip.
+ *
+ * Every page has a version, which starts at 0 and goes up each time changePage(...)
+ * is called; the version shows up in the page's text and its ETag. A request whose
+ * If-None-Match matches the current ETag gets "304 Not Modified". ETags can be
+ * turned off, to act like a server that doesn't support conditional requests.
+ *
+ * The server remembers when each page request arrived, so tests can check how
+ * politely a crawler treated each host.
+ */
+public class StubWebServer implements AutoCloseable {
+    private final int numHosts;
+    private final int pagesPerHost;
+    private final int pageBytes;
+    private final long latencyMillis;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final AtomicLong requestCount;
+    private final AtomicLong bytesSent;
+    private final AtomicIntegerArray versions;
+    // When each request for a page arrived at each host, in System.nanoTime() nanoseconds
+    private final List<List<Long>> pageRequestTimes;
+    private volatile boolean sendEtags;
+
+    /**
+     * Starts serving 'pagesPerHost' small pages for each of 'numHosts' hosts on a free port.
+     */
+    public StubWebServer(int numHosts, int pagesPerHost) throws IOException {
+        this(numHosts, pagesPerHost, 0, 0);
+    }
+
+    /**
+     * Starts serving 'pagesPerHost' pages for each of 'numHosts' hosts on a free port.
+     * Each page is padded to at least 'pageBytes' bytes, and every response waits
+     * 'latencyMillis' before being sent.
+     */
+    public StubWebServer(int numHosts, int pagesPerHost, int pageBytes, long latencyMillis) throws IOException {
+        if (numHosts < 1 || numHosts > 254) {
+            throw new IllegalArgumentException("Need between 1 and 254 hosts, got " + numHosts);
+        }
+        this.numHosts = numHosts;
+        this.pagesPerHost = pagesPerHost;
+        this.pageBytes = pageBytes;
+        this.latencyMillis = latencyMillis;
+        this.requestCount = new AtomicLong(0);
+        this.bytesSent = new AtomicLong(0);
+        this.versions = new AtomicIntegerArray(numHosts * Math.max(pagesPerHost, 1));
+        this.sendEtags = true;
+        this.pageRequestTimes = new ArrayList<>();
+        for (int i = 0; i < numHosts; i++) {
+            this.pageRequestTimes.add(Collections.synchronizedList(new ArrayList<>()));
+        }
+
+        this.server = HttpServer.create(new InetSocketAddress(0), 0);
+        this.server.createContext("/", this::handle);
+        this.executor = Executors.newFixedThreadPool(16);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * Returns the name of host i.
+     */
+    public String getHost(int host) {
+        return "127.0.0." + (host + 1);
+    }
+
+    /**
+     * Returns the URI of the given page on host i.
+     */
+    public URI getPageUri(int host, int page) {
+        return URI.create("http://" + this.getHost(host) + ":" + this.server.getAddress().getPort()
+                + "/p" + page + ".html");
+    }
+
+    /**
+     * Returns the number of requests served so far, including robots.txt requests.
+     */
+    public long getRequestCount() {
+        return this.requestCount.get();
+    }
+
+    /**
+     * Returns the number of response body bytes sent so far, after compression.
+     */
+    public long getBytesSent() {
+        return this.bytesSent.get();
+    }
+
+    /**
+     * Returns when each request for a page on host i arrived, in System.nanoTime()
+     * nanoseconds, in the order they arrived. Requests for robots.txt and for pages
+     * that don't exist aren't included.
+     */
+    public long[] getPageRequestTimes(int host) {
+        List<Long> times = this.pageRequestTimes.get(host);
+        synchronized (times) {
+            long[] out = new long[times.size()];
+            for (int i = 0; i < out.length; i++) {
+                out[i] = times.get(i);
+            }
+            return out;
+        }
+    }
+
+    /**
+     * Changes the contents (and ETag) of the given page on host i.
+     */
+    public void changePage(int host, int page) {
+        this.versions.incrementAndGet(host * this.pagesPerHost + page);
+    }
+
+    /**
+     * Sets whether pages are sent with ETags (and so whether conditional requests
+     * can get "304 Not Modified").
+     */
+    public void setSendEtags(boolean sendEtags) {
+        this.sendEtags = sendEtags;
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long arrived = System.nanoTime();
+        this.requestCount.incrementAndGet();
+        if (this.latencyMillis > 0) {
+            try {
+                Thread.sleep(this.latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        String path = exchange.getRequestURI().getPath();
+        String localHost = exchange.getLocalAddress().getAddress().getHostAddress();
+        int host = Integer.parseInt(localHost.substring(localHost.lastIndexOf('.') + 1)) - 1;
+
+        if (path.equals("/robots.txt")) {
+            this.respond(exchange, 200, "text/plain", "User-agent: *\nDisallow:\n");
+            return;
+        }
+
+        int page = -1;
+        if (path.startsWith("/p") && path.endsWith(".html")) {
+            try {
+                page = Integer.parseInt(path.substring(2, path.length() - ".html".length()));
+            } catch (NumberFormatException ex) {
+                page = -1;
+            }
+        }
+        if (page < 0 || page >= this.pagesPerHost || host < 0 || host >= this.numHosts) {
+            this.respond(exchange, 404, "text/html", "<html><body>Not found</body></html>");
+            return;
+        }
+        this.pageRequestTimes.get(host).add(arrived);
+
+        int version = this.versions.get(host * this.pagesPerHost + page);
+        if (this.sendEtags) {
+            String etag = String.format("\"h%d-p%d-v%d\"", host, page, version);
+            exchange.getResponseHeaders().set("ETag", etag);
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+        }
+
+        StringBuilder body = new StringBuilder();
+        body.append("<html><head><title>Page ").append(page).append(" on host ").append(host)
+                .append("</title></head><body><p>This is page ").append(page)
+                .append(" of a stub website used for testing the crawler.</p>");
+        if (version > 0) {
+            body.append("<p>Version ").append(version).append("</p>");
+        }
+        for (int filler = 0; body.length() < this.pageBytes; filler++) {
+            body.append("<p>Filler paragraph ").append(filler)
+                    .append(": the quick brown fox jumps over the lazy dog.</p>");
+        }
+        if (page + 1 < this.pagesPerHost) {
+            body.append("<a href=\"/p").append(page + 1).append(".html\">next</a>");
+        }
+        body.append("<a href=\"").append(this.getPageUri((host + 1) % this.numHosts, page))
+                .append("\">neighbor</a></body></html>");
+        this.respond(exchange, 200, "text/html; charset=UTF-8", body.toString());
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                gzip.write(bytes);
+            }
+            bytes = compressed.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        this.bytesSent.addAndGet(bytes.length);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
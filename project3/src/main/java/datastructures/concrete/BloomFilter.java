@@ -0,0 +1,91 @@
+package datastructures.concrete;
+
+/**
+ * A Bloom filter over 64-bit hashes.
+ *
+ * mightContain(...) never returns 'false' for a hash that was added, but returns
+ * 'true' for a hash that wasn't added with probability about 'falsePositiveRate',
+ * as long as no more than 'expectedItems' hashes are added. Past that, the false
+ * positive rate slowly climbs towards 1.
+ *
+ * The hashes should already be uniformly distributed (for example, taken from a
+ * cryptographic digest): the filter derives its bit positions from them directly.
+ */
+public class BloomFilter {
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+    private long size;
+
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems < 1) {
+            throw new IllegalArgumentException("Need at least one expected item, got " + expectedItems);
+        }
+        if (!(falsePositiveRate > 0 && falsePositiveRate < 1)) {
+            throw new IllegalArgumentException("False positive rate must be between 0 and 1: " + falsePositiveRate);
+        }
+
+        // The standard optimal sizes: m = -n ln(p) / ln(2)^2 bits, k = (m / n) ln(2) hashes
+        double ln2 = Math.log(2);
+        long wantedBits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (ln2 * ln2));
+        long words = Math.max(1, (wantedBits + 63) / 64);
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Bloom filter would be too large: " + wantedBits + " bits");
+        }
+        this.bits = new long[(int) words];
+        this.bitCount = words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / expectedItems * ln2));
+        this.size = 0;
+    }
+
+    public void add(long hash) {
+        long h1 = hash;
+        long h2 = secondHash(hash);
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, this.bitCount);
+            this.bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+        this.size++;
+    }
+
+    public boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = secondHash(hash);
+        for (int i = 0; i < this.hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, this.bitCount);
+            if ((this.bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of hashes added so far (counting duplicates).
+     */
+    public long size() {
+        return this.size;
+    }
+
+    public long getBitCount() {
+        return this.bitCount;
+    }
+
+    public int getHashCount() {
+        return this.hashCount;
+    }
+
+    /**
+     * Derives an independent-looking second hash for double hashing (the murmur3
+     * finalizer), forced odd so that successive probes don't repeat early.
+     */
+    private static long secondHash(long hash) {
+        long h = hash;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h | 1;
+    }
+}
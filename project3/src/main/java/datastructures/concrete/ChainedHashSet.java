@@ -19,6 +19,15 @@ public class ChainedHashSet<T> implements ISet<T> {
         this.map = new ChainedHashDictionary<>();
     }
 
+    /**
+     * Creates a set backed by a power-of-two ChainedHashDictionary.
+     *
+     * See ChainedHashDictionary(int, double, boolean) for what each parameter does.
+     */
+    public ChainedHashSet(int initialCapacity, double loadFactor, boolean incrementalResize) {
+        this.map = new ChainedHashDictionary<>(initialCapacity, loadFactor, incrementalResize);
+    }
+
     @Override
     public void add(T item) {
         if (!map.containsKey(item)) {
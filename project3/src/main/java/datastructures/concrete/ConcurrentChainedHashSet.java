@@ -0,0 +1,82 @@
+package datastructures.concrete;
+
+import datastructures.concrete.dictionaries.ConcurrentChainedHashDictionary;
+import datastructures.interfaces.IConcurrentDictionary;
+import datastructures.interfaces.ISet;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A thread-safe version of ChainedHashSet, backed by a ConcurrentChainedHashDictionary.
+ *
+ * Iterators are weakly consistent; see IConcurrentDictionary for details.
+ *
+ * See ISet for more details on what each method is supposed to do.
+ */
+public class ConcurrentChainedHashSet<T> implements ISet<T> {
+    private IConcurrentDictionary<T, Boolean> map;
+
+    public ConcurrentChainedHashSet() {
+        this.map = new ConcurrentChainedHashDictionary<>();
+    }
+
+    @Override
+    public void add(T item) {
+        this.map.putIfAbsent(item, true);
+    }
+
+    /**
+     * Atomically adds the given item, returning 'true' if it was not already in the set.
+     *
+     * Use this instead of calling contains(...) and then add(...) when several threads
+     * may be adding the same item.
+     */
+    public boolean addIfAbsent(T item) {
+        return this.map.putIfAbsent(item, true) == null;
+    }
+
+    @Override
+    public void remove(T item) {
+        // Checking containsKey first would race with other removers, so just try it
+        try {
+            this.map.remove(item);
+        } catch (NoSuchKeyException ex) {
+            throw new NoSuchElementException("Cannot remove because there is no such element");
+        }
+    }
+
+    @Override
+    public boolean contains(T item) {
+        return this.map.containsKey(item);
+    }
+
+    @Override
+    public int size() {
+        return this.map.size();
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new SetIterator<>(this.map.iterator());
+    }
+
+    private static class SetIterator<T> implements Iterator<T> {
+        private Iterator<KVPair<T, Boolean>> iter;
+
+        public SetIterator(Iterator<KVPair<T, Boolean>> iter) {
+            this.iter = iter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.iter.hasNext();
+        }
+
+        @Override
+        public T next() {
+            return this.iter.next().getKey();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+import misc.exceptions.EmptyContainerException;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An IList backed by an array that doubles in size whenever it fills up.
+ *
+ * Compared to DoubleLinkedList, adding an item allocates nothing (except when the
+ * array has to grow), each item costs one array slot instead of a whole node, and
+ * get(...) and set(...) take constant time. Inserting or deleting anywhere but the
+ * end takes linear time, since later items have to be shifted over.
+ */
+public class DynamicArrayList<T> implements IList<T> {
+    public static final int DEFAULT_CAPACITY = 8;
+
+    private T[] items;
+    private int size;
+
+    public DynamicArrayList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a list with room for 'capacity' items before it has to grow.
+     */
+    public DynamicArrayList(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative, got " + capacity);
+        }
+        this.items = this.makeArrayOfT(Math.max(capacity, 1));
+        this.size = 0;
+    }
+
+    @Override
+    public void add(T item) {
+        if (this.size == this.items.length) {
+            this.items = Arrays.copyOf(this.items, this.items.length * 2);
+        }
+        this.items[this.size] = item;
+        this.size++;
+    }
+
+    @Override
+    public T remove() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        this.size--;
+        T item = this.items[this.size];
+        this.items[this.size] = null;
+        return item;
+    }
+
+    @Override
+    public T get(int index) {
+        this.checkIndex(index, this.size);
+        return this.items[index];
+    }
+
+    @Override
+    public void set(int index, T item) {
+        this.checkIndex(index, this.size);
+        this.items[index] = item;
+    }
+
+    @Override
+    public void insert(int index, T item) {
+        this.checkIndex(index, this.size + 1);
+        this.add(item);
+        System.arraycopy(this.items, index, this.items, index + 1, this.size - 1 - index);
+        this.items[index] = item;
+    }
+
+    @Override
+    public T delete(int index) {
+        this.checkIndex(index, this.size);
+        T item = this.items[index];
+        System.arraycopy(this.items, index + 1, this.items, index, this.size - 1 - index);
+        this.size--;
+        this.items[this.size] = null;
+        return item;
+    }
+
+    @Override
+    public int indexOf(T item) {
+        for (int i = 0; i < this.size; i++) {
+            T current = this.items[i];
+            if (current == item || (current != null && current.equals(item))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) != -1;
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new ArrayIterator<>(this.items, this.size);
+    }
+
+    private void checkIndex(int index, int bound) {
+        if (index < 0 || index >= bound) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T[] makeArrayOfT(int capacity) {
+        return (T[]) new Object[capacity];
+    }
+
+    private static class ArrayIterator<T> implements Iterator<T> {
+        private final T[] items;
+        private final int size;
+        private int index;
+
+        public ArrayIterator(T[] items, int size) {
+            this.items = items;
+            this.size = size;
+            this.index = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.size;
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = this.items[this.index];
+            this.index++;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package datastructures.concrete;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often values (typically latencies, in nanoseconds) fall into each of a
+ * fixed set of buckets, in the style of an HDR histogram.
+ *
+ * Values below SUB_BUCKETS each get a bucket of their own. Above that, every range
+ * from one power of two to the next is split into SUB_BUCKETS equal buckets, so a
+ * bucket is never wider than 1/SUB_BUCKETS (about 3%) of the values in it. That
+ * covers every non-negative long in under 2000 buckets, with the same relative
+ * precision for a 10 microsecond query as for a 10 second one.
+ *
+ * Recording a value takes constant time and never blocks, so any number of threads
+ * may record and read at the same time. Reads that race with writes may miss the
+ * values being written.
+ */
+public class Histogram {
+    public static final int SUB_BUCKETS = 32;
+    private static final int SUB_BUCKET_BITS = 5;
+
+    private final AtomicLongArray counts;
+    private final LongAdder sum;
+    private final AtomicLong max;
+
+    public Histogram() {
+        this.counts = new AtomicLongArray(bucketIndex(Long.MAX_VALUE) + 1);
+        this.sum = new LongAdder();
+        this.max = new AtomicLong(0);
+    }
+
+    /**
+     * Records one occurrence of the given value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        this.counts.incrementAndGet(bucketIndex(value));
+        this.sum.add(value);
+        if (value > this.max.get()) {
+            this.max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Returns the number of values recorded.
+     */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            count += this.counts.get(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns the total of all values recorded.
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    /**
+     * Returns the largest value recorded, or 0 if there are none.
+     */
+    public long getMax() {
+        return this.max.get();
+    }
+
+    /**
+     * Returns a value that at least 'percentile' percent of the recorded values are
+     * less than or equal to, or 0 if nothing was recorded. The answer is never more
+     * than about 3% too high, and never higher than getMax().
+     *
+     * @throws IllegalArgumentException  if 'percentile' isn't between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (!(percentile >= 0.0 && percentile <= 100.0)) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100, got " + percentile);
+        }
+        long[] snapshot = this.snapshot();
+        long total = 0;
+        for (long count : snapshot) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long wanted = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= wanted) {
+                return Math.min(highestValueIn(i), this.getMax());
+            }
+        }
+        return this.getMax();
+    }
+
+    /**
+     * For each of the given bounds (which must be in increasing order), returns the
+     * number of recorded values that are at most that bound, followed by the total
+     * number of values, all taken from the same snapshot.
+     *
+     * A bucket counts towards a bound if the lowest value it can hold is at most the
+     * bound, so values up to about 3% above a bound may be counted below it too.
+     */
+    public long[] getCumulativeCounts(long[] bounds) {
+        long[] snapshot = this.snapshot();
+        long[] cumulative = new long[bounds.length + 1];
+        long seen = 0;
+        int bound = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            while (bound < bounds.length && lowestValueIn(i) > bounds[bound]) {
+                cumulative[bound] = seen;
+                bound++;
+            }
+            seen += snapshot[i];
+        }
+        while (bound < bounds.length) {
+            cumulative[bound] = seen;
+            bound++;
+        }
+        cumulative[bounds.length] = seen;
+        return cumulative;
+    }
+
+    private long[] snapshot() {
+        long[] snapshot = new long[this.counts.length()];
+        for (int i = 0; i < snapshot.length; i++) {
+            snapshot[i] = this.counts.get(i);
+        }
+        return snapshot;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // 'exponent' is the position of the highest set bit; the next SUB_BUCKET_BITS
+        // bits below it pick the sub-bucket
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long lowestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + index % SUB_BUCKETS) << shift;
+    }
+
+    private static long highestValueIn(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        // For the very last bucket this overflows past Long.MAX_VALUE and wraps back
+        // down to exactly Long.MAX_VALUE
+        int shift = index / SUB_BUCKETS - 1;
+        return lowestValueIn(index) + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,119 @@
+package datastructures.concrete;
+
+import datastructures.interfaces.IList;
+
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only IList whose items are stored as integer IDs into a shared table.
+ *
+ * Many lists can share one table, so each distinct item is stored only once no
+ * matter how often it appears. The IDs may live in any IntBuffer, including one
+ * backed by a memory-mapped file, in which case building the list copies nothing.
+ *
+ * All methods that would modify the list throw UnsupportedOperationException.
+ */
+public class InternedList<T> implements IList<T> {
+    private final T[] table;
+    private final IntBuffer ids;
+
+    /**
+     * Creates a list containing table[ids.get(0)], table[ids.get(1)], ..., up to
+     * (but not including) ids.limit().
+     *
+     * The list reads from 'ids' using absolute indices, so neither argument is
+     * copied and 'ids' must not be modified afterwards.
+     */
+    public InternedList(T[] table, IntBuffer ids) {
+        this.table = table;
+        this.ids = ids;
+    }
+
+    @Override
+    public T get(int index) {
+        if (index < 0 || index >= this.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is out of bounds");
+        }
+        return this.table[this.ids.get(index)];
+    }
+
+    @Override
+    public int size() {
+        return this.ids.limit();
+    }
+
+    @Override
+    public int indexOf(T item) {
+        for (int i = 0; i < this.size(); i++) {
+            T current = this.table[this.ids.get(i)];
+            if (current == item || (current != null && current.equals(item))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(T other) {
+        return this.indexOf(other) != -1;
+    }
+
+    @Override
+    public void add(T item) {
+        throw new UnsupportedOperationException("InternedList is read-only");
+    }
+
+    @Override
+    public T remove() {
+        throw new UnsupportedOperationException("InternedList is read-only");
+    }
+
+    @Override
+    public void set(int index, T item) {
+        throw new UnsupportedOperationException("InternedList is read-only");
+    }
+
+    @Override
+    public void insert(int index, T item) {
+        throw new UnsupportedOperationException("InternedList is read-only");
+    }
+
+    @Override
+    public T delete(int index) {
+        throw new UnsupportedOperationException("InternedList is read-only");
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return new InternedIterator<>(this.table, this.ids);
+    }
+
+    private static class InternedIterator<T> implements Iterator<T> {
+        private final T[] table;
+        private final IntBuffer ids;
+        private int index;
+
+        public InternedIterator(T[] table, IntBuffer ids) {
+            this.table = table;
+            this.ids = ids;
+            this.index = 0;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.ids.limit();
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T item = this.table[this.ids.get(this.index)];
+            this.index++;
+            return item;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package datastructures.concrete;
+
+import java.util.Arrays;
+
+/**
+ * A set of primitive longs, stored in one open-addressed array with linear probing.
+ *
+ * Unlike a ChainedHashSet<Long>, this doesn't box its items or allocate a node per
+ * item: each item costs 8 bytes divided by the load factor, so about 11-21 bytes at
+ * the default load factor of 0.5 (depending on how recently the array doubled).
+ *
+ * Items can't be removed one at a time, only all at once with clear().
+ */
+public class LongHashSet {
+    public static final int DEFAULT_CAPACITY = 16;
+    public static final double DEFAULT_LOAD_FACTOR = 0.5;
+
+    // 0 marks an empty slot, so the item 0 is tracked separately
+    private long[] slots;
+    private boolean containsZero;
+    private int size;
+    private final double loadFactor;
+    private int resizeThreshold;
+
+    public LongHashSet() {
+        this(DEFAULT_CAPACITY, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a set that can hold 'initialCapacity' items before it has to resize.
+     */
+    public LongHashSet(int initialCapacity, double loadFactor) {
+        if (initialCapacity < 0) {
+            throw new IllegalArgumentException("Capacity can't be negative: " + initialCapacity);
+        }
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be between 0 and 1: " + loadFactor);
+        }
+        this.loadFactor = loadFactor;
+        int slotCount = Integer.highestOneBit(Math.max(2, (int) Math.ceil(initialCapacity / loadFactor)) - 1) << 1;
+        this.slots = new long[slotCount];
+        this.resizeThreshold = (int) (slotCount * loadFactor);
+        this.size = 0;
+        this.containsZero = false;
+    }
+
+    /**
+     * Adds the item, returning 'true' if it was not already in the set.
+     */
+    public boolean add(long item) {
+        if (item == 0) {
+            if (this.containsZero) {
+                return false;
+            }
+            this.containsZero = true;
+            this.size++;
+            return true;
+        }
+
+        int mask = this.slots.length - 1;
+        int index = mix(item) & mask;
+        while (this.slots[index] != 0) {
+            if (this.slots[index] == item) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        this.slots[index] = item;
+        this.size++;
+        if (this.size > this.resizeThreshold) {
+            this.resize(this.slots.length * 2);
+        }
+        return true;
+    }
+
+    public boolean contains(long item) {
+        if (item == 0) {
+            return this.containsZero;
+        }
+
+        int mask = this.slots.length - 1;
+        int index = mix(item) & mask;
+        while (this.slots[index] != 0) {
+            if (this.slots[index] == item) {
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    /**
+     * Removes every item, keeping the current capacity.
+     */
+    public void clear() {
+        Arrays.fill(this.slots, 0);
+        this.containsZero = false;
+        this.size = 0;
+    }
+
+    /**
+     * Returns a new array holding every item in the set, sorted in ascending order.
+     */
+    public long[] toSortedArray() {
+        long[] out = new long[this.size];
+        int next = 0;
+        if (this.containsZero) {
+            out[next++] = 0;
+        }
+        for (long slot : this.slots) {
+            if (slot != 0) {
+                out[next++] = slot;
+            }
+        }
+        Arrays.sort(out);
+        return out;
+    }
+
+    private void resize(int slotCount) {
+        long[] old = this.slots;
+        this.slots = new long[slotCount];
+        this.resizeThreshold = (int) (slotCount * this.loadFactor);
+        int mask = slotCount - 1;
+        for (long item : old) {
+            if (item != 0) {
+                int index = mix(item) & mask;
+                while (this.slots[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                this.slots[index] = item;
+            }
+        }
+    }
+
+    /**
+     * Spreads every bit of the item into the low bits, so nearby items don't land in
+     * nearby slots.
+     */
+    private static int mix(long item) {
+        long h = item * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
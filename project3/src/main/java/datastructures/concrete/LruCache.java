@@ -0,0 +1,200 @@
+package datastructures.concrete;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A cache holding at most 'capacity' entries, which throws out the least recently used
+ * entry to make room for a new one. Entries can also expire a fixed time after they
+ * were put in.
+ *
+ * Entries are kept in a dictionary for lookups and in a doubly linked list ordered from
+ * least to most recently used, so every operation takes constant time.
+ *
+ * The cache counts hits, misses, evictions (entries thrown out to make room) and
+ * expirations, so it can be sized by watching how often it misses.
+ *
+ * All methods are thread-safe.
+ */
+public class LruCache<K, V> {
+    private final int capacity;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final IDictionary<K, Node<K, V>> entries;
+
+    // 'head' is the least recently used entry, 'tail' the most recently used
+    private Node<K, V> head;
+    private Node<K, V> tail;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    /**
+     * Creates a cache whose entries never expire.
+     */
+    public LruCache(int capacity) {
+        this(capacity, 0);
+    }
+
+    /**
+     * Creates a cache whose entries expire 'ttlMillis' milliseconds after they were
+     * put in, or never if 'ttlMillis' is 0.
+     */
+    public LruCache(int capacity, long ttlMillis) {
+        this(capacity, ttlMillis, System::currentTimeMillis);
+    }
+
+    /**
+     * Same as above, but tells the time using 'clock', which returns the current time
+     * in milliseconds.
+     */
+    public LruCache(int capacity, long ttlMillis, LongSupplier clock) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive, got " + capacity);
+        }
+        if (ttlMillis < 0) {
+            throw new IllegalArgumentException("Time to live must not be negative, got " + ttlMillis);
+        }
+        this.capacity = capacity;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new ChainedHashDictionary<>();
+    }
+
+    /**
+     * Returns the value cached for the given key, or null if there isn't one (or it
+     * has expired), and marks the entry as the most recently used.
+     */
+    public synchronized V get(K key) {
+        Node<K, V> node = this.entries.getOrDefault(key, null);
+        if (node == null) {
+            this.misses++;
+            return null;
+        }
+        if (this.ttlMillis > 0 && this.clock.getAsLong() - node.createdAt >= this.ttlMillis) {
+            this.unlink(node);
+            this.entries.remove(key);
+            this.expirations++;
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        this.unlink(node);
+        this.append(node);
+        return node.value;
+    }
+
+    /**
+     * Caches the value for the given key, replacing any value already there, and
+     * evicts the least recently used entry if the cache is over capacity.
+     */
+    public synchronized void put(K key, V value) {
+        Node<K, V> old = this.entries.getOrDefault(key, null);
+        if (old != null) {
+            this.unlink(old);
+        }
+        Node<K, V> node = new Node<>(key, value, this.clock.getAsLong());
+        this.entries.put(key, node);
+        this.append(node);
+
+        if (this.entries.size() > this.capacity) {
+            Node<K, V> eldest = this.head;
+            this.unlink(eldest);
+            this.entries.remove(eldest.key);
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Removes every entry. The counters are not reset.
+     */
+    public synchronized void clear() {
+        while (this.head != null) {
+            Node<K, V> node = this.head;
+            this.unlink(node);
+            this.entries.remove(node.key);
+        }
+    }
+
+    public synchronized int size() {
+        return this.entries.size();
+    }
+
+    public int getCapacity() {
+        return this.capacity;
+    }
+
+    public synchronized long getHits() {
+        return this.hits;
+    }
+
+    public synchronized long getMisses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries thrown out to make room for new ones.
+     */
+    public synchronized long getEvictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the number of entries thrown out because they had expired.
+     */
+    public synchronized long getExpirations() {
+        return this.expirations;
+    }
+
+    @Override
+    public synchronized String toString() {
+        long lookups = this.hits + this.misses;
+        return String.format("%d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions, %d expirations",
+                this.entries.size(), this.capacity, this.hits, this.misses,
+                lookups == 0 ? 0.0 : 100.0 * this.hits / lookups, this.evictions, this.expirations);
+    }
+
+    private void append(Node<K, V> node) {
+        node.prev = this.tail;
+        node.next = null;
+        if (this.tail == null) {
+            this.head = node;
+        } else {
+            this.tail.next = node;
+        }
+        this.tail = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+        if (node.prev == null) {
+            this.head = node.next;
+        } else {
+            node.prev.next = node.next;
+        }
+        if (node.next == null) {
+            this.tail = node.prev;
+        } else {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static class Node<K, V> {
+        public final K key;
+        public final V value;
+        public final long createdAt;
+        public Node<K, V> prev;
+        public Node<K, V> next;
+
+        public Node(K key, V value, long createdAt) {
+            this.key = key;
+            this.value = value;
+            this.createdAt = createdAt;
+        }
+    }
+}
@@ -19,11 +19,92 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
     // You're encouraged to add extra fields (and helper methods) though!
     private int capacity; // internal size
     private int pairNumber; // number of key
+    private double loadFactor; // average chain length that triggers a resize
+
+    // When true, capacity is always a power of two and hash() spreads the
+    // hash code and masks it instead of taking a modulo.
+    private boolean powerOfTwo;
+
+    // Incremental resize mode: instead of rehashing everything at once, we keep
+    // the previous table in 'oldChains' and every put or remove moves a few of
+    // its chains over to 'chains'. A key lives in exactly one of the two tables:
+    // in oldChains[hash in old table] if that chain hasn't been moved yet,
+    // otherwise in chains. Moved chains are set to null in oldChains.
+    private boolean incrementalResize;
+    private IDictionary<K, V>[] oldChains; // null when no resize is in progress
+    private int oldCapacity;
+    private int migrateIndex; // every old chain before this index has been moved
+    private long migratedChains; // old chain slots moved (or found empty) so far
+
+    public static final double DEFAULT_LOAD_FACTOR = 1.0;
+
+    // Number of old chain slots visited per put or remove during an incremental
+    // resize. Should be large enough that the migration usually finishes before
+    // the new table itself fills up.
+    public static final int MIGRATION_STEP = 8;
 
     public ChainedHashDictionary() {
         chains = makeArrayOfChains(10);
         capacity = chains.length;
         pairNumber = 0;
+        loadFactor = DEFAULT_LOAD_FACTOR;
+        powerOfTwo = false;
+        incrementalResize = false;
+        migratedChains = 0;
+    }
+
+    /**
+     * Creates a dictionary with at least 'initialCapacity' chains, using the
+     * default load factor.
+     *
+     * See ChainedHashDictionary(int, double).
+     */
+    public ChainedHashDictionary(int initialCapacity) {
+        this(initialCapacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    /**
+     * Creates a dictionary in power-of-two mode: the number of chains is
+     * 'initialCapacity' rounded up to the next power of two, and stays a power
+     * of two after every resize. We resize once the average chain length
+     * exceeds 'loadFactor'.
+     *
+     * Callers that know roughly how many keys they will insert should pass
+     * (expectedKeys / loadFactor) so the dictionary never needs to resize.
+     *
+     * @throws IllegalArgumentException  if initialCapacity < 1 or loadFactor is not positive
+     */
+    public ChainedHashDictionary(int initialCapacity, double loadFactor) {
+        this(initialCapacity, loadFactor, false);
+    }
+
+    /**
+     * Same as ChainedHashDictionary(int, double), but if 'incrementalResize' is true,
+     * growing the table is spread out over the following operations instead of
+     * rehashing every pair inside a single put. This bounds the worst-case time of
+     * any one operation, which matters for long-running processes holding millions
+     * of keys.
+     *
+     * @throws IllegalArgumentException  if initialCapacity < 1 or loadFactor is not positive
+     */
+    public ChainedHashDictionary(int initialCapacity, double loadFactor, boolean incrementalResize) {
+        if (initialCapacity < 1) {
+            throw new IllegalArgumentException("Initial capacity must be positive: " + initialCapacity);
+        }
+        if (!(loadFactor > 0.0)) {
+            throw new IllegalArgumentException("Load factor must be positive: " + loadFactor);
+        }
+        int rounded = 1;
+        while (rounded < initialCapacity && rounded < (1 << 30)) {
+            rounded <<= 1;
+        }
+        chains = makeArrayOfChains(rounded);
+        capacity = chains.length;
+        pairNumber = 0;
+        this.loadFactor = loadFactor;
+        powerOfTwo = true;
+        this.incrementalResize = incrementalResize;
+        migratedChains = 0;
     }
 
     /**
@@ -42,26 +123,30 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
 
     @Override
     public V get(K key) {
-        int hashedIndex = hash(key);
+        IDictionary<K, V> chain = chainFor(key);
         // if arr on the chain is not null
-        if (chains[hashedIndex] != null && chains[hashedIndex].containsKey(key)) {
-            return chains[hashedIndex].get(key);
+        if (chain != null && chain.containsKey(key)) {
+            return chain.get(key);
         } else {
             // the arr on the chain is null
-            throw new NoSuchKeyException("Cannot find the key " + key + " at " + hashedIndex);
+            throw new NoSuchKeyException("Cannot find the key " + key + " at " + hash(key));
         }
     }
 
     @Override
-    public void put(K key, V value) {
-        // Process key
-        int hashedIndex;
-
-        if (key == null) {
-            hashedIndex = 0;
-        } else {
-            hashedIndex = hash(key);
+    public V getOrDefault(K key, V defaultValue) {
+        IDictionary<K, V> chain = chainFor(key);
+        if (chain == null) {
+            return defaultValue;
         }
+        return chain.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    public void put(K key, V value) {
+        advanceMigration(key);
+        // Process key (hash() maps a null key to chain 0)
+        int hashedIndex = hash(key);
         // if the array dictionary is null
         if (chains[hashedIndex] == null) {
             chains[hashedIndex] = new ArrayDictionary<K, V>();
@@ -84,15 +169,21 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
     }
 
     public void processOverload() {
-        double overLoadFactor = 1.0; // it means it needs 100 elements in a basic size 10 array
-        // dictionary to have a resize
+        // with the default load factor of 1.0, a basic size 10 array needs more than
+        // 10 elements to have a resize
         double sizeCapRatio = pairNumber * 1.0 / capacity;
-        if (sizeCapRatio > overLoadFactor) {
-            resize();
+        if (sizeCapRatio > loadFactor) {
+            if (incrementalResize) {
+                startIncrementalResize();
+            } else {
+                resize();
+            }
         }
     }
 
     public void resize() {
+        // finish any incremental resize first so every pair is in 'chains'
+        finishMigration();
         int originalCapacity = capacity;
         capacity *= 2;
         IDictionary<K, V>[] newChains = makeArrayOfChains(capacity);
@@ -123,16 +214,107 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
         chains = newChains; // make a reference to the new chain
     }
 
+    /**
+     * Swaps in a table twice as large but leaves every pair in the old table;
+     * advanceMigration() then moves them over a few chains at a time.
+     */
+    private void startIncrementalResize() {
+        // we normally finish well before the next resize, but make sure
+        // there is never more than one old table around
+        finishMigration();
+        oldChains = chains;
+        oldCapacity = capacity;
+        migrateIndex = 0;
+        capacity *= 2;
+        chains = makeArrayOfChains(capacity);
+    }
+
+    /**
+     * Returns the chain that holds 'key' if it is present (possibly null).
+     *
+     * Lookups never move chains, so reading from the dictionary while iterating
+     * over it stays safe during an incremental resize.
+     */
+    private IDictionary<K, V> chainFor(K key) {
+        if (oldChains != null) {
+            IDictionary<K, V> oldChain = oldChains[indexFor(key, oldCapacity)];
+            if (oldChain != null) {
+                return oldChain;
+            }
+        }
+        return chains[hash(key)];
+    }
+
+    /**
+     * Called at the start of every put and remove. If an incremental resize is in
+     * progress, moves the old chain that may contain 'key' (so the caller only
+     * needs to look in 'chains'), then visits up to MIGRATION_STEP more old chains.
+     */
+    private void advanceMigration(K key) {
+        if (oldChains == null) {
+            return;
+        }
+        migrateChain(indexFor(key, oldCapacity));
+        for (int i = 0; i < MIGRATION_STEP && migrateIndex < oldCapacity; i++) {
+            migrateChain(migrateIndex);
+            migrateIndex++;
+        }
+        if (migrateIndex >= oldCapacity) {
+            oldChains = null;
+        }
+    }
+
+    private void finishMigration() {
+        if (oldChains == null) {
+            return;
+        }
+        while (migrateIndex < oldCapacity) {
+            migrateChain(migrateIndex);
+            migrateIndex++;
+        }
+        oldChains = null;
+    }
+
+    private void migrateChain(int oldIndex) {
+        migratedChains++;
+        IDictionary<K, V> chain = oldChains[oldIndex];
+        if (chain == null) {
+            return;
+        }
+        for (KVPair<K, V> pair : chain) {
+            int hashedIndex = hash(pair.getKey());
+            if (chains[hashedIndex] == null) {
+                chains[hashedIndex] = new ArrayDictionary<K, V>();
+            }
+            chains[hashedIndex].put(pair.getKey(), pair.getValue());
+        }
+        oldChains[oldIndex] = null;
+    }
+
     public int hash(K key) {
+        return indexFor(key, capacity);
+    }
+
+    private int indexFor(K key, int size) {
         // if key is null, then return the default zero.
         if (key == null) {
             return 0;
         }
-        return Math.abs(key.hashCode() % capacity);
+        if (powerOfTwo) {
+            // capacity is a power of two, so masking picks the low bits; spread
+            // the high bits down first so weak hash codes still use every chain
+            int h = key.hashCode();
+            h ^= (h >>> 16);
+            h *= 0x85ebca6b;
+            h ^= (h >>> 13);
+            return h & (size - 1);
+        }
+        return Math.abs(key.hashCode() % size);
     }
 
     @Override
     public V remove(K key) {
+        advanceMigration(key);
         // search for the index
         int hashedIndex = hash(key);
         // search for the pair in this index
@@ -146,9 +328,9 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
 
     @Override
     public boolean containsKey(K key) {
-        int hashedIndex = hash(key);
-        // search for the pair in this index
-        if (chains[hashedIndex] != null && chains[hashedIndex].containsKey(key)) {
+        IDictionary<K, V> chain = chainFor(key);
+        // search for the pair in this chain
+        if (chain != null && chain.containsKey(key)) {
             return true;
         }
         return false;
@@ -159,10 +341,20 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
         return pairNumber;
     }
 
+    /**
+     * Returns the number of old chains moved to the new table by incremental resizes
+     * so far, counting empty ones. A single put or remove moves at most
+     * MIGRATION_STEP + 1 of them: the chain its key used to hash to, and the next
+     * MIGRATION_STEP in order.
+     */
+    public long getMigratedChainCount() {
+        return migratedChains;
+    }
+
     @Override
     public Iterator<KVPair<K, V>> iterator() {
-        // Note: you do not need to change this method
-        return new ChainedIterator<>(this.chains);
+        // pairs not yet moved by an incremental resize are still in oldChains
+        return new ChainedIterator<>(this.chains, this.oldChains);
     }
 
     /**
@@ -205,11 +397,13 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
      */
     private static class ChainedIterator<K, V> implements Iterator<KVPair<K, V>> {
         private IDictionary<K, V>[] chains;
+        private IDictionary<K, V>[] pendingChains; // second table to walk afterwards, or null
         int index;
         Iterator<KVPair<K, V>> iterator = null; // iterator of KVPair
 
-        public ChainedIterator(IDictionary<K, V>[] chains) {
+        public ChainedIterator(IDictionary<K, V>[] chains, IDictionary<K, V>[] pendingChains) {
             this.chains = chains;
+            this.pendingChains = pendingChains;
             index = 0; // chain pointer while checking hasNext()
             iterator = null;
         }
@@ -238,6 +432,14 @@ public class ChainedHashDictionary<K, V> implements IDictionary<K, V> {
                     }
                 }
             }
+            if (pendingChains != null) {
+                // done with the first table: continue with the other one
+                chains = pendingChains;
+                pendingChains = null;
+                index = 0;
+                iterator = null;
+                return hasNext();
+            }
             return false;
         }
 
@@ -0,0 +1,380 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IConcurrentDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A thread-safe chained hash dictionary using lock striping.
+ *
+ * The chains are split across a fixed number of stripes, each guarded by its own
+ * lock, so writers touching different stripes never wait on each other. Readers
+ * never lock at all: chain nodes are immutable apart from their (volatile) value,
+ * and a writer publishes a new chain head with a single atomic store, so a reader
+ * always sees a consistent chain.
+ *
+ * See IConcurrentDictionary and IDictionary for more details on what each method does.
+ */
+public class ConcurrentChainedHashDictionary<K, V> implements IConcurrentDictionary<K, V> {
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final int DEFAULT_STRIPES = 16;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    // Invariants:
+    //
+    // - table.length and locks.length are powers of two, and table.length >= locks.length,
+    //   so chain i is always guarded by locks[i & (locks.length - 1)].
+    // - a chain is only ever modified while holding its stripe lock; the table is only
+    //   replaced while holding every stripe lock.
+    private volatile AtomicReferenceArray<Node<K, V>> table;
+    private final ReentrantLock[] locks;
+    private final AtomicInteger size;
+
+    public ConcurrentChainedHashDictionary() {
+        this(DEFAULT_CAPACITY, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Creates a dictionary with at least 'initialCapacity' chains, split across
+     * (at least) 'stripes' independently locked stripes. More stripes allow more
+     * concurrent writers.
+     *
+     * @throws IllegalArgumentException  if either argument is less than 1
+     */
+    public ConcurrentChainedHashDictionary(int initialCapacity, int stripes) {
+        if (initialCapacity < 1 || stripes < 1) {
+            throw new IllegalArgumentException("Capacity and stripe count must be positive");
+        }
+        int lockCount = roundUpToPowerOfTwo(stripes);
+        this.locks = new ReentrantLock[lockCount];
+        for (int i = 0; i < lockCount; i++) {
+            this.locks[i] = new ReentrantLock();
+        }
+        this.table = new AtomicReferenceArray<>(Math.max(roundUpToPowerOfTwo(initialCapacity), lockCount));
+        this.size = new AtomicInteger(0);
+    }
+
+    private static int roundUpToPowerOfTwo(int n) {
+        int rounded = 1;
+        while (rounded < n && rounded < (1 << 30)) {
+            rounded <<= 1;
+        }
+        return rounded;
+    }
+
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    private static boolean matches(Node<?, ?> node, int hash, Object key) {
+        return node.hash == hash && (node.key == key || (key != null && key.equals(node.key)));
+    }
+
+    /**
+     * Returns the node for the given key, or null. Lock-free.
+     */
+    private Node<K, V> find(K key) {
+        int h = hash(key);
+        AtomicReferenceArray<Node<K, V>> current = this.table;
+        Node<K, V> node = current.get(h & (current.length() - 1));
+        while (node != null) {
+            if (matches(node, h, key)) {
+                return node;
+            }
+            node = node.next;
+        }
+        return null;
+    }
+
+    @Override
+    public V get(K key) {
+        Node<K, V> node = this.find(key);
+        if (node == null) {
+            throw new NoSuchKeyException("Cannot find the key " + key);
+        }
+        return node.value;
+    }
+
+    @Override
+    public V getOrDefault(K key, V defaultValue) {
+        Node<K, V> node = this.find(key);
+        return node == null ? defaultValue : node.value;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.find(key) != null;
+    }
+
+    @Override
+    public int size() {
+        return this.size.get();
+    }
+
+    /**
+     * Locks the stripe that guards the given hash. Once we hold it, the table
+     * cannot be replaced underneath us.
+     */
+    private ReentrantLock lockFor(int hash) {
+        ReentrantLock lock = this.locks[hash & (this.locks.length - 1)];
+        lock.lock();
+        return lock;
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int h = hash(key);
+        boolean added;
+        ReentrantLock lock = this.lockFor(h);
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            int index = h & (current.length() - 1);
+            Node<K, V> node = this.findInChain(current.get(index), h, key);
+            if (node != null) {
+                node.value = value;
+                added = false;
+            } else {
+                current.set(index, new Node<>(h, key, value, current.get(index)));
+                added = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (added) {
+            this.afterInsert();
+        }
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        int h = hash(key);
+        ReentrantLock lock = this.lockFor(h);
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            int index = h & (current.length() - 1);
+            Node<K, V> node = this.findInChain(current.get(index), h, key);
+            if (node != null) {
+                return node.value;
+            }
+            current.set(index, new Node<>(h, key, value, current.get(index)));
+        } finally {
+            lock.unlock();
+        }
+        this.afterInsert();
+        return null;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        // Fast path: no locking if the key is already there
+        Node<K, V> existing = this.find(key);
+        if (existing != null) {
+            return existing.value;
+        }
+
+        int h = hash(key);
+        V value;
+        ReentrantLock lock = this.lockFor(h);
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            int index = h & (current.length() - 1);
+            Node<K, V> node = this.findInChain(current.get(index), h, key);
+            if (node != null) {
+                return node.value;
+            }
+            value = mappingFunction.apply(key);
+            if (value == null) {
+                return null;
+            }
+            current.set(index, new Node<>(h, key, value, current.get(index)));
+        } finally {
+            lock.unlock();
+        }
+        this.afterInsert();
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        int h = hash(key);
+        V value;
+        boolean added = false;
+        ReentrantLock lock = this.lockFor(h);
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            int index = h & (current.length() - 1);
+            Node<K, V> head = current.get(index);
+            Node<K, V> node = this.findInChain(head, h, key);
+            value = remappingFunction.apply(key, node == null ? null : node.value);
+            if (node != null && value != null) {
+                node.value = value;
+            } else if (node != null) {
+                current.set(index, this.unlink(head, node));
+                this.size.decrementAndGet();
+            } else if (value != null) {
+                current.set(index, new Node<>(h, key, value, head));
+                added = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (added) {
+            this.afterInsert();
+        }
+        return value;
+    }
+
+    @Override
+    public V remove(K key) {
+        int h = hash(key);
+        ReentrantLock lock = this.lockFor(h);
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            int index = h & (current.length() - 1);
+            Node<K, V> head = current.get(index);
+            Node<K, V> node = this.findInChain(head, h, key);
+            if (node == null) {
+                throw new NoSuchKeyException("Remove Failure: No such key");
+            }
+            current.set(index, this.unlink(head, node));
+            this.size.decrementAndGet();
+            return node.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Node<K, V> findInChain(Node<K, V> node, int hash, K key) {
+        while (node != null && !matches(node, hash, key)) {
+            node = node.next;
+        }
+        return node;
+    }
+
+    /**
+     * Returns a chain equal to the given one but without 'target'.
+     *
+     * Since 'next' pointers are final, we copy the nodes in front of 'target'
+     * instead of modifying them; readers already walking the old chain are
+     * unaffected.
+     */
+    private Node<K, V> unlink(Node<K, V> head, Node<K, V> target) {
+        Node<K, V> result = target.next;
+        for (Node<K, V> node = head; node != target; node = node.next) {
+            result = new Node<>(node.hash, node.key, node.value, result);
+        }
+        return result;
+    }
+
+    /**
+     * Must be called without holding any stripe lock.
+     */
+    private void afterInsert() {
+        int count = this.size.incrementAndGet();
+        if (count > this.table.length() * MAX_LOAD_FACTOR) {
+            this.resize();
+        }
+    }
+
+    private void resize() {
+        // Always take the locks in the same order so two resizing threads can't deadlock
+        for (ReentrantLock lock : this.locks) {
+            lock.lock();
+        }
+        try {
+            AtomicReferenceArray<Node<K, V>> current = this.table;
+            if (this.size.get() <= current.length() * MAX_LOAD_FACTOR || current.length() >= (1 << 30)) {
+                // Someone else already resized
+                return;
+            }
+            AtomicReferenceArray<Node<K, V>> bigger = new AtomicReferenceArray<>(current.length() * 2);
+            int mask = bigger.length() - 1;
+            for (int i = 0; i < current.length(); i++) {
+                // Copy rather than relink so readers still walking the old table see intact chains
+                for (Node<K, V> node = current.get(i); node != null; node = node.next) {
+                    int index = node.hash & mask;
+                    bigger.set(index, new Node<>(node.hash, node.key, node.value, bigger.get(index)));
+                }
+            }
+            this.table = bigger;
+        } finally {
+            for (ReentrantLock lock : this.locks) {
+                lock.unlock();
+            }
+        }
+    }
+
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new WeaklyConsistentIterator<>(this.table);
+    }
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        final Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    /**
+     * Walks the table as it was when the iterator was created. Because chains
+     * are never modified in place, this never fails, even if other threads
+     * modify the dictionary in the meantime.
+     */
+    private static class WeaklyConsistentIterator<K, V> implements Iterator<KVPair<K, V>> {
+        private final AtomicReferenceArray<Node<K, V>> table;
+        private int index;
+        private Node<K, V> next;
+
+        public WeaklyConsistentIterator(AtomicReferenceArray<Node<K, V>> table) {
+            this.table = table;
+            this.index = 0;
+            this.next = null;
+            this.advance();
+        }
+
+        private void advance() {
+            if (this.next != null) {
+                this.next = this.next.next;
+            }
+            while (this.next == null && this.index < this.table.length()) {
+                this.next = this.table.get(this.index);
+                this.index++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.next != null;
+        }
+
+        @Override
+        public KVPair<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Iterator cannot find the next");
+            }
+            KVPair<K, V> pair = new KVPair<>(this.next.key, this.next.value);
+            this.advance();
+            return pair;
+        }
+    }
+}
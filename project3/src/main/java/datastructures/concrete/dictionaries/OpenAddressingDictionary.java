@@ -0,0 +1,277 @@
+package datastructures.concrete.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IDictionary;
+import misc.exceptions.NoSuchKeyException;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An IDictionary backed by a single open-addressing table instead of one
+ * ArrayDictionary per bucket.
+ *
+ * Entries are stored in three parallel arrays (keys, values and cached hash
+ * codes) and collisions are resolved using Robin Hood linear probing: while
+ * inserting, an entry that is closer to its home slot gives up its slot to
+ * the entry being inserted. This keeps probe sequences short and lets a
+ * failed lookup stop early. Removal uses backward-shift deletion, so the
+ * table never contains tombstones.
+ *
+ * Because every hash code is cached, resizing never calls hashCode() or
+ * equals() on the stored keys.
+ *
+ * See IDictionary for more details on what each method should do.
+ */
+public class OpenAddressingDictionary<K, V> implements IDictionary<K, V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+
+    // A hash of 0 marks an empty slot, so real hashes are never 0.
+    private static final int EMPTY = 0;
+
+    // Invariants:
+    //
+    // - keys, values and hashes always have the same length, which is a power of two.
+    // - hashes[i] == EMPTY iff slot i is unused (keys[i] and values[i] are then null).
+    // - every entry is reachable by probing forwards from its home slot without
+    //   crossing an empty slot.
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+    private int size;
+    private int resizeThreshold;
+
+    public OpenAddressingDictionary() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a dictionary that can hold at least 'expectedSize' pairs
+     * before it needs to resize.
+     */
+    public OpenAddressingDictionary(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size cannot be negative: " + expectedSize);
+        }
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * MAX_LOAD_FACTOR < expectedSize) {
+            capacity *= 2;
+        }
+        this.allocate(capacity);
+        this.size = 0;
+    }
+
+    private void allocate(int capacity) {
+        this.keys = new Object[capacity];
+        this.values = new Object[capacity];
+        this.hashes = new int[capacity];
+        this.resizeThreshold = (int) (capacity * MAX_LOAD_FACTOR);
+    }
+
+    /**
+     * Mixes the high bits of the key's hash code into the low bits, since
+     * only the low bits are used to pick a slot.
+     */
+    private static int hash(Object key) {
+        int h = key == null ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h == EMPTY ? 1 : h;
+    }
+
+    /**
+     * Returns how far the entry with the given hash sitting in 'slot' is from its home slot.
+     */
+    private int probeDistance(int hash, int slot) {
+        int mask = this.hashes.length - 1;
+        return (slot - (hash & mask)) & mask;
+    }
+
+    /**
+     * Returns the slot containing the given key, or -1 if it is absent.
+     */
+    private int findSlot(K key) {
+        int h = hash(key);
+        int mask = this.hashes.length - 1;
+        int slot = h & mask;
+        for (int distance = 0; ; distance++) {
+            int current = this.hashes[slot];
+            if (current == EMPTY || this.probeDistance(current, slot) < distance) {
+                // Robin Hood invariant: had the key been present, it would have
+                // displaced this entry.
+                return -1;
+            }
+            if (current == h) {
+                Object other = this.keys[slot];
+                if (other == key || (key != null && key.equals(other))) {
+                    return slot;
+                }
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException("Cannot find the key " + key);
+        }
+        return (V) this.values[slot];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(K key, V defaultValue) {
+        int slot = this.findSlot(key);
+        return slot < 0 ? defaultValue : (V) this.values[slot];
+    }
+
+    @Override
+    public void put(K key, V value) {
+        int slot = this.findSlot(key);
+        if (slot >= 0) {
+            this.values[slot] = value;
+            return;
+        }
+        if (this.size >= this.resizeThreshold) {
+            this.resize(this.hashes.length * 2);
+        }
+        this.insertAbsent(hash(key), key, value);
+        this.size++;
+    }
+
+    /**
+     * Places a pair known not to be in the table, displacing entries that are
+     * closer to their home slot than the one being carried.
+     */
+    private void insertAbsent(int h, Object key, Object value) {
+        int mask = this.hashes.length - 1;
+        int slot = h & mask;
+        int distance = 0;
+        while (true) {
+            int current = this.hashes[slot];
+            if (current == EMPTY) {
+                this.hashes[slot] = h;
+                this.keys[slot] = key;
+                this.values[slot] = value;
+                return;
+            }
+
+            int currentDistance = this.probeDistance(current, slot);
+            if (currentDistance < distance) {
+                Object displacedKey = this.keys[slot];
+                Object displacedValue = this.values[slot];
+                this.hashes[slot] = h;
+                this.keys[slot] = key;
+                this.values[slot] = value;
+
+                h = current;
+                key = displacedKey;
+                value = displacedValue;
+                distance = currentDistance;
+            }
+            slot = (slot + 1) & mask;
+            distance++;
+        }
+    }
+
+    private void resize(int newCapacity) {
+        Object[] oldKeys = this.keys;
+        Object[] oldValues = this.values;
+        int[] oldHashes = this.hashes;
+
+        this.allocate(newCapacity);
+        for (int i = 0; i < oldHashes.length; i++) {
+            if (oldHashes[i] != EMPTY) {
+                this.insertAbsent(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        int slot = this.findSlot(key);
+        if (slot < 0) {
+            throw new NoSuchKeyException("Remove Failure: No such key");
+        }
+        V removed = (V) this.values[slot];
+
+        // Backward-shift deletion: pull every following displaced entry one
+        // slot closer to home until we hit an empty slot or an entry that is
+        // already in its home slot.
+        int mask = this.hashes.length - 1;
+        int next = (slot + 1) & mask;
+        while (this.hashes[next] != EMPTY && this.probeDistance(this.hashes[next], next) > 0) {
+            this.hashes[slot] = this.hashes[next];
+            this.keys[slot] = this.keys[next];
+            this.values[slot] = this.values[next];
+            slot = next;
+            next = (next + 1) & mask;
+        }
+        this.hashes[slot] = EMPTY;
+        this.keys[slot] = null;
+        this.values[slot] = null;
+
+        this.size--;
+        return removed;
+    }
+
+    @Override
+    public boolean containsKey(K key) {
+        return this.findSlot(key) >= 0;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    @Override
+    public Iterator<KVPair<K, V>> iterator() {
+        return new OpenAddressingIterator<>(this.keys, this.values, this.hashes);
+    }
+
+    private static class OpenAddressingIterator<K, V> implements Iterator<KVPair<K, V>> {
+        private final Object[] keys;
+        private final Object[] values;
+        private final int[] hashes;
+        // Index of the next occupied slot, or hashes.length once exhausted
+        private int index;
+
+        public OpenAddressingIterator(Object[] keys, Object[] values, int[] hashes) {
+            this.keys = keys;
+            this.values = values;
+            this.hashes = hashes;
+            this.index = 0;
+            this.advance();
+        }
+
+        private void advance() {
+            while (this.index < this.hashes.length && this.hashes[this.index] == EMPTY) {
+                this.index++;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return this.index < this.hashes.length;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public KVPair<K, V> next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException("Iterator cannot find the next");
+            }
+            KVPair<K, V> pair = new KVPair<>((K) this.keys[this.index], (V) this.values[this.index]);
+            this.index++;
+            this.advance();
+            return pair;
+        }
+    }
+}
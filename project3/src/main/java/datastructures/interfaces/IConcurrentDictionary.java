@@ -0,0 +1,48 @@
+package datastructures.interfaces;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Represents a dictionary that may be safely read and modified by many threads at once.
+ *
+ * Besides the regular IDictionary operations, this interface provides atomic
+ * read-modify-write operations: checking for a key and then putting it using two
+ * separate method calls is a race when other threads are modifying the dictionary.
+ *
+ * Iterators returned by a concurrent dictionary are weakly consistent: they never
+ * throw, they return every pair that was present when the iterator was created and
+ * not removed since, and they may or may not return pairs added after that.
+ *
+ * Note: the methods below use 'null' to mean "no value", so storing null values
+ * in a concurrent dictionary makes their results ambiguous.
+ */
+public interface IConcurrentDictionary<K, V> extends IDictionary<K, V> {
+    /**
+     * Atomically adds the key-value pair if the key is not already present.
+     *
+     * Returns the value already associated with the key, or null if the given
+     * value was inserted.
+     */
+    public V putIfAbsent(K key, V value);
+
+    /**
+     * Atomically returns the value associated with the given key. If the key is
+     * not present, computes a value using the given function, stores it, and
+     * returns it.
+     *
+     * The function is called at most once per call and only when the key is absent.
+     * If it returns null, nothing is stored. It must not modify this dictionary.
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction);
+
+    /**
+     * Atomically replaces the value associated with the given key with the result
+     * of calling the function on the key and current value (which is null if the key
+     * is absent). If the function returns null, the key is removed instead.
+     *
+     * Returns the new value, or null if the key is now absent. The function must not
+     * modify this dictionary.
+     */
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
+}
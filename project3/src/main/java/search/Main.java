@@ -13,9 +13,14 @@ public class Main {
     // and know what ports are, feel free to change this if it's convenient.
     public static final int PORT = 8080;
 
+    // The number of threads used to load and parse web pages and compute page
+    // ranks while indexing (by default, one per core).
+    // Lower this if indexing makes your computer unresponsive.
+    public static final int LOADER_THREADS = SearchEngine.DEFAULT_LOADER_THREADS;
+
     public static void main(String[] args) {
         System.out.println("Indexing web pages...");
-        SearchEngine engine = new SearchEngine(DATA_FOLDER_NAME);
+        SearchEngine engine = new SearchEngine(DATA_FOLDER_NAME, LOADER_THREADS);
 
         System.out.println("Setting up web server...");
         Webapp app = new Webapp(engine, SITE_TITLE, PORT);
@@ -0,0 +1,148 @@
+package search;
+
+import search.misc.exceptions.OverloadedException;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Runs search queries on a fixed number of worker threads, so that a burst of
+ * expensive queries can't take over every core on the machine.
+ *
+ * Queries wait their turn in a queue of limited size. A query that arrives when the
+ * queue is full is turned away at once, and a query that hasn't finished by its
+ * deadline is given up on; either way the caller gets an OverloadedException, which
+ * the webapp turns into "503 Service Unavailable". Giving up on a query that is
+ * still queued takes it out of the queue, so the workers never spend time on
+ * answers nobody is waiting for. A query that has already started runs to the end.
+ */
+public class QueryExecutor implements AutoCloseable {
+    private final ThreadPoolExecutor workers;
+    private final long timeoutNanos;
+    private final AtomicLong completed;
+    private final AtomicLong rejected;
+    private final AtomicLong timedOut;
+
+    /**
+     * Creates an executor running queries on 'threads' workers, with room for
+     * 'queueSize' more to wait. Each query must finish within 'timeoutMillis'
+     * milliseconds of being submitted, including the time it spends waiting.
+     */
+    public QueryExecutor(int threads, int queueSize, long timeoutMillis) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
+        if (queueSize < 1) {
+            throw new IllegalArgumentException("Queue size must be positive, got " + queueSize);
+        }
+        if (timeoutMillis < 1) {
+            throw new IllegalArgumentException("Timeout must be positive, got " + timeoutMillis);
+        }
+
+        AtomicInteger threadCount = new AtomicInteger(0);
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), task -> {
+                    Thread thread = new Thread(task, "query-worker-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.timeoutNanos = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        this.completed = new AtomicLong(0);
+        this.rejected = new AtomicLong(0);
+        this.timedOut = new AtomicLong(0);
+    }
+
+    /**
+     * Runs the given query on one of the workers and returns its answer.
+     *
+     * @throws OverloadedException  if the queue is full, or the query didn't finish in time
+     */
+    public <T> T execute(Supplier<T> query) {
+        long deadline = System.nanoTime() + this.timeoutNanos;
+        FutureTask<T> task = new FutureTask<>(query::get);
+        try {
+            this.workers.execute(task);
+        } catch (RejectedExecutionException ex) {
+            this.rejected.incrementAndGet();
+            throw new OverloadedException("Too many queries are waiting to run", ex);
+        }
+
+        try {
+            T answer = task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            this.completed.incrementAndGet();
+            return answer;
+        } catch (TimeoutException ex) {
+            this.giveUp(task);
+            this.timedOut.incrementAndGet();
+            throw new OverloadedException(String.format(
+                    "Query did not finish within %d ms", TimeUnit.NANOSECONDS.toMillis(this.timeoutNanos)), ex);
+        } catch (InterruptedException ex) {
+            this.giveUp(task);
+            Thread.currentThread().interrupt();
+            throw new OverloadedException("Interrupted while waiting for a query", ex);
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Query failed", cause);
+        }
+    }
+
+    /**
+     * Returns the number of queries currently waiting for a worker.
+     */
+    public int getQueueLength() {
+        return this.workers.getQueue().size();
+    }
+
+    /**
+     * Returns the number of queries answered in time.
+     */
+    public long getCompleted() {
+        return this.completed.get();
+    }
+
+    /**
+     * Returns the number of queries turned away because the queue was full.
+     */
+    public long getRejected() {
+        return this.rejected.get();
+    }
+
+    /**
+     * Returns the number of queries given up on because they missed their deadline.
+     */
+    public long getTimedOut() {
+        return this.timedOut.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d workers, %d queued, %d completed, %d rejected, %d timed out",
+                this.workers.getMaximumPoolSize(), this.getQueueLength(),
+                this.getCompleted(), this.getRejected(), this.getTimedOut());
+    }
+
+    @Override
+    public void close() {
+        this.workers.shutdownNow();
+    }
+
+    private void giveUp(FutureTask<?> task) {
+        task.cancel(false);
+        // A cancelled task would be skipped anyway, but until a worker reached it,
+        // it would take up room in the queue that a live query could use
+        this.workers.remove(task);
+    }
+}
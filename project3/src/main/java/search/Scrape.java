@@ -1,5 +1,6 @@
 package search;
 
+import search.scraper.DiskFrontier;
 import search.scraper.Scraper;
 
 import java.io.IOException;
@@ -17,12 +18,19 @@ public class Scrape {
                 "https://en.wikipedia.org/wiki/Seattle_Daily_Journal_of_Commerce",
         };
 
-        Scraper scraper = new Scraper(Paths.get("data/wikipedia-with-spam"));
+        // Re-running this resumes the crawl from its last checkpoint instead of starting over
+        Scraper scraper = new Scraper(Paths.get("data/wikipedia-with-spam"))
+                .checkpointFrontier(DiskFrontier.DEFAULT_SEGMENT_SIZE, Scraper.DEFAULT_CHECKPOINT_INTERVAL);
         scraper.addDomainToWhitelist("en.wikipedia.org");
         for (String seed : seeds) {
             scraper.addSeedUri(URI.create(seed));
         }
 
-        scraper.run(60 * 5);
+        if (args.length > 0 && args[0].equals("--recrawl")) {
+            // Refresh the pages we already have, rewriting only the ones that changed
+            scraper.recrawl(60 * 5);
+        } else {
+            scraper.run(60 * 5);
+        }
     }
 }
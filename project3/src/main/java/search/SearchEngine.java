@@ -1,16 +1,23 @@
 package search;
 
-import datastructures.concrete.ChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-import misc.Searcher;
+import search.analyzers.IndexSnapshot;
 import search.analyzers.PageRankAnalyzer;
+import search.analyzers.PageRankIteration;
+import search.analyzers.QueryStats;
 import search.analyzers.TfIdfAnalyzer;
+import search.analyzers.TopKEvaluator;
 import search.misc.Bridge;
 import search.misc.exceptions.DataExtractionException;
 import search.models.Result;
 import search.models.Webpage;
+import search.models.WebpageSegment;
 import search.models.WebpageSummary;
 
 import java.io.IOException;
@@ -18,38 +25,165 @@ import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class SearchEngine {
     public static final double PAGE_RANK_DECAY = 0.85;
     public static final double PAGE_RANK_EPSILON = 0.0001;
     public static final int PAGE_RANK_ITERATION_LIMIT = 200;
 
-    private ISet<WebpageSummary> pages;
+    // By default, load and parse pages using one thread per core
+    public static final int DEFAULT_LOADER_THREADS = Runtime.getRuntime().availableProcessors();
+
+    // Name of the binary page segment we keep in the root of each data folder
+    public static final String SEGMENT_FILE_NAME = "pages.seg";
+
+    // Name of the file we keep the latest page ranks in, so the next run can start
+    // from them instead of from scratch
+    public static final String PAGE_RANK_FILE_NAME = "pageranks.dat";
+
+    // Name of the index snapshot we keep in the root of each data folder
+    public static final String SNAPSHOT_FILE_NAME = "index.snap";
+
+    private IDictionary<URI, WebpageSummary> pages;
     private TfIdfAnalyzer tfIdfAnalyzer;
     private PageRankAnalyzer pageRankAnalyzer;
+    private TopKEvaluator topKEvaluator;
+    // How long each stage of loading or building the index took, in seconds
+    private IList<KVPair<String, Double>> buildStageSeconds = new DynamicArrayList<>();
 
     public SearchEngine(String dataFolderName) {
+        this(dataFolderName, DEFAULT_LOADER_THREADS);
+    }
+
+    /**
+     * Indexes the given data folder, loading and parsing webpages and computing
+     * page ranks using 'loaderThreads' worker threads.
+     *
+     * If the folder holds an index snapshot that is newer than every webpage in it,
+     * we load that instead and skip indexing entirely.
+     */
+    public SearchEngine(String dataFolderName, int loaderThreads) {
+        if (loaderThreads < 1) {
+            throw new IllegalArgumentException("Need at least one loader thread, got " + loaderThreads);
+        }
+
+        Path root = Paths.get("data", dataFolderName);
+        Path[] files = this.listWebpageFiles(root);
+        Path snapshot = root.resolve(SNAPSHOT_FILE_NAME);
+        if (!this.loadSnapshot(snapshot, files)) {
+            this.buildIndex(root, files, loaderThreads);
+            try {
+                IndexSnapshot.save(snapshot, this.tfIdfAnalyzer, this.pageRankAnalyzer, this.pages, files.length);
+            } catch (DataExtractionException ex) {
+                // Not fatal: we'll just have to index everything again next time
+                System.out.println("Could not save index snapshot: " + ex.getMessage());
+            }
+        }
         long start = System.currentTimeMillis();
-        ISet<Webpage> webpages = this.collectWebpages(Paths.get("data", dataFolderName));
+        this.topKEvaluator = new TopKEvaluator(this.tfIdfAnalyzer, this::pageRankBoost);
+        this.recordStage("topk_bounds", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns how long each stage of loading or building the index took, in seconds,
+     * in the order they ran: "snapshot_load" if we loaded a snapshot, otherwise
+     * "collect_webpages", "tfidf" and "pagerank", and finally "topk_bounds".
+     */
+    public IList<KVPair<String, Double>> getBuildStageSeconds() {
+        return this.buildStageSeconds;
+    }
+
+    private void recordStage(String stage, long millis) {
+        this.buildStageSeconds.add(new KVPair<>(stage, millis / 1000.0));
+    }
+
+    /**
+     * Loads the index from the snapshot at 'snapshot', if it is up to date with the
+     * given webpage files. Returns 'true' on success.
+     */
+    private boolean loadSnapshot(Path snapshot, Path[] files) {
+        if (!IndexSnapshot.isFresh(snapshot, files)) {
+            return false;
+        }
+
+        long start = System.currentTimeMillis();
+        IndexSnapshot index;
+        try {
+            index = IndexSnapshot.load(snapshot);
+        } catch (DataExtractionException ex) {
+            System.out.println("Could not load index snapshot, rebuilding: " + ex.getMessage());
+            return false;
+        }
+        this.pages = index.getPages();
+        this.tfIdfAnalyzer = index.getTfIdfAnalyzer();
+        this.pageRankAnalyzer = index.getPageRankAnalyzer();
+        long end = System.currentTimeMillis() - start;
+        this.recordStage("snapshot_load", end);
+        System.out.println(String.format(
+                "Loaded index of %d pages from snapshot %s (%.3f sec)", this.pages.size(), snapshot, end / 1000.0));
+        return true;
+    }
+
+    private void buildIndex(Path root, Path[] files, int loaderThreads) {
+        long start = System.currentTimeMillis();
+        ISet<Webpage> webpages = this.collectWebpages(root, files, loaderThreads);
         long end = System.currentTimeMillis() - start;
-        System.out.println("Done loading pages (" + (end / 1000.0) + " sec)");
+        this.recordStage("collect_webpages", end);
+        System.out.println(String.format(
+                "Done loading %d pages using %d threads (%.3f sec, %.1f pages/sec)",
+                webpages.size(),
+                loaderThreads,
+                end / 1000.0,
+                webpages.size() * 1000.0 / Math.max(end, 1)));
 
         this.pages = this.extractWebpageSummaries(webpages);
         System.out.println("Done extracting");
 
         start = System.currentTimeMillis();
         this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
+        long tfIdfEnd = System.currentTimeMillis();
+        this.recordStage("tfidf", tfIdfEnd - start);
         this.pageRankAnalyzer = new PageRankAnalyzer(
                 webpages,
                 PAGE_RANK_DECAY,
                 PAGE_RANK_EPSILON,
-                PAGE_RANK_ITERATION_LIMIT);
+                PAGE_RANK_ITERATION_LIMIT,
+                loaderThreads,
+                this.loadPreviousRanks(root.resolve(PAGE_RANK_FILE_NAME)));
+        try {
+            this.pageRankAnalyzer.saveRanks(root.resolve(PAGE_RANK_FILE_NAME));
+        } catch (DataExtractionException ex) {
+            // Not fatal: we'll just compute page ranks from scratch next time
+            System.out.println("Could not save page ranks: " + ex.getMessage());
+        }
+        this.recordStage("pagerank", System.currentTimeMillis() - tfIdfEnd);
         end = System.currentTimeMillis() - start;
         System.out.println("Done indexing (" + (end / 1000.0) + " sec)");
+
+        IList<PageRankIteration> iterations = this.pageRankAnalyzer.getIterations();
+        System.out.println("PageRank ran " + iterations.size() + " iterations:");
+        int iteration = 1;
+        for (PageRankIteration stats : iterations) {
+            System.out.println("    " + iteration + ": " + stats);
+            iteration++;
+        }
     }
 
     public double computeScore(IList<String> query, URI uri) {
-        double tfIdf = this.tfIdfAnalyzer.computeRelevance(query, uri);
+        return this.tfIdfAnalyzer.computeRelevance(query, uri) * this.pageRankBoost(uri);
+    }
+
+    /**
+     * Returns the factor we multiply a page's TF-IDF score by to get its final score.
+     *
+     * getTopKResults(...) relies on the final score being the TF-IDF score times some
+     * per-page value, so keep that shape if you change this formula.
+     */
+    private double pageRankBoost(URI uri) {
         double pageRank = this.pageRankAnalyzer.computePageRank(uri);
 
         if (pageRank <= 0.0) {
@@ -79,44 +213,114 @@ public class SearchEngine {
         // but it's still a pretty ad-hoc approach. Feel free to adjust or
         // change this formula: we will be grading your TfIdfAnalyzer and
         // PageRankAnalyzer classes separately, but not this method.
-        return tfIdf * Math.sqrt(pageRank);
+        return Math.sqrt(pageRank);
     }
 
+    /**
+     * Returns the (at most) k highest-scoring pages for the given query, best first.
+     *
+     * Only pages containing at least one query word are considered: every other
+     * page has a TF-IDF relevance, and so a score, of zero.
+     */
     public IList<Result> getTopKResults(IList<String> query, int k) {
-        IList<Result> results = new DoubleLinkedList<>();
+        return this.getTopKResults(query, k, new QueryStats());
+    }
 
-        for (WebpageSummary summary: this.pages) {
-            double score = this.computeScore(query, summary.getUri());
-            results.add(new Result(summary, score));
+    /**
+     * Same as above, but also records where the time went in 'stats'.
+     */
+    public IList<Result> getTopKResults(IList<String> query, int k, QueryStats stats) {
+        IList<Result> results = new DoubleLinkedList<>();
+        for (KVPair<URI, Double> pair : this.topKEvaluator.findTopK(query, k, stats)) {
+            results.add(new Result(this.pages.get(pair.getKey()), pair.getValue()));
         }
+        return results;
+    }
 
-        IList<Result> topK = Searcher.topKSort(k, results);
+    private Path[] listWebpageFiles(Path root) {
+        // Walking the folder is cheap, but Files.walk() splits poorly across threads,
+        // so we list every file up front and then parse them in parallel.
+        try (Stream<Path> paths = Files.walk(root)) {
+            // Check the name first: it's free, while isRegularFile has to ask the disk
+            return paths
+                    .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
+                    .filter(Files::isRegularFile)
+                    .toArray(Path[]::new);
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not find given root folder", ex);
+        }
+    }
 
-        IList<Result> reversed = new DoubleLinkedList<>();
-        for (Result res : topK) {
-            reversed.insert(0, res);
+    private ISet<Webpage> collectWebpages(Path root, Path[] files, int loaderThreads) {
+        // Warm start: reuse the binary segment if nothing changed since it was written
+        Path segment = root.resolve(SEGMENT_FILE_NAME);
+        if (WebpageSegment.isFresh(segment, files)) {
+            System.out.println("Loading pages from segment " + segment);
+            try {
+                return WebpageSegment.load(segment);
+            } catch (DataExtractionException ex) {
+                // Not fatal: parse the pages again, and replace the segment below
+                System.out.println("Could not load page segment, re-parsing: " + ex.getMessage());
+            }
         }
 
-        return reversed;
+        ISet<Webpage> webpages = this.parseWebpages(files, loaderThreads);
+        try {
+            WebpageSegment.save(segment, webpages, files.length);
+        } catch (DataExtractionException ex) {
+            // Not fatal: we just won't get a fast warm start next time
+            System.out.println("Could not save page segment: " + ex.getMessage());
+        }
+        return webpages;
     }
 
-    private ISet<Webpage> collectWebpages(Path root) {
-        try {
-            return Files.walk(root)
-                    .filter(Files::isRegularFile)
-                    .filter(path -> path.toString().endsWith(".htm") || path.toString().endsWith(".html"))
+    private ISet<Webpage> parseWebpages(Path[] files, int loaderThreads) {
+        if (loaderThreads == 1) {
+            return Arrays.stream(files)
                     .map(Path::toUri)
                     .map(Webpage::load)
                     .collect(Bridge.toISet());
-        } catch (IOException ex) {
-            throw new DataExtractionException("Could not find given root folder", ex);
+        }
+
+        // A parallel stream runs on whichever ForkJoinPool it was started from,
+        // so starting it inside our own pool caps it at 'loaderThreads' workers.
+        ForkJoinPool pool = new ForkJoinPool(loaderThreads);
+        try {
+            return pool.submit(() -> Arrays.stream(files)
+                    .parallel()
+                    .map(Path::toUri)
+                    .map(Webpage::load)
+                    .collect(Bridge.toConcurrentISet())).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new DataExtractionException("Interrupted while loading webpages", ex);
+        } catch (ExecutionException ex) {
+            throw new DataExtractionException("Could not load webpages", ex.getCause());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Returns the page ranks saved by a previous run, or an empty dictionary if there
+     * aren't any we can use.
+     */
+    private IDictionary<URI, Double> loadPreviousRanks(Path path) {
+        if (!Files.isRegularFile(path)) {
+            return new ChainedHashDictionary<>();
+        }
+        try {
+            return PageRankAnalyzer.loadRanks(path);
+        } catch (DataExtractionException ex) {
+            System.out.println("Could not load previous page ranks: " + ex.getMessage());
+            return new ChainedHashDictionary<>();
         }
     }
 
-    private ISet<WebpageSummary> extractWebpageSummaries(ISet<Webpage> webpages) {
-        ISet<WebpageSummary> output = new ChainedHashSet<>();
+    private IDictionary<URI, WebpageSummary> extractWebpageSummaries(ISet<Webpage> webpages) {
+        IDictionary<URI, WebpageSummary> output = new ChainedHashDictionary<>(webpages.size() + 1);
         for (Webpage page : webpages) {
-            output.add(page.getSummary());
+            output.put(page.getUri(), page.getSummary());
         }
         return output;
     }
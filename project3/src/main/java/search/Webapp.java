@@ -1,16 +1,34 @@
 package search;
 
+import com.github.mustachejava.DefaultMustacheFactory;
+import com.github.mustachejava.Mustache;
+import com.github.mustachejava.MustacheFactory;
+import datastructures.concrete.Histogram;
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.LruCache;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
+import org.apache.commons.codec.digest.DigestUtils;
+import search.analyzers.QueryStats;
+import search.misc.ApiCursor;
+import search.misc.JsonWriter;
+import search.misc.PrometheusWriter;
 import search.misc.WordTokenizer;
+import search.misc.exceptions.OverloadedException;
 import search.models.Result;
-import spark.ModelAndView;
 import spark.Request;
 import spark.Response;
 import spark.Service;
-import spark.template.mustache.MustacheTemplateEngine;
 
+import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -29,10 +47,100 @@ public class Webapp {
      */
     private static final String TEMPLATE_FILES = "webapp/templates";
 
+    /**
+     * Every template in TEMPLATE_FILES. We compile them all once, when the webapp is
+     * created, so a broken template stops the webapp from starting instead of
+     * failing the first request that uses it.
+     */
+    private static final String[] TEMPLATE_NAMES = {"main.mustache", "search.mustache", "error.mustache"};
+
+    private static final String HTML_CONTENT_TYPE = "text/html; charset=utf-8";
+    private static final String JSON_CONTENT_TYPE = "application/json; charset=utf-8";
+
+    /**
+     * The number of queries whose results we keep around. Each entry holds at most
+     * MAX_CACHED_RESULTS results, which bounds the memory the cache can use.
+     */
+    public static final int RESULT_CACHE_SIZE = 1024;
+
+    /**
+     * How long cached results stay valid, in milliseconds. Reloading the index clears
+     * the cache anyway, so this only limits how stale an entry can get (0 = forever).
+     */
+    public static final long RESULT_CACHE_TTL_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * Queries asking for more results than this skip the cache, so that a handful of
+     * huge result lists can't take up most of its memory.
+     */
+    public static final int MAX_CACHED_RESULTS = 100;
+
+    /**
+     * The most results /api/search returns at once, whatever num_results asks for.
+     */
+    public static final int API_MAX_PAGE_SIZE = 100;
+
+    /**
+     * How far down the ranking /api/search lets clients page.
+     */
+    public static final int API_MAX_RESULTS = 1000;
+
+    /**
+     * How many results we rank when a client starts paging through a query. Later
+     * pages are cut from that same ranking instead of scoring the query again, as
+     * long as they don't go past its end.
+     */
+    public static final int API_RETAINED_RESULTS = 200;
+
+    /**
+     * The number of rankings we keep for clients paging through results, and how
+     * long (in milliseconds) we keep each one.
+     */
+    public static final int API_RANKING_CACHE_SIZE = 256;
+    public static final long API_RANKING_TTL_MILLIS = 10 * 60 * 1000;
+
+    /**
+     * The number of queries we score at once. Queries beyond that wait in a queue
+     * holding at most QUERY_QUEUE_SIZE of them, and a query not answered within
+     * QUERY_TIMEOUT_MILLIS of arriving gets "503 Service Unavailable".
+     */
+    public static final int QUERY_THREADS = Runtime.getRuntime().availableProcessors();
+    public static final int QUERY_QUEUE_SIZE = 64;
+    public static final long QUERY_TIMEOUT_MILLIS = 2000;
+
+    /**
+     * The bucket bounds /metrics reports our latency histograms with, in seconds,
+     * and the bounds for the number of documents scored per query.
+     */
+    private static final double[] LATENCY_BUCKETS = {
+        0.00001, 0.000025, 0.00005, 0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005,
+        0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10,
+    };
+    private static final double[] DOCUMENT_BUCKETS = {
+        1, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000, 25000, 50000, 100000,
+    };
+
     private final String siteName;
-    private final SearchEngine engine;
     private final Service http;
     private final int port;
+    private final LruCache<String, IList<Result>> resultCache;
+    private final LruCache<String, Ranking> rankings;
+    private final QueryExecutor queries;
+
+    // Where the time goes while answering queries, in nanoseconds (see QueryStats)
+    private final Histogram tokenizeNanos;
+    private final Histogram candidateNanos;
+    private final Histogram scoringNanos;
+    private final Histogram selectionNanos;
+    private final Histogram queryNanos;
+    private final Histogram documentsScored;
+    private final IDictionary<String, Mustache> templates;
+
+    // The home page never changes, so we render it once and send the same bytes
+    private final byte[] mainPage;
+    private final String mainPageEtag;
+
+    private volatile SearchEngine engine;
 
     /**
      * Creates a new instance of this class.
@@ -45,6 +153,21 @@ public class Webapp {
         this.engine = engine;
         this.siteName = siteName;
         this.port = port;
+        this.resultCache = new LruCache<>(RESULT_CACHE_SIZE, RESULT_CACHE_TTL_MILLIS);
+        this.rankings = new LruCache<>(API_RANKING_CACHE_SIZE, API_RANKING_TTL_MILLIS);
+        this.queries = new QueryExecutor(QUERY_THREADS, QUERY_QUEUE_SIZE, QUERY_TIMEOUT_MILLIS);
+        this.tokenizeNanos = new Histogram();
+        this.candidateNanos = new Histogram();
+        this.scoringNanos = new Histogram();
+        this.selectionNanos = new Histogram();
+        this.queryNanos = new Histogram();
+        this.documentsScored = new Histogram();
+        this.templates = compileTemplates();
+
+        Map<String, Object> model = new HashMap<>();
+        model.put("siteTitle", this.siteName);
+        this.mainPage = this.render("main.mustache", model).getBytes(StandardCharsets.UTF_8);
+        this.mainPageEtag = "\"" + DigestUtils.md5Hex(this.mainPage) + "\"";
 
         this.http = Service.ignite()
                 .staticFileLocation(STATIC_FILES)
@@ -52,6 +175,10 @@ public class Webapp {
         this.http.initExceptionHandler(this::handleFatalError);
         this.http.get("/", this::handleMain);
         this.http.get("/search", this::handleSearch);
+        this.http.get("/api/search", this::handleApiSearch);
+        this.http.get("/stats", this::handleStats);
+        this.http.get("/metrics", this::handleMetrics);
+        this.http.exception(OverloadedException.class, this::handleOverload);
         this.http.exception(Exception.class, this::handleError);
     }
 
@@ -62,27 +189,70 @@ public class Webapp {
         this.http.init();
     }
 
+    /**
+     * Stops running this website and frees its port.
+     */
+    public void stop() {
+        this.http.stop();
+        this.queries.close();
+    }
+
+    /**
+     * Starts answering queries using the given engine (for example, one built from a
+     * freshly reloaded index) and throws out every result cached from the old one.
+     */
+    public void reloadEngine(SearchEngine newEngine) {
+        synchronized (this.resultCache) {
+            this.engine = newEngine;
+            this.resultCache.clear();
+            this.rankings.clear();
+        }
+        System.out.println("Reloaded search engine; result caches cleared");
+    }
+
+    /**
+     * Returns the executor running our queries, whose counters show how often we
+     * turn queries away.
+     */
+    public QueryExecutor getQueryExecutor() {
+        return this.queries;
+    }
+
+    /**
+     * Returns the cache of query results, whose counters show how well it is sized.
+     */
+    public LruCache<String, IList<Result>> getResultCache() {
+        return this.resultCache;
+    }
+
     /**
      * Handles all incoming requests for our home page.
+     *
+     * Browsers must check back with us before reusing a copy they have stored, but
+     * if their copy's ETag still matches we answer "304 Not Modified" with no body.
      */
-    private String handleMain(Request req, Response res) {
-        Map<String, Object> model = new HashMap<>();
-        model.put("siteTitle", this.siteName);
+    private Object handleMain(Request req, Response res) {
+        res.header("ETag", this.mainPageEtag);
+        res.header("Cache-Control", "no-cache");
+        if (etagMatches(req.headers("If-None-Match"), this.mainPageEtag)) {
+            res.status(304);
+            return "";
+        }
 
-        return this.render("main.mustache", model);
+        res.type(HTML_CONTENT_TYPE);
+        return this.mainPage;
     }
 
     /**
      * Handles all incoming user queries.
      */
-    private String handleSearch(Request req, Response res) {
+    private String handleSearch(Request req, Response res) throws IOException {
         // Get search query
         String query = req.queryParams("query");
         int numResults = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
 
         // Perform core search
-        IList<String> queryTerms = WordTokenizer.extract(query);
-        IList<Result> results = this.engine.getTopKResults(queryTerms, numResults);
+        IList<Result> results = this.search(query, numResults);
 
         // Render results
         Map<String, Object> model = new HashMap<>();
@@ -90,7 +260,272 @@ public class Webapp {
         model.put("results", results);
         model.put("initialQuery", query);
 
-        return this.render("search.mustache", model);
+        return this.stream(res, "search.mustache", model);
+    }
+
+    /**
+     * Reports how the result cache is doing, as plain text.
+     */
+    private String handleStats(Request req, Response res) {
+        res.type("text/plain");
+        return "result cache: " + this.resultCache + "\n"
+                + "api rankings: " + this.rankings + "\n"
+                + "query executor: " + this.queries + "\n";
+    }
+
+    /**
+     * Reports our metrics in the Prometheus text format, for a Prometheus server to
+     * scrape. Query histograms only cover queries that missed the result caches.
+     */
+    private String handleMetrics(Request req, Response res) throws IOException {
+        res.type(PrometheusWriter.CONTENT_TYPE);
+        // Don't close the writer: that would close the response before Spark is done with it
+        PrometheusWriter metrics = new PrometheusWriter(
+                new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+
+        metrics.histogram("search_tokenize_seconds", "Time spent splitting queries into words.",
+                this.tokenizeNanos, LATENCY_BUCKETS, 1e-9);
+        metrics.histogram("search_candidate_generation_seconds",
+                "Time spent weighing query words and opening their posting lists.",
+                this.candidateNanos, LATENCY_BUCKETS, 1e-9);
+        metrics.histogram("search_scoring_seconds", "Time spent walking posting lists and scoring documents.",
+                this.scoringNanos, LATENCY_BUCKETS, 1e-9);
+        metrics.histogram("search_topk_selection_seconds", "Time spent taking the best documents out of the heap.",
+                this.selectionNanos, LATENCY_BUCKETS, 1e-9);
+        metrics.histogram("search_query_seconds", "Total time the search engine spent on each query.",
+                this.queryNanos, LATENCY_BUCKETS, 1e-9);
+        metrics.histogram("search_documents_scored", "Documents fully scored per query.",
+                this.documentsScored, DOCUMENT_BUCKETS, 1);
+
+        metrics.header("search_index_build_stage_seconds",
+                "Time each stage of loading or building the current index took.", "gauge");
+        for (KVPair<String, Double> stage : this.engine.getBuildStageSeconds()) {
+            metrics.sample("search_index_build_stage_seconds", "stage", stage.getKey(), stage.getValue());
+        }
+
+        writeCacheMetrics(metrics, "search_result_cache", this.resultCache);
+        writeCacheMetrics(metrics, "search_api_ranking_cache", this.rankings);
+
+        metrics.counter("search_queries_completed_total", "Queries answered by the query executor.",
+                this.queries.getCompleted());
+        metrics.counter("search_queries_rejected_total", "Queries turned away because the queue was full.",
+                this.queries.getRejected());
+        metrics.counter("search_queries_timed_out_total", "Queries given up on after missing their deadline.",
+                this.queries.getTimedOut());
+        metrics.gauge("search_query_queue_length", "Queries waiting for a worker.", this.queries.getQueueLength());
+
+        metrics.flush();
+        return "";
+    }
+
+    private static void writeCacheMetrics(PrometheusWriter metrics, String name, LruCache<?, ?> cache)
+            throws IOException {
+        metrics.counter(name + "_hits_total", "Lookups that found an entry.", cache.getHits());
+        metrics.counter(name + "_misses_total", "Lookups that found no live entry.", cache.getMisses());
+        metrics.counter(name + "_evictions_total", "Entries thrown out to make room.", cache.getEvictions());
+        metrics.counter(name + "_expirations_total", "Entries thrown out because they expired.",
+                cache.getExpirations());
+        metrics.gauge(name + "_entries", "Entries currently cached.", cache.size());
+    }
+
+    /**
+     * Answers queries from programs, in JSON, one page of results at a time.
+     *
+     * The first request passes 'query', and optionally 'num_results' (capped at
+     * API_MAX_PAGE_SIZE). The response looks like
+     *
+     *     {"query": "...", "offset": 0, "results": [{"rank": 1, "uri": "...",
+     *      "title": "...", "blurb": "...", "score": 1.5}, ...], "next_cursor": "..."}
+     *
+     * To get the next page, pass 'next_cursor' back as 'cursor' (plus 'num_results'
+     * if you like) instead of 'query'. 'next_cursor' is null on the last page.
+     *
+     * Results are written to the response as they are serialized.
+     */
+    private String handleApiSearch(Request req, Response res) throws IOException {
+        String query;
+        int offset;
+        int pageSize;
+        try {
+            pageSize = Integer.parseInt(req.queryParamOrDefault("num_results", "20"));
+            if (pageSize < 1) {
+                throw new IllegalArgumentException("num_results must be positive, got " + pageSize);
+            }
+            String cursor = req.queryParams("cursor");
+            if (cursor != null) {
+                ApiCursor decoded = ApiCursor.decode(cursor, API_MAX_RESULTS);
+                offset = decoded.offset;
+                query = decoded.query;
+            } else {
+                query = req.queryParams("query");
+                if (query == null) {
+                    throw new IllegalArgumentException("Need a 'query' or a 'cursor'");
+                }
+                offset = 0;
+            }
+        } catch (IllegalArgumentException ex) {
+            return apiError(res, 400, ex.getMessage());
+        }
+
+        int end = Math.min(offset + Math.min(pageSize, API_MAX_PAGE_SIZE), API_MAX_RESULTS);
+        Ranking ranking = this.rank(this.tokenize(query), end);
+        IList<Result> results = ranking.results;
+        boolean more = end < API_MAX_RESULTS && (results.size() > end || !ranking.complete);
+
+        res.type(JSON_CONTENT_TYPE);
+        // Don't close the writer: that would close the response before Spark is done with it
+        JsonWriter json = new JsonWriter(new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8));
+        json.beginObject();
+        json.name("query").value(query);
+        json.name("offset").value(offset);
+        json.name("results").beginArray();
+        for (int i = offset; i < end && i < results.size(); i++) {
+            Result result = results.get(i);
+            json.beginObject()
+                    .name("rank").value(i + 1)
+                    .name("uri").value(result.getUri().toString())
+                    .name("title").value(result.getTitle())
+                    .name("blurb").value(result.getBlurb())
+                    .name("score").value(result.getScore())
+                    .endObject();
+        }
+        json.endArray();
+        json.name("next_cursor");
+        if (more) {
+            json.value(new ApiCursor(end, query).encode());
+        } else {
+            json.nullValue();
+        }
+        json.endObject();
+        json.flush();
+        return "";
+    }
+
+    /**
+     * Returns a ranking of the results for the given (sorted) query terms that
+     * reaches at least 'end' results, unless there aren't that many. We reuse the
+     * ranking from an earlier page when it goes deep enough.
+     */
+    private Ranking rank(IList<String> sortedTerms, int end) {
+        String key = termsKey(sortedTerms);
+        Ranking ranking = this.rankings.get(key);
+        if (ranking != null && (ranking.complete || ranking.results.size() >= end)) {
+            return ranking;
+        }
+
+        // Rank well past the page asked for, so the next few pages are free
+        int depth = Math.max(end, API_RETAINED_RESULTS);
+        if (ranking != null) {
+            depth = Math.max(depth, 2 * ranking.results.size());
+        }
+        depth = Math.min(depth, API_MAX_RESULTS);
+
+        SearchEngine current = this.engine;
+        IList<Result> results = new DynamicArrayList<>(depth);
+        for (Result result : this.runQuery(current, sortedTerms, depth)) {
+            results.add(result);
+        }
+        ranking = new Ranking(results, results.size() < depth);
+        synchronized (this.resultCache) {
+            // Don't keep rankings from an engine that was replaced meanwhile
+            if (this.engine == current) {
+                this.rankings.put(key, ranking);
+            }
+        }
+        return ranking;
+    }
+
+    private static String apiError(Response res, int status, String message) {
+        res.status(status);
+        res.type(JSON_CONTENT_TYPE);
+        StringWriter out = new StringWriter();
+        try {
+            new JsonWriter(out).beginObject().name("error").value(message).endObject();
+        } catch (IOException ex) {
+            // Can't happen: StringWriters don't throw
+            throw new IllegalStateException(ex);
+        }
+        return out.toString();
+    }
+
+    /**
+     * Returns the top results for the given query, from the cache if we can.
+     * Only cache misses go through the query executor.
+     */
+    private IList<Result> search(String query, int numResults) {
+        // TF-IDF ignores word order, so queries with the same words in a different
+        // order share a cache entry. We also hand the engine the sorted words, so a
+        // cached answer is always exactly what the engine would have returned.
+        IList<String> queryTerms = this.tokenize(query);
+        if (numResults > MAX_CACHED_RESULTS) {
+            return this.runQuery(this.engine, queryTerms, numResults);
+        }
+
+        String key = termsKey(queryTerms) + "#" + numResults;
+        IList<Result> results = this.resultCache.get(key);
+        if (results == null) {
+            SearchEngine current = this.engine;
+            results = this.runQuery(current, queryTerms, numResults);
+            synchronized (this.resultCache) {
+                // Don't cache results from an engine that was replaced meanwhile
+                if (this.engine == current) {
+                    this.resultCache.put(key, results);
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Splits the query into its words, sorted.
+     */
+    private IList<String> tokenize(String query) {
+        long start = System.nanoTime();
+        IList<String> terms = sortedTerms(WordTokenizer.extract(query));
+        this.tokenizeNanos.record(System.nanoTime() - start);
+        return terms;
+    }
+
+    /**
+     * Scores the query on the query executor, and records where the time went.
+     */
+    private IList<Result> runQuery(SearchEngine engine, IList<String> queryTerms, int numResults) {
+        return this.queries.execute(() -> {
+            QueryStats stats = new QueryStats();
+            long start = System.nanoTime();
+            IList<Result> results = engine.getTopKResults(queryTerms, numResults, stats);
+            this.queryNanos.record(System.nanoTime() - start);
+            this.candidateNanos.record(stats.getCandidateNanos());
+            this.scoringNanos.record(stats.getScoringNanos());
+            this.selectionNanos.record(stats.getSelectionNanos());
+            this.documentsScored.record(stats.getDocumentsScored());
+            return results;
+        });
+    }
+
+    private static IList<String> sortedTerms(IList<String> terms) {
+        String[] sorted = new String[terms.size()];
+        int i = 0;
+        for (String term : terms) {
+            sorted[i] = term;
+            i++;
+        }
+        Arrays.sort(sorted);
+
+        IList<String> out = new DynamicArrayList<>(sorted.length);
+        for (String term : sorted) {
+            out.add(term);
+        }
+        return out;
+    }
+
+    private static String termsKey(IList<String> sortedTerms) {
+        // Terms never contain spaces, so they can't run into each other
+        StringBuilder key = new StringBuilder();
+        for (String term : sortedTerms) {
+            key.append(term).append(' ');
+        }
+        return key.toString();
     }
 
     /**
@@ -124,6 +559,21 @@ public class Webapp {
         ex.printStackTrace();
     }
 
+    /**
+     * Handles queries we were too busy to answer, by asking the client to try again
+     * in a moment.
+     */
+    private void handleOverload(OverloadedException ex, Request req, Response res) {
+        res.status(503);
+        res.header("Retry-After", "1");
+        if (req.pathInfo().startsWith("/api/")) {
+            res.body(apiError(res, 503, ex.getMessage()));
+        } else {
+            res.type("text/plain; charset=utf-8");
+            res.body("The search engine is too busy right now. Please try again in a moment.\n");
+        }
+    }
+
     /**
      * Handles exceptions raised while the webapp is running.
      */
@@ -145,8 +595,71 @@ public class Webapp {
         res.body(this.render("error.mustache", model));
     }
 
+    /**
+     * Renders the given template into a string.
+     */
     private String render(String templateName, Map<String, Object> params) {
-        return new MustacheTemplateEngine(TEMPLATE_FILES).render(
-                new ModelAndView(params, templateName));
+        StringWriter out = new StringWriter();
+        this.templates.get(templateName).execute(out, params);
+        return out.toString();
+    }
+
+    /**
+     * Renders the given template straight into the response, without building the
+     * whole page in memory first, and returns the (empty) body for Spark to add after it.
+     *
+     * Once we've started writing, the status can no longer change, so anything that
+     * might fail should happen before calling this.
+     */
+    private String stream(Response res, String templateName, Map<String, Object> params) throws IOException {
+        res.type(HTML_CONTENT_TYPE);
+        // Don't close 'out': that would close the response before Spark is done with it
+        Writer out = new OutputStreamWriter(res.raw().getOutputStream(), StandardCharsets.UTF_8);
+        this.templates.get(templateName).execute(out, params);
+        out.flush();
+        return "";
+    }
+
+    private static IDictionary<String, Mustache> compileTemplates() {
+        MustacheFactory factory = new DefaultMustacheFactory(TEMPLATE_FILES);
+        IDictionary<String, Mustache> templates = new ChainedHashDictionary<>();
+        for (String name : TEMPLATE_NAMES) {
+            templates.put(name, factory.compile(name));
+        }
+        return templates;
+    }
+
+    /**
+     * Returns 'true' if the given If-None-Match header lists 'etag' (or is "*").
+     */
+    private static boolean etagMatches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            // A weak ETag matches a strong one with the same value for GET requests
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The best results for a query, best first, kept so clients can page through them.
+     */
+    private static class Ranking {
+        public final IList<Result> results;
+        // True if no other pages match the query
+        public final boolean complete;
+
+        public Ranking(IList<Result> results, boolean complete) {
+            this.results = results;
+            this.complete = complete;
+        }
     }
 }
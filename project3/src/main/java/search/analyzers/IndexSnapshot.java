@@ -0,0 +1,219 @@
+package search.analyzers;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import search.misc.BinaryFiles;
+import search.misc.exceptions.DataExtractionException;
+import search.models.WebpageSegment;
+import search.models.WebpageSummary;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A finished search index saved to a single binary file, so the search engine can
+ * start answering queries without loading any webpages or computing anything.
+ *
+ * A snapshot holds everything queries need: the term dictionary, the IDF score of
+ * every term, the inverted index (which doubles as every document's TF-IDF vector, see
+ * TfIdfAnalyzer), the norm and page rank of every document, and the summary shown
+ * for each result. It is memory-mapped when loading, and the posting lists are
+ * bulk-copied straight out of the mapping into arrays.
+ *
+ * File layout (all integers are 4-byte big-endian, all doubles are 8-byte big-endian,
+ * and all strings are an integer byte length followed by that many bytes of UTF-8):
+ *
+ *   header:     MAGIC, VERSION, source file count, document count, term count
+ *   documents:  for each document, in ID order: URI, title, blurb, norm, page rank
+ *   terms:      for each term, in term ID order: the term, its IDF score, its
+ *               posting count
+ *   postings:   for each term, in the same order: 'posting count' document IDs,
+ *               then 'posting count' weights
+ *
+ * Since terms are stored in ID order, the term table doubles as the term dictionary:
+ * loading it gives every term the same ID it had when the snapshot was saved.
+ *
+ * The header starts the same way as a WebpageSegment's, so WebpageSegment.isFresh(...)
+ * can decide whether a snapshot is stale.
+ */
+public class IndexSnapshot {
+    private static final int MAGIC = 0x49445853; // "IDXS"
+    private static final int VERSION = 1;
+
+    private TfIdfAnalyzer tfIdfAnalyzer;
+    private PageRankAnalyzer pageRankAnalyzer;
+    private IDictionary<URI, WebpageSummary> pages;
+
+    private IndexSnapshot(TfIdfAnalyzer tfIdfAnalyzer,
+                          PageRankAnalyzer pageRankAnalyzer,
+                          IDictionary<URI, WebpageSummary> pages) {
+        this.tfIdfAnalyzer = tfIdfAnalyzer;
+        this.pageRankAnalyzer = pageRankAnalyzer;
+        this.pages = pages;
+    }
+
+    public TfIdfAnalyzer getTfIdfAnalyzer() {
+        return this.tfIdfAnalyzer;
+    }
+
+    public PageRankAnalyzer getPageRankAnalyzer() {
+        return this.pageRankAnalyzer;
+    }
+
+    /**
+     * Returns the summary of every indexed page.
+     */
+    public IDictionary<URI, WebpageSummary> getPages() {
+        return this.pages;
+    }
+
+    /**
+     * Returns 'true' if the snapshot at 'snapshotPath' exists, was built from exactly
+     * 'sourceFiles.length' files, and is newer than every one of them.
+     */
+    public static boolean isFresh(Path snapshotPath, Path[] sourceFiles) {
+        return WebpageSegment.isFresh(snapshotPath, sourceFiles, MAGIC, VERSION);
+    }
+
+    /**
+     * Writes a snapshot of the given index to 'snapshotPath', replacing any existing one
+     * (see BinaryFiles.writeAtomically(...)).
+     *
+     * @param pages            the summary of every page the analyzers were built from
+     * @param sourceFileCount  the number of files the pages were loaded from; used by isFresh(...)
+     */
+    public static void save(Path snapshotPath,
+                            TfIdfAnalyzer tfIdfAnalyzer,
+                            PageRankAnalyzer pageRankAnalyzer,
+                            IDictionary<URI, WebpageSummary> pages,
+                            int sourceFileCount) {
+        TermDictionary terms = tfIdfAnalyzer.getTermDictionary();
+
+        BinaryFiles.writeAtomically(snapshotPath, "index snapshot", out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sourceFileCount);
+            out.writeInt(tfIdfAnalyzer.getDocumentCount());
+            out.writeInt(terms.size());
+
+            for (int docId = 0; docId < tfIdfAnalyzer.getDocumentCount(); docId++) {
+                URI uri = tfIdfAnalyzer.getDocument(docId);
+                WebpageSummary summary = pages.get(uri);
+                BinaryFiles.writeString(out, uri.toString());
+                BinaryFiles.writeString(out, summary.getTitle());
+                BinaryFiles.writeString(out, summary.getBlurb());
+                out.writeDouble(tfIdfAnalyzer.getDocumentNorm(docId));
+                out.writeDouble(pageRankAnalyzer.computePageRank(uri));
+            }
+
+            for (int termId = 0; termId < terms.size(); termId++) {
+                PostingList postings = tfIdfAnalyzer.getPostings(termId);
+                BinaryFiles.writeString(out, terms.getTerm(termId));
+                out.writeDouble(tfIdfAnalyzer.getIdfScore(termId));
+                out.writeInt(postings == null ? 0 : postings.size());
+            }
+            for (int termId = 0; termId < terms.size(); termId++) {
+                PostingList postings = tfIdfAnalyzer.getPostings(termId);
+                if (postings == null) {
+                    continue;
+                }
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeInt(postings.getDocId(i));
+                }
+                for (int i = 0; i < postings.size(); i++) {
+                    out.writeDouble(postings.getWeight(i));
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads the snapshot at 'snapshotPath'.
+     */
+    public static IndexSnapshot load(Path snapshotPath) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(snapshotPath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not open index snapshot " + snapshotPath, ex);
+        }
+
+        try {
+            return read(buffer, snapshotPath);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            // A truncated or damaged file: whatever length or count we tripped over was garbage
+            throw new DataExtractionException("Corrupt index snapshot " + snapshotPath, ex);
+        }
+    }
+
+    private static IndexSnapshot read(ByteBuffer buffer, Path snapshotPath) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new DataExtractionException("Not an index snapshot (or an unsupported version): " + snapshotPath);
+        }
+        buffer.getInt(); // source file count: only used by isFresh(...)
+        int documentCount = buffer.getInt();
+        int termCount = buffer.getInt();
+        if (documentCount < 0 || termCount < 0 || (long) documentCount + termCount > buffer.remaining()) {
+            // Checked up front so a garbage count can't make us allocate huge arrays
+            throw new DataExtractionException("Corrupt index snapshot " + snapshotPath);
+        }
+
+        URI[] documents = new URI[documentCount];
+        double[] norms = new double[documentCount];
+        IDictionary<URI, Double> ranks = new ChainedHashDictionary<>((int) (documentCount / 0.75) + 1, 0.75);
+        IDictionary<URI, WebpageSummary> pages = new ChainedHashDictionary<>(
+                (int) (documentCount / 0.75) + 1, 0.75);
+        for (int docId = 0; docId < documentCount; docId++) {
+            URI uri = URI.create(BinaryFiles.readString(buffer));
+            String title = BinaryFiles.readString(buffer);
+            String blurb = BinaryFiles.readString(buffer);
+            documents[docId] = uri;
+            norms[docId] = buffer.getDouble();
+            ranks.put(uri, buffer.getDouble());
+            pages.put(uri, new WebpageSummary(uri, title, blurb));
+        }
+
+        String[] terms = new String[termCount];
+        int[] postingCounts = new int[termCount];
+        double[] idfScores = new double[termCount];
+        for (int i = 0; i < termCount; i++) {
+            terms[i] = BinaryFiles.readString(buffer);
+            idfScores[i] = buffer.getDouble();
+            postingCounts[i] = buffer.getInt();
+        }
+
+        PostingList[] index = new PostingList[termCount];
+        for (int i = 0; i < termCount; i++) {
+            int count = postingCounts[i];
+            if (count == 0) {
+                continue;
+            }
+            if (count < 0 || (long) count * 12 > buffer.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            int[] docIds = new int[count];
+            buffer.asIntBuffer().get(docIds);
+            buffer.position(buffer.position() + count * 4);
+            double[] weights = new double[count];
+            buffer.asDoubleBuffer().get(weights);
+            buffer.position(buffer.position() + count * 8);
+            if (docIds[0] < 0 || docIds[count - 1] >= documentCount) {
+                throw new DataExtractionException("Corrupt index snapshot " + snapshotPath);
+            }
+            index[i] = new PostingList(docIds, weights);
+        }
+
+        return new IndexSnapshot(
+                new TfIdfAnalyzer(new TermDictionary(terms), idfScores, documents, norms, index),
+                new PageRankAnalyzer(ranks),
+                pages);
+    }
+}
@@ -0,0 +1,112 @@
+package search.analyzers;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+
+import java.net.URI;
+
+/**
+ * A directed graph compiled into compressed sparse row (CSR) form, indexed by
+ * incoming edges.
+ *
+ * Every vertex is given a dense integer ID. The sources of the edges pointing at
+ * vertex v are stored in sources[offsets[v]] through sources[offsets[v + 1] - 1],
+ * so visiting every edge is a single pass over two int arrays with no hashing.
+ * Each vertex's out-degree is stored separately.
+ *
+ * Storing incoming rather than outgoing edges lets PageRank "pull" each vertex's
+ * new rank from its sources, so every vertex is written by exactly one loop iteration.
+ */
+public class LinkGraph {
+    private URI[] vertices;
+    private int[] offsets;
+    private int[] sources;
+    private int[] outDegrees;
+
+    /**
+     * Compiles a graph in adjacency list form, mapping each vertex to the vertices it
+     * links to. Every link must point at a vertex that is also a key of 'graph'.
+     */
+    public LinkGraph(IDictionary<URI, ISet<URI>> graph) {
+        int numVertices = graph.size();
+        this.vertices = new URI[numVertices];
+        IDictionary<URI, Integer> ids = new ChainedHashDictionary<>((int) (numVertices / 0.75) + 1, 0.75);
+        int id = 0;
+        for (KVPair<URI, ISet<URI>> pair : graph) {
+            this.vertices[id] = pair.getKey();
+            ids.put(pair.getKey(), id);
+            id++;
+        }
+
+        // First pass: count the in-degree and out-degree of every vertex
+        this.outDegrees = new int[numVertices];
+        this.offsets = new int[numVertices + 1];
+        int[][] targets = new int[numVertices][];
+        for (int source = 0; source < numVertices; source++) {
+            ISet<URI> links = graph.get(this.vertices[source]);
+            targets[source] = new int[links.size()];
+            int i = 0;
+            for (URI link : links) {
+                int target = ids.get(link);
+                targets[source][i] = target;
+                this.offsets[target + 1]++;
+                i++;
+            }
+            this.outDegrees[source] = links.size();
+        }
+        for (int v = 0; v < numVertices; v++) {
+            this.offsets[v + 1] += this.offsets[v];
+        }
+
+        // Second pass: place each edge in its target's slice of 'sources'
+        this.sources = new int[this.offsets[numVertices]];
+        int[] next = new int[numVertices];
+        System.arraycopy(this.offsets, 0, next, 0, numVertices);
+        for (int source = 0; source < numVertices; source++) {
+            for (int target : targets[source]) {
+                this.sources[next[target]] = source;
+                next[target]++;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of vertices.
+     */
+    public int size() {
+        return this.vertices.length;
+    }
+
+    /**
+     * Returns the URI of the vertex with the given ID.
+     */
+    public URI getVertex(int id) {
+        return this.vertices[id];
+    }
+
+    /**
+     * Returns the number of edges leaving the vertex with the given ID.
+     */
+    public int getOutDegree(int id) {
+        return this.outDegrees[id];
+    }
+
+    /**
+     * Returns the index in getSources() of the first edge pointing at the vertex
+     * with the given ID. The edges pointing at vertex v end just before getOffset(v + 1).
+     *
+     * Precondition: 0 <= id <= size()
+     */
+    public int getOffset(int id) {
+        return this.offsets[id];
+    }
+
+    /**
+     * Returns the source vertex of the edge at the given index.
+     */
+    public int getSource(int index) {
+        return this.sources[index];
+    }
+}
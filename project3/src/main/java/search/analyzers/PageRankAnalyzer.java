@@ -1,19 +1,46 @@
 package search.analyzers;
 
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-import misc.exceptions.NotYetImplementedException;
+import search.misc.BinaryFiles;
+import search.misc.exceptions.DataExtractionException;
 import search.models.Webpage;
 
+import java.io.IOException;
 import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 /**
  * This class is responsible for computing the 'page rank' of all available webpages.
  * If a webpage has many different links to it, it should have a higher page rank.
  * See the spec for more details.
+ *
+ * The graph is built in adjacency list form as described in the spec, then compiled
+ * into a LinkGraph so each iteration is a tight loop over primitive arrays.
  */
 public class PageRankAnalyzer {
+    // When running in parallel, split the vertices into this many chunks per thread
+    // so a thread that finishes early can pick up another chunk
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    private static final int RANKS_MAGIC = 0x50524E4B; // "PRNK"
+    private static final int RANKS_VERSION = 1;
+
     private IDictionary<URI, Double> pageRanks;
+    private IList<PageRankIteration> iterations;
 
     /**
      * Computes a graph representing the internet and computes the page rank of all
@@ -28,23 +55,62 @@ public class PageRankAnalyzer {
      *                  page rank never converges.
      */
     public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
+        this(webpages, decay, epsilon, limit, 1);
+    }
+
+    /**
+     * Same as above, but spreads each iteration across 'threads' worker threads.
+     *
+     * Every thread computes the new ranks of its own range of pages by reading the
+     * old ranks of the pages linking to them, so the threads never write to the same
+     * memory, and the results are the same as with a single thread up to rounding.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit, int threads) {
+        this(webpages, decay, epsilon, limit, threads, new ChainedHashDictionary<>());
+    }
+
+    /**
+     * Same as above, but starts iterating from 'previousRanks' (for example, ranks loaded
+     * with loadRanks(...) from an earlier run) instead of giving every page the same rank.
+     *
+     * Pages missing from 'previousRanks' start with the usual rank of 1/N, and ranks of
+     * pages that no longer exist are ignored. When only a small part of the graph has
+     * changed since 'previousRanks' were computed, the starting ranks are already close
+     * to the final ones and far fewer iterations are needed.
+     */
+    public PageRankAnalyzer(ISet<Webpage> webpages, double decay, double epsilon, int limit, int threads,
+                            IDictionary<URI, Double> previousRanks) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
 
         // Step 1: Make a graph representing the 'internet'
-        //IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
+        IDictionary<URI, ISet<URI>> graph = this.makeGraph(webpages);
 
         // Step 2: Use this graph to compute the page rank for each webpage
-        //this.pageRanks = this.makePageRanks(graph, decay, limit, epsilon);
+        this.iterations = new DoubleLinkedList<>();
+        LinkGraph links = new LinkGraph(graph);
+        double[] initialRanks = makeInitialRanks(links, previousRanks);
+        double[] ranks = this.makePageRanks(links, initialRanks, decay, limit, epsilon, threads);
+
+        this.pageRanks = new ChainedHashDictionary<>((int) (links.size() / 0.75) + 1, 0.75);
+        for (int v = 0; v < links.size(); v++) {
+            this.pageRanks.put(links.getVertex(v), ranks[v]);
+        }
 
         // Note: we don't store the graph as a field: once we've computed the
         // page ranks, we no longer need it!
     }
 
+    /**
+     * Restores an analyzer from ranks computed earlier, without iterating at all.
+     * The dictionary is used directly, not copied.
+     */
+    public PageRankAnalyzer(IDictionary<URI, Double> pageRanks) {
+        this.pageRanks = pageRanks;
+        this.iterations = new DoubleLinkedList<>();
+    }
+
     /**
      * This method converts a set of webpages into an unweighted, directed graph,
      * in adjacency list form.
@@ -57,13 +123,51 @@ public class PageRankAnalyzer {
      * entirely "self-contained".
      */
     private IDictionary<URI, ISet<URI>> makeGraph(ISet<Webpage> webpages) {
-        throw new NotYetImplementedException();
+        ISet<URI> uris = new ChainedHashSet<>((int) (webpages.size() / 0.75) + 1, 0.75, false);
+        for (Webpage page : webpages) {
+            uris.add(page.getUri());
+        }
+
+        IDictionary<URI, ISet<URI>> graph = new ChainedHashDictionary<>((int) (webpages.size() / 0.75) + 1, 0.75);
+        for (Webpage page : webpages) {
+            URI uri = page.getUri();
+            ISet<URI> edges = new ChainedHashSet<>();
+            for (URI link : page.getLinks()) {
+                // Ignore self-loops and links leaving the graph
+                if (!link.equals(uri) && uris.contains(link)) {
+                    edges.add(link);
+                }
+            }
+            graph.put(uri, edges);
+        }
+        return graph;
+    }
+
+    /**
+     * Returns the ranks to start iterating from, indexed by vertex ID: the previous rank
+     * of each page if we have one, and 1/N otherwise, scaled so they add up to 1.
+     */
+    private static double[] makeInitialRanks(LinkGraph graph, IDictionary<URI, Double> previousRanks) {
+        int numVertices = graph.size();
+        double[] ranks = new double[numVertices];
+        double total = 0.0;
+        for (int v = 0; v < numVertices; v++) {
+            ranks[v] = previousRanks.getOrDefault(graph.getVertex(v), 1.0 / numVertices);
+            total += ranks[v];
+        }
+        for (int v = 0; v < numVertices; v++) {
+            ranks[v] /= total;
+        }
+        return ranks;
     }
 
     /**
-     * Computes the page ranks for all webpages in the graph.
+     * Computes the page ranks for all webpages in the graph, starting from 'initialRanks',
+     * and returns them indexed by vertex ID. Records statistics about every iteration in
+     * 'this.iterations'.
      *
-     * Precondition: assumes 'this.graphs' has previously been initialized.
+     * A page with no outgoing links is treated as if it linked to every page in the
+     * graph, including itself.
      *
      * @param decay     Represents the "decay" factor when computing page rank (see spec).
      * @param epsilon   When the difference in page ranks is less then or equal to this number,
@@ -71,22 +175,232 @@ public class PageRankAnalyzer {
      * @param limit     The maximum number of iterations we spend computing page rank. This value
      *                  is meant as a safety valve to prevent us from infinite looping in case our
      *                  page rank never converges.
+     * @param threads   The number of worker threads to use.
      */
-    private IDictionary<URI, Double> makePageRanks(IDictionary<URI, ISet<URI>> graph,
-                                                   double decay,
-                                                   int limit,
-                                                   double epsilon) {
+    private double[] makePageRanks(LinkGraph graph, double[] initialRanks,
+                                   double decay, int limit, double epsilon, int threads) {
+        int numVertices = graph.size();
+        if (numVertices == 0) {
+            return new double[0];
+        }
+
         // Step 1: The initialize step should go here
+        double[] oldRanks = initialRanks;
+        double[] newRanks = new double[numVertices];
+        double[] shares = new double[numVertices];
 
-        for (int i = 0; i < limit; i++) {
-            // Step 2: The update step should go here
+        // Each chunk of vertices is handled by one task and reports its results in
+        // its own slot of these arrays, so no two tasks ever write to the same place
+        int[] bounds = partition(graph, threads == 1 ? 1 : threads * CHUNKS_PER_THREAD);
+        int numChunks = bounds.length - 1;
+        double[] chunkDanglingRanks = new double[numChunks];
+        double[] chunkL1Deltas = new double[numChunks];
+        double[] chunkMaxDeltas = new double[numChunks];
+
+        ForkJoinPool pool = threads == 1 ? null : new ForkJoinPool(threads);
+        try {
+            for (int i = 0; i < limit; i++) {
+                long start = System.nanoTime();
+
+                // Step 2: The update step should go here
+                //
+                // Each page passes 'decay' times its rank on, split evenly between the
+                // pages it links to. Pages without links split theirs between every
+                // page, which is the same as adding it to the base rank of every page.
+                double[] currentRanks = oldRanks;
+                runChunks(pool, numChunks, chunk -> chunkDanglingRanks[chunk] = computeShares(
+                        graph, decay, currentRanks, shares, bounds[chunk], bounds[chunk + 1]));
+
+                double danglingRank = 0.0;
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    danglingRank += chunkDanglingRanks[chunk];
+                }
+                double base = (1.0 - decay) / numVertices + decay * danglingRank / numVertices;
+
+                double[] nextRanks = newRanks;
+                runChunks(pool, numChunks, chunk -> pullRanks(
+                        graph, base, shares, currentRanks, nextRanks, bounds[chunk], bounds[chunk + 1],
+                        chunk, chunkL1Deltas, chunkMaxDeltas));
+
+                double l1Delta = 0.0;
+                double maxDelta = 0.0;
+                for (int chunk = 0; chunk < numChunks; chunk++) {
+                    l1Delta += chunkL1Deltas[chunk];
+                    maxDelta = Math.max(maxDelta, chunkMaxDeltas[chunk]);
+                }
+
+                oldRanks = nextRanks;
+                newRanks = currentRanks;
+                this.iterations.add(new PageRankIteration(l1Delta, maxDelta, System.nanoTime() - start));
+
+                // Step 3: the convergence step should go here.
+                // Return early if we've converged.
+                if (maxDelta <= epsilon) {
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return oldRanks;
+    }
+
+    /**
+     * Sets shares[u] to the rank vertex u passes along each of its links, for every
+     * vertex u in [from, to). Returns the total rank of the dangling vertices in that range.
+     */
+    private static double computeShares(LinkGraph graph, double decay, double[] ranks, double[] shares,
+                                        int from, int to) {
+        double danglingRank = 0.0;
+        for (int u = from; u < to; u++) {
+            int outDegree = graph.getOutDegree(u);
+            if (outDegree == 0) {
+                danglingRank += ranks[u];
+                shares[u] = 0.0;
+            } else {
+                shares[u] = decay * ranks[u] / outDegree;
+            }
+        }
+        return danglingRank;
+    }
+
+    /**
+     * Computes the new rank of every vertex in [from, to) by pulling shares along its
+     * incoming edges, and records how much those ranks changed in slot 'chunk' of
+     * 'l1Deltas' and 'maxDeltas'.
+     */
+    private static void pullRanks(LinkGraph graph, double base, double[] shares,
+                                  double[] oldRanks, double[] newRanks, int from, int to,
+                                  int chunk, double[] l1Deltas, double[] maxDeltas) {
+        double l1Delta = 0.0;
+        double maxDelta = 0.0;
+        for (int v = from; v < to; v++) {
+            double rank = base;
+            int end = graph.getOffset(v + 1);
+            for (int e = graph.getOffset(v); e < end; e++) {
+                rank += shares[graph.getSource(e)];
+            }
+            newRanks[v] = rank;
+
+            double delta = Math.abs(rank - oldRanks[v]);
+            l1Delta += delta;
+            maxDelta = Math.max(maxDelta, delta);
+        }
+        l1Deltas[chunk] = l1Delta;
+        maxDeltas[chunk] = maxDelta;
+    }
+
+    /**
+     * Splits the vertices into (at most) 'numChunks' contiguous ranges with roughly the
+     * same number of incoming edges each. Chunk c covers [bounds[c], bounds[c + 1]).
+     *
+     * In-degrees on the web follow a power law, so splitting by vertex count alone
+     * would leave whichever thread gets the popular pages doing most of the work.
+     */
+    private static int[] partition(LinkGraph graph, int numChunks) {
+        int numVertices = graph.size();
+        numChunks = Math.max(1, Math.min(numChunks, numVertices));
+
+        // Count one unit of work per vertex as well as per edge
+        long totalWork = (long) graph.getOffset(numVertices) + numVertices;
+        int[] bounds = new int[numChunks + 1];
+        int chunk = 1;
+        for (int v = 0; v < numVertices && chunk < numChunks; v++) {
+            long workSoFar = (long) graph.getOffset(v + 1) + v + 1;
+            if (workSoFar * numChunks >= totalWork * chunk) {
+                bounds[chunk] = v + 1;
+                chunk++;
+            }
+        }
+        // Any chunks we didn't fill are left empty
+        for (; chunk <= numChunks; chunk++) {
+            bounds[chunk] = numVertices;
+        }
+        return bounds;
+    }
+
+    /**
+     * Runs 'task' once for every chunk in [0, numChunks), in parallel on 'pool', or
+     * serially if 'pool' is null. Returns once every chunk is done.
+     */
+    private static void runChunks(ForkJoinPool pool, int numChunks, IntConsumer task) {
+        if (pool == null) {
+            for (int chunk = 0; chunk < numChunks; chunk++) {
+                task.accept(chunk);
+            }
+            return;
+        }
+
+        // A parallel stream runs on whichever ForkJoinPool it was started from
+        try {
+            pool.submit(() -> IntStream.range(0, numChunks).parallel().forEach(task)).get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while computing page ranks", ex);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Could not compute page ranks", ex.getCause());
+        }
+    }
+
+    /**
+     * Returns statistics about each iteration of the most recent page rank computation,
+     * in order.
+     */
+    public IList<PageRankIteration> getIterations() {
+        return this.iterations;
+    }
+
+    /**
+     * Writes every page's rank to the file at 'path', replacing any existing file (see
+     * BinaryFiles.writeAtomically(...)), so a later run can pass them to the constructor
+     * using loadRanks(...).
+     */
+    public void saveRanks(Path path) {
+        BinaryFiles.writeAtomically(path, "page ranks", out -> {
+            out.writeInt(RANKS_MAGIC);
+            out.writeInt(RANKS_VERSION);
+            out.writeInt(this.pageRanks.size());
+            for (KVPair<URI, Double> pair : this.pageRanks) {
+                BinaryFiles.writeString(out, pair.getKey().toString());
+                out.writeDouble(pair.getValue());
+            }
+        });
+    }
+
+    /**
+     * Reads ranks written by saveRanks(...).
+     */
+    public static IDictionary<URI, Double> loadRanks(Path path) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not open page ranks " + path, ex);
+        }
 
-            // Step 3: the convergence step should go here.
-            // Return early if we've converged.
-            
-            throw new NotYetImplementedException();
+        try {
+            if (buffer.getInt() != RANKS_MAGIC || buffer.getInt() != RANKS_VERSION) {
+                throw new DataExtractionException("Not a page rank file (or an unsupported version): " + path);
+            }
+            int count = buffer.getInt();
+            // Every rank takes at least a string length and a double
+            if (count < 0 || (long) count * (4 + 8) > buffer.remaining()) {
+                // Checked up front so a garbage count can't make us allocate a huge dictionary
+                throw new DataExtractionException("Corrupt page ranks " + path);
+            }
+            IDictionary<URI, Double> ranks = new ChainedHashDictionary<>((int) (count / 0.75) + 1, 0.75);
+            for (int i = 0; i < count; i++) {
+                URI uri = URI.create(BinaryFiles.readString(buffer));
+                ranks.put(uri, buffer.getDouble());
+            }
+            return ranks;
+        } catch (BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException ex) {
+            // A truncated or damaged file: whatever length or count we tripped over was garbage
+            throw new DataExtractionException("Corrupt page ranks " + path, ex);
         }
-        throw new NotYetImplementedException();
     }
 
     /**
@@ -96,7 +410,6 @@ public class PageRankAnalyzer {
      *               webpages given to the constructor.
      */
     public double computePageRank(URI pageUri) {
-        // Implementation note: this method should be very simple: just one line!
-        return 1.0;
+        return this.pageRanks.get(pageUri);
     }
 }
@@ -0,0 +1,42 @@
+package search.analyzers;
+
+/**
+ * Statistics about a single iteration of the PageRank computation.
+ */
+public class PageRankIteration {
+    private double l1Delta;
+    private double maxDelta;
+    private long nanos;
+
+    public PageRankIteration(double l1Delta, double maxDelta, long nanos) {
+        this.l1Delta = l1Delta;
+        this.maxDelta = maxDelta;
+        this.nanos = nanos;
+    }
+
+    /**
+     * Returns the sum of the absolute changes in every page's rank.
+     */
+    public double getL1Delta() {
+        return this.l1Delta;
+    }
+
+    /**
+     * Returns the largest absolute change in any single page's rank.
+     */
+    public double getMaxDelta() {
+        return this.maxDelta;
+    }
+
+    /**
+     * Returns how long the iteration took, in nanoseconds.
+     */
+    public long getNanos() {
+        return this.nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("L1 delta %.3e, max delta %.3e, %.3f ms", this.l1Delta, this.maxDelta, this.nanos / 1e6);
+    }
+}
@@ -0,0 +1,129 @@
+package search.analyzers;
+
+/**
+ * The posting list for a single term in an inverted index: the IDs of every
+ * document containing that term, in increasing order, along with the term's
+ * weight in each of those documents.
+ *
+ * Postings are stored in two parallel primitive arrays so that walking a list
+ * allocates nothing.
+ */
+public class PostingList {
+    private int[] docIds;
+    private double[] weights;
+    private int size;
+
+    public PostingList() {
+        this.docIds = new int[4];
+        this.weights = new double[4];
+        this.size = 0;
+    }
+
+    /**
+     * Creates a list holding the given postings. The arrays are used directly, not copied.
+     *
+     * @throws IllegalArgumentException  if the arrays have different lengths or the
+     *                                   document IDs aren't strictly increasing
+     */
+    public PostingList(int[] docIds, double[] weights) {
+        if (docIds.length != weights.length) {
+            throw new IllegalArgumentException("Need exactly one weight per document");
+        }
+        for (int i = 1; i < docIds.length; i++) {
+            if (docIds[i] <= docIds[i - 1]) {
+                throw new IllegalArgumentException("Postings must be in increasing document order");
+            }
+        }
+        this.docIds = docIds;
+        this.weights = weights;
+        this.size = docIds.length;
+    }
+
+    /**
+     * Appends a posting.
+     *
+     * @throws IllegalArgumentException  if docId is not larger than every ID added so far
+     */
+    public void add(int docId, double weight) {
+        if (this.size > 0 && docId <= this.docIds[this.size - 1]) {
+            throw new IllegalArgumentException("Postings must be added in increasing document order");
+        }
+        if (this.size == this.docIds.length) {
+            int capacity = this.docIds.length * 2;
+            int[] newDocIds = new int[capacity];
+            double[] newWeights = new double[capacity];
+            System.arraycopy(this.docIds, 0, newDocIds, 0, this.size);
+            System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+            this.docIds = newDocIds;
+            this.weights = newWeights;
+        }
+        this.docIds[this.size] = docId;
+        this.weights[this.size] = weight;
+        this.size++;
+    }
+
+    /**
+     * Releases any unused capacity. Call once the list is complete.
+     */
+    public void trim() {
+        if (this.size < this.docIds.length) {
+            int[] newDocIds = new int[this.size];
+            double[] newWeights = new double[this.size];
+            System.arraycopy(this.docIds, 0, newDocIds, 0, this.size);
+            System.arraycopy(this.weights, 0, newWeights, 0, this.size);
+            this.docIds = newDocIds;
+            this.weights = newWeights;
+        }
+    }
+
+    /**
+     * Returns the number of documents in this list.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the ID of the i-th document in this list.
+     */
+    public int getDocId(int i) {
+        return this.docIds[i];
+    }
+
+    /**
+     * Returns the term's weight in the i-th document in this list.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+
+    /**
+     * Returns the smallest index i >= 'from' such that getDocId(i) >= 'docId', or
+     * size() if there is no such index.
+     *
+     * This gallops forward from 'from' and then binary searches, so it takes time
+     * logarithmic in the distance skipped rather than in the length of the list.
+     */
+    public int seek(int from, int docId) {
+        int low = from;
+        int step = 1;
+        int high = from;
+        while (high < this.size && this.docIds[high] < docId) {
+            low = high + 1;
+            high = from + step;
+            step *= 2;
+        }
+        high = Math.min(high, this.size);
+
+        // Invariant: docIds[low - 1] < docId, and high == size or docIds[high] >= docId
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.docIds[mid] < docId) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
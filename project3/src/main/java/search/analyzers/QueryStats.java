@@ -0,0 +1,34 @@
+package search.analyzers;
+
+/**
+ * Where the time went while answering one query, as filled in by
+ * TopKEvaluator.findTopK(...):
+ *
+ * - candidate generation: weighing the query's words and opening their posting lists
+ * - scoring: walking the posting lists, skipping and scoring candidate documents
+ * - top-k selection: taking the best documents out of the heap, in order
+ *
+ * Also counts how many documents were fully scored, as opposed to skipped.
+ */
+public class QueryStats {
+    long candidateNanos;
+    long scoringNanos;
+    long selectionNanos;
+    long documentsScored;
+
+    public long getCandidateNanos() {
+        return this.candidateNanos;
+    }
+
+    public long getScoringNanos() {
+        return this.scoringNanos;
+    }
+
+    public long getSelectionNanos() {
+        return this.selectionNanos;
+    }
+
+    public long getDocumentsScored() {
+        return this.documentsScored;
+    }
+}
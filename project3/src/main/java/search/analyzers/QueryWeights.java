@@ -0,0 +1,49 @@
+package search.analyzers;
+
+/**
+ * A query's TF-IDF vector divided by its norm, as returned by
+ * TfIdfAnalyzer.computeQueryWeights(...): the ID of each query term with a non-zero
+ * weight, along with that weight.
+ *
+ * The relevance of a document is the sum, over these terms, of the term's weight
+ * here times its weight in the document's posting.
+ */
+public class QueryWeights {
+    private final int[] termIds;
+    private final double[] weights;
+    private final int size;
+
+    /**
+     * Holds the first 'size' entries of the given arrays. The arrays are used
+     * directly, not copied.
+     */
+    public QueryWeights(int[] termIds, double[] weights, int size) {
+        if (size > termIds.length || size > weights.length) {
+            throw new IllegalArgumentException("Need a term ID and a weight for each of the " + size + " terms");
+        }
+        this.termIds = termIds;
+        this.weights = weights;
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of terms.
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the ID of the i-th term.
+     */
+    public int getTermId(int i) {
+        return this.termIds[i];
+    }
+
+    /**
+     * Returns the weight of the i-th term.
+     */
+    public double getWeight(int i) {
+        return this.weights[i];
+    }
+}
@@ -0,0 +1,82 @@
+package search.analyzers;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+
+/**
+ * Gives every distinct term a dense integer ID: the first term added gets 0, the
+ * next new one gets 1, and so on.
+ *
+ * The search index refers to terms only by ID, so each term's string is stored and
+ * hashed just once here. Everything else can use arrays indexed by term ID instead
+ * of dictionaries keyed by strings.
+ *
+ * Interning terms is not thread-safe, but once the dictionary is built any number of
+ * threads may look terms up at the same time.
+ */
+public class TermDictionary {
+    private static final double LOAD_FACTOR = 0.75;
+
+    private IDictionary<String, Integer> ids;
+    private IList<String> terms;
+
+    public TermDictionary() {
+        this.ids = new ChainedHashDictionary<>(1024, LOAD_FACTOR);
+        this.terms = new DynamicArrayList<>(1024);
+    }
+
+    /**
+     * Restores a dictionary in which terms[i] has ID i, as returned by getTerm(i).
+     *
+     * @throws IllegalArgumentException  if the same term appears twice
+     */
+    public TermDictionary(String[] terms) {
+        this.ids = new ChainedHashDictionary<>((int) (terms.length / LOAD_FACTOR) + 1, LOAD_FACTOR);
+        this.terms = new DynamicArrayList<>(terms.length);
+        for (String term : terms) {
+            if (this.intern(term) != this.terms.size() - 1) {
+                throw new IllegalArgumentException("Duplicate term: " + term);
+            }
+        }
+    }
+
+    /**
+     * Returns the ID of the given term, giving it the next free ID if it doesn't have
+     * one yet.
+     */
+    public int intern(String term) {
+        Integer id = this.ids.getOrDefault(term, null);
+        if (id == null) {
+            id = this.terms.size();
+            this.ids.put(term, id);
+            this.terms.add(term);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the ID of the given term, or -1 if it has none.
+     */
+    public int getId(String term) {
+        Integer id = this.ids.getOrDefault(term, null);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the term with the given ID.
+     *
+     * @throws IndexOutOfBoundsException  if no term has that ID
+     */
+    public String getTerm(int id) {
+        return this.terms.get(id);
+    }
+
+    /**
+     * Returns the number of terms, which is one more than the largest term ID.
+     */
+    public int size() {
+        return this.terms.size();
+    }
+}
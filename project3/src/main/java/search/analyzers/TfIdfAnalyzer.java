@@ -1,12 +1,15 @@
 package search.analyzers;
 
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.concrete.dictionaries.OpenAddressingDictionary;
 import datastructures.interfaces.IDictionary;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
-import misc.exceptions.NotYetImplementedException;
 import search.models.Webpage;
 
 import java.net.URI;
+import java.util.Arrays;
 
 /**
  * This class is responsible for computing how "relevant" any given document is
@@ -15,68 +18,289 @@ import java.net.URI;
  * See the spec for more details.
  */
 public class TfIdfAnalyzer {
-    // This field must contain the IDF score for every single word in all
-    // the documents.
-    private IDictionary<String, Double> idfScores;
+    private static final double LOAD_FACTOR = 0.75;
+
+    // Every term found in any document. Everything below refers to terms by their
+    // ID in this dictionary, so each term's string is only hashed once, while the
+    // documents are being loaded; after that, per-term data lives in arrays indexed
+    // by term ID.
+    private TermDictionary terms;
+
+    // The IDF score of every term, indexed by term ID.
+    private double[] idfScores;
 
     // This field must contain the TF-IDF vector for each webpage you were given
     // in the constructor.
     //
     // We will use each webpage's page URI as a unique key.
+    //
+    // This is only built (from the inverted index) the first time someone asks for it.
     private IDictionary<URI, IDictionary<String, Double>> documentTfIdfVectors;
 
-    // Feel free to add extra fields and helper methods.
+    // Inverted index: every document is given a dense integer ID (its index in
+    // 'documents'), and each term maps to the list of documents containing it
+    // along with the term's TF-IDF weight in that document divided by the
+    // document's norm. With these weights, the cosine similarity between a
+    // query and a document is just a sum over the query's terms, so answering a
+    // query only touches documents that contain at least one query term.
+    //
+    // The index is indexed by term ID, and holds null for terms with no postings.
+    private URI[] documents;
+    private IDictionary<URI, Integer> documentIds;
+    private double[] documentNorms;
+    private PostingList[] invertedIndex;
 
     public TfIdfAnalyzer(ISet<Webpage> webpages) {
-        // Implementation note: We have commented these method calls out so your
-        // search engine doesn't immediately crash when you try running it for the
-        // first time.
-        //
-        // You should uncomment these lines when you're ready to begin working
-        // on this class.
+        this.terms = new TermDictionary();
+        this.documents = new URI[webpages.size()];
+        int[][] documentTerms = new int[webpages.size()][];
+        int docId = 0;
+        for (Webpage page : webpages) {
+            this.documents[docId] = page.getUri();
+            documentTerms[docId] = this.internWords(page.getWords());
+            docId++;
+        }
 
-        //this.idfScores = this.computeIdfScores(webpages);
-        //this.documentTfIdfVectors = this.computeAllDocumentTfIdfVectors(webpages);
+        this.idfScores = this.computeIdfScores(documentTerms);
+        this.buildInvertedIndex(documentTerms);
+        this.documentIds = this.computeDocumentIds();
+        this.documentTfIdfVectors = null;
+    }
+
+    /**
+     * Restores an analyzer from the values returned by getTermDictionary(),
+     * getIdfScore(...), getDocument(...), getDocumentNorm(...) and getPostings(...)
+     * of an analyzer built from webpages. None of the arguments are copied.
+     *
+     * @param idfScores      the IDF score of every term, indexed by term ID
+     * @param invertedIndex  the posting list of every term, indexed by term ID (or null
+     *                       for terms without one)
+     */
+    public TfIdfAnalyzer(TermDictionary terms,
+                         double[] idfScores,
+                         URI[] documents,
+                         double[] documentNorms,
+                         PostingList[] invertedIndex) {
+        if (documents.length != documentNorms.length) {
+            throw new IllegalArgumentException("Need exactly one norm per document");
+        }
+        if (idfScores.length != terms.size() || invertedIndex.length != terms.size()) {
+            throw new IllegalArgumentException("Need exactly one IDF score and posting list per term");
+        }
+        this.terms = terms;
+        this.idfScores = idfScores;
+        this.documents = documents;
+        this.documentNorms = documentNorms;
+        this.invertedIndex = invertedIndex;
+        this.documentIds = this.computeDocumentIds();
+        this.documentTfIdfVectors = null;
     }
 
     // Note: this method, strictly speaking, doesn't need to exist. However,
     // we've included it so we can add some unit tests to help verify that your
     // constructor correctly initializes your fields.
     public IDictionary<URI, IDictionary<String, Double>> getDocumentTfIdfVectors() {
+        if (this.documentTfIdfVectors == null) {
+            this.documentTfIdfVectors = this.rebuildDocumentTfIdfVectors();
+        }
         return this.documentTfIdfVectors;
     }
 
-    // Note: these private methods are suggestions or hints on how to structure your
-    // code. However, since they're private, you're not obligated to implement exactly
-    // these methods: feel free to change or modify these methods however you want. The
-    // important thing is that your 'computeRelevance' method ultimately returns the
-    // correct answer in an efficient manner.
+    /**
+     * Returns the dictionary giving every term found in any document its ID.
+     */
+    public TermDictionary getTermDictionary() {
+        return this.terms;
+    }
+
+    /**
+     * Returns the IDF score of the term with the given ID.
+     */
+    public double getIdfScore(int termId) {
+        return this.idfScores[termId];
+    }
+
+    /**
+     * Returns the posting list of the term with the given ID, or null if the term has
+     * an IDF score of zero. Each posting refers to a document by its ID (see
+     * getDocument(...)) and holds the term's TF-IDF weight in that document divided by
+     * the document's norm.
+     */
+    public PostingList getPostings(int termId) {
+        return this.invertedIndex[termId];
+    }
+
+    /**
+     * Returns the number of documents, which is one more than the largest document ID.
+     */
+    public int getDocumentCount() {
+        return this.documents.length;
+    }
+
+    /**
+     * Returns the URI of the document with the given ID.
+     */
+    public URI getDocument(int docId) {
+        return this.documents[docId];
+    }
+
+    /**
+     * Returns the norm of the TF-IDF vector of the document with the given ID.
+     */
+    public double getDocumentNorm(int docId) {
+        return this.documentNorms[docId];
+    }
+
+    /**
+     * Returns the term ID of every word in the list, in order, giving new words IDs.
+     */
+    private int[] internWords(IList<String> words) {
+        int[] termIds = new int[words.size()];
+        int i = 0;
+        for (String word : words) {
+            termIds[i] = this.terms.intern(word);
+            i++;
+        }
+        return termIds;
+    }
 
     /**
-     * Return a dictionary mapping every single unique word found
-     * in every single document to their IDF score.
+     * Returns the IDF score of every term, indexed by term ID, given the term IDs
+     * of the words in each document.
      */
-    private IDictionary<String, Double> computeIdfScores(ISet<Webpage> pages) {
-        throw new NotYetImplementedException();
+    private double[] computeIdfScores(int[][] documentTerms) {
+        // 'lastSeen' records the last document we counted each term in, so each
+        // document counts each of its terms only once
+        int[] documentCounts = new int[this.terms.size()];
+        int[] lastSeen = new int[this.terms.size()];
+        Arrays.fill(lastSeen, -1);
+        for (int docId = 0; docId < documentTerms.length; docId++) {
+            for (int termId : documentTerms[docId]) {
+                if (lastSeen[termId] != docId) {
+                    lastSeen[termId] = docId;
+                    documentCounts[termId]++;
+                }
+            }
+        }
+
+        double totalDocuments = documentTerms.length;
+        double[] idf = new double[this.terms.size()];
+        for (int termId = 0; termId < idf.length; termId++) {
+            idf[termId] = Math.log(totalDocuments / documentCounts[termId]);
+        }
+        return idf;
     }
 
     /**
-     * Returns a dictionary mapping every unique word found in the given list
-     * to their term frequency (TF) score.
+     * Computes every document's TF-IDF vector and norm, and adds its non-zero weights
+     * to the inverted index.
      *
-     * The input list represents the words contained within a single document.
+     * Each document's term counts are kept in an array indexed by term ID, which is
+     * shared by every document: we only reset the entries the document used.
      */
-    private IDictionary<String, Double> computeTfScores(IList<String> words) {
-        throw new NotYetImplementedException();
+    private void buildInvertedIndex(int[][] documentTerms) {
+        this.documentNorms = new double[this.documents.length];
+        this.invertedIndex = new PostingList[this.terms.size()];
+
+        int[] counts = new int[this.terms.size()];
+        int[] distinctTerms = new int[16];
+        double[] weights = new double[16];
+        // Documents are visited in ID order, so every posting list ends up sorted
+        for (int docId = 0; docId < documentTerms.length; docId++) {
+            int[] words = documentTerms[docId];
+            if (words.length > distinctTerms.length) {
+                distinctTerms = new int[words.length];
+                weights = new double[words.length];
+            }
+            int numDistinct = 0;
+            for (int termId : words) {
+                if (counts[termId] == 0) {
+                    distinctTerms[numDistinct] = termId;
+                    numDistinct++;
+                }
+                counts[termId]++;
+            }
+
+            double totalWords = words.length;
+            double sumOfSquares = 0.0;
+            for (int i = 0; i < numDistinct; i++) {
+                int termId = distinctTerms[i];
+                weights[i] = counts[termId] / totalWords * this.idfScores[termId];
+                sumOfSquares += weights[i] * weights[i];
+                counts[termId] = 0;
+            }
+            double norm = Math.sqrt(sumOfSquares);
+            this.documentNorms[docId] = norm;
+
+            for (int i = 0; i < numDistinct; i++) {
+                // Terms appearing in every document have a weight of zero and can
+                // never affect a score, so leave them out of the index entirely
+                if (weights[i] == 0.0) {
+                    continue;
+                }
+                int termId = distinctTerms[i];
+                if (this.invertedIndex[termId] == null) {
+                    this.invertedIndex[termId] = new PostingList();
+                }
+                this.invertedIndex[termId].add(docId, weights[i] / norm);
+            }
+        }
+
+        for (PostingList postings : this.invertedIndex) {
+            if (postings != null) {
+                postings.trim();
+            }
+        }
+    }
+
+    private IDictionary<URI, Integer> computeDocumentIds() {
+        IDictionary<URI, Integer> ids = new ChainedHashDictionary<>(
+                (int) (this.documents.length / LOAD_FACTOR) + 1, LOAD_FACTOR);
+        for (int docId = 0; docId < this.documents.length; docId++) {
+            ids.put(this.documents[docId], docId);
+        }
+        return ids;
     }
 
     /**
-     * See spec for more details on what this method should do.
+     * Recovers every document's TF-IDF vector from the inverted index.
+     *
+     * Terms with an IDF score of zero aren't in the index, but such terms appear in
+     * every document, so we add them to every vector with a score of zero.
      */
-    private IDictionary<URI, IDictionary<String, Double>> computeAllDocumentTfIdfVectors(ISet<Webpage> pages) {
-        // Hint: this method should use the idfScores field and
-        // call the computeTfScores(...) method.
-        throw new NotYetImplementedException();
+    private IDictionary<URI, IDictionary<String, Double>> rebuildDocumentTfIdfVectors() {
+        IDictionary<String, Double>[] vectors = makeVectorArray(this.documents.length);
+        for (int docId = 0; docId < this.documents.length; docId++) {
+            vectors[docId] = new ChainedHashDictionary<>(16, LOAD_FACTOR);
+        }
+        for (int termId = 0; termId < this.invertedIndex.length; termId++) {
+            String term = this.terms.getTerm(termId);
+            PostingList postings = this.invertedIndex[termId];
+            if (postings == null) {
+                if (this.idfScores[termId] == 0.0) {
+                    for (IDictionary<String, Double> vector : vectors) {
+                        vector.put(term, 0.0);
+                    }
+                }
+                continue;
+            }
+            for (int i = 0; i < postings.size(); i++) {
+                int docId = postings.getDocId(i);
+                vectors[docId].put(term, postings.getWeight(i) * this.documentNorms[docId]);
+            }
+        }
+
+        IDictionary<URI, IDictionary<String, Double>> output = new ChainedHashDictionary<>(
+                (int) (this.documents.length / LOAD_FACTOR) + 1, LOAD_FACTOR);
+        for (int docId = 0; docId < this.documents.length; docId++) {
+            output.put(this.documents[docId], vectors[docId]);
+        }
+        return output;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static IDictionary<String, Double>[] makeVectorArray(int size) {
+        return (IDictionary<String, Double>[]) new IDictionary[size];
     }
 
     /**
@@ -87,13 +311,90 @@ public class TfIdfAnalyzer {
      *               webpages given to the constructor.
      */
     public Double computeRelevance(IList<String> query, URI pageUri) {
-        // Note: The pseudocode we gave you is not very efficient. When implementing,
-        // this method, you should:
-        //
-        // 1. Figure out what information can be precomputed in your constructor.
-        //    Add a third field containing that information.
-        //
-        // 2. See if you can combine or merge one or more loops.
-        return 0.0;
+        int docId = this.documentIds.get(pageUri);
+
+        double relevance = 0.0;
+        QueryWeights weights = this.computeQueryWeights(query);
+        for (int j = 0; j < weights.size(); j++) {
+            PostingList postings = this.invertedIndex[weights.getTermId(j)];
+            int i = postings.seek(0, docId);
+            if (i < postings.size() && postings.getDocId(i) == docId) {
+                relevance += weights.getWeight(j) * postings.getWeight(i);
+            }
+        }
+        return relevance;
+    }
+
+    /**
+     * Returns the given query's TF-IDF vector divided by its norm, so the relevance of
+     * a document is the sum of these weights times the matching posting weights.
+     *
+     * This is the only place query words are looked up in the term dictionary. Words
+     * that don't appear in any document have a score of zero, and only the terms with
+     * a non-zero weight (all of which have a posting list) are returned.
+     */
+    public QueryWeights computeQueryWeights(IList<String> query) {
+        // Queries only have a handful of words, so count them with a linear scan
+        int[] termIds = new int[query.size()];
+        int[] counts = new int[query.size()];
+        int numDistinct = 0;
+        for (String word : query) {
+            int termId = this.terms.getId(word);
+            int i = 0;
+            while (i < numDistinct && termIds[i] != termId) {
+                i++;
+            }
+            if (i == numDistinct) {
+                termIds[i] = termId;
+                numDistinct++;
+            }
+            counts[i]++;
+        }
+
+        double totalWords = query.size();
+        double[] weights = new double[numDistinct];
+        double sumOfSquares = 0.0;
+        int numWeights = 0;
+        for (int i = 0; i < numDistinct; i++) {
+            double weight = termIds[i] < 0 ? 0.0 : counts[i] / totalWords * this.idfScores[termIds[i]];
+            if (weight != 0.0) {
+                termIds[numWeights] = termIds[i];
+                weights[numWeights] = weight;
+                numWeights++;
+                sumOfSquares += weight * weight;
+            }
+        }
+        double queryNorm = Math.sqrt(sumOfSquares);
+        for (int i = 0; i < numWeights; i++) {
+            weights[i] /= queryNorm;
+        }
+        return new QueryWeights(termIds, weights, numWeights);
+    }
+
+    /**
+     * Returns the relevance (as computed by computeRelevance) of every document with
+     * a non-zero relevance to the given query. Every other document has a relevance of zero.
+     *
+     * This only visits documents containing at least one of the query's words, so it
+     * takes time proportional to the lengths of those words' posting lists rather than
+     * to the total number of documents.
+     */
+    public IDictionary<URI, Double> computeRelevances(IList<String> query) {
+        IDictionary<Integer, Double> scores = new OpenAddressingDictionary<>();
+        QueryWeights weights = this.computeQueryWeights(query);
+        for (int j = 0; j < weights.size(); j++) {
+            PostingList postings = this.invertedIndex[weights.getTermId(j)];
+            double queryWeight = weights.getWeight(j);
+            for (int i = 0; i < postings.size(); i++) {
+                int docId = postings.getDocId(i);
+                scores.put(docId, scores.getOrDefault(docId, 0.0) + queryWeight * postings.getWeight(i));
+            }
+        }
+
+        IDictionary<URI, Double> output = new OpenAddressingDictionary<>(scores.size());
+        for (KVPair<Integer, Double> pair : scores) {
+            output.put(this.documents[pair.getKey()], pair.getValue());
+        }
+        return output;
     }
 }
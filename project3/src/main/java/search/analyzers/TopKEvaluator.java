@@ -0,0 +1,293 @@
+package search.analyzers;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.IPriorityQueue;
+
+import java.net.URI;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Finds the k best documents for a query without scoring every document that
+ * contains a query word.
+ *
+ * A document's score is its TF-IDF relevance (see TfIdfAnalyzer) multiplied by a
+ * fixed, non-negative per-document boost. Since the relevance is a sum over the
+ * query's words, so is the score: each word contributes
+ *
+ *     queryWeight * postingWeight * boost
+ *
+ * When the evaluator is built, we record the largest value of postingWeight * boost
+ * in every posting list, and in every block of BLOCK_SIZE consecutive postings.
+ * Multiplying by a word's query weight gives an upper bound on how much that word
+ * can add to any document's score.
+ *
+ * Queries are then answered using WAND ("weak AND"): we walk the query words'
+ * posting lists in document order while keeping the k best documents seen so far
+ * in a heap. If the upper bounds of the lists positioned at or before some document
+ * don't add up to more than the k-th best score, nothing before that document can
+ * make it into the heap, so those lists skip straight past it. Before fully scoring
+ * a document we also check the tighter per-block bounds.
+ */
+public class TopKEvaluator {
+    public static final int BLOCK_SIZE = 64;
+
+    private TfIdfAnalyzer tfIdfAnalyzer;
+    private double[] boosts;
+    // Indexed by term ID; null for terms without a posting list
+    private TermBounds[] bounds;
+
+    /**
+     * @param tfIdfAnalyzer  the index to search
+     * @param boost          returns the (non-negative) boost for each document's URI
+     */
+    public TopKEvaluator(TfIdfAnalyzer tfIdfAnalyzer, ToDoubleFunction<URI> boost) {
+        this.tfIdfAnalyzer = tfIdfAnalyzer;
+
+        this.boosts = new double[tfIdfAnalyzer.getDocumentCount()];
+        for (int docId = 0; docId < this.boosts.length; docId++) {
+            double value = boost.applyAsDouble(tfIdfAnalyzer.getDocument(docId));
+            if (!(value >= 0.0)) {
+                throw new IllegalArgumentException(String.format(
+                        "Document '%s' has a boost of '%f'; boosts must be non-negative.",
+                        tfIdfAnalyzer.getDocument(docId), value));
+            }
+            this.boosts[docId] = value;
+        }
+
+        this.bounds = new TermBounds[tfIdfAnalyzer.getTermDictionary().size()];
+        for (int termId = 0; termId < this.bounds.length; termId++) {
+            PostingList postings = tfIdfAnalyzer.getPostings(termId);
+            if (postings != null) {
+                this.bounds[termId] = new TermBounds(postings, this.boosts);
+            }
+        }
+    }
+
+    /**
+     * Returns the (at most) k documents with the highest non-zero scores for the
+     * given query, best first, each paired with its score.
+     *
+     * Documents with equal scores may be returned in any order.
+     *
+     * @throws IllegalArgumentException  if k is negative
+     */
+    public IList<KVPair<URI, Double>> findTopK(IList<String> query, int k) {
+        return this.findTopK(query, k, new QueryStats());
+    }
+
+    /**
+     * Same as above, but also records where the time went in 'stats'.
+     */
+    public IList<KVPair<URI, Double>> findTopK(IList<String> query, int k, QueryStats stats) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be non-negative, got " + k);
+        }
+
+        long start = System.nanoTime();
+        QueryWeights weights = this.tfIdfAnalyzer.computeQueryWeights(query);
+        Cursor[] cursors = new Cursor[weights.size()];
+        int numCursors = 0;
+        for (int i = 0; i < weights.size(); i++) {
+            TermBounds term = this.bounds[weights.getTermId(i)];
+            if (term != null) {
+                cursors[numCursors] = new Cursor(term, weights.getWeight(i));
+                numCursors++;
+            }
+        }
+
+        long scoringStart = System.nanoTime();
+        stats.candidateNanos = scoringStart - start;
+
+        IPriorityQueue<Candidate> heap = new ArrayHeap<>();
+        if (k > 0) {
+            stats.documentsScored = this.search(cursors, numCursors, k, heap);
+        }
+        long selectionStart = System.nanoTime();
+        stats.scoringNanos = selectionStart - scoringStart;
+
+        IList<KVPair<URI, Double>> output = new DoubleLinkedList<>();
+        while (!heap.isEmpty()) {
+            Candidate candidate = heap.removeMin();
+            output.insert(0, new KVPair<>(this.tfIdfAnalyzer.getDocument(candidate.docId), candidate.score));
+        }
+        stats.selectionNanos = System.nanoTime() - selectionStart;
+        return output;
+    }
+
+    /**
+     * Fills the heap with the k best documents, and returns the number of documents
+     * we had to score to find them.
+     */
+    private long search(Cursor[] cursors, int numCursors, int k, IPriorityQueue<Candidate> heap) {
+        long scored = 0;
+        while (true) {
+            sortByDocId(cursors, numCursors);
+            double threshold = heap.size() < k ? 0.0 : heap.peekMin().score;
+
+            // Find the pivot: the first cursor at which the upper bounds of it and
+            // every cursor before it add up to more than the threshold
+            int pivot = -1;
+            double upperBound = 0.0;
+            for (int i = 0; i < numCursors && !cursors[i].isDone(); i++) {
+                upperBound += cursors[i].upperBound;
+                if (upperBound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot == -1) {
+                // No remaining document can beat the threshold
+                return scored;
+            }
+
+            int pivotDocId = cursors[pivot].docId();
+            if (cursors[0].docId() != pivotDocId) {
+                // Any document before the pivot document only appears in the lists
+                // before the pivot, which can't add up to more than the threshold
+                for (int i = 0; i < pivot && cursors[i].docId() < pivotDocId; i++) {
+                    cursors[i].seek(pivotDocId);
+                }
+                continue;
+            }
+
+            // Every list up to the pivot, and possibly a few after it, is positioned
+            // on the pivot document
+            int last = pivot;
+            while (last + 1 < numCursors && cursors[last + 1].docId() == pivotDocId) {
+                last++;
+            }
+
+            double blockBound = 0.0;
+            for (int i = 0; i <= last; i++) {
+                blockBound += cursors[i].blockUpperBound();
+            }
+            if (blockBound > threshold) {
+                double relevance = 0.0;
+                for (int i = 0; i <= last; i++) {
+                    relevance += cursors[i].weight();
+                }
+                double score = relevance * this.boosts[pivotDocId];
+                scored++;
+                if (heap.size() < k) {
+                    heap.insert(new Candidate(pivotDocId, score));
+                } else if (score > threshold) {
+                    heap.removeMin();
+                    heap.insert(new Candidate(pivotDocId, score));
+                }
+            }
+
+            for (int i = 0; i <= last; i++) {
+                cursors[i].next();
+            }
+        }
+    }
+
+    /**
+     * Sorts the first 'size' cursors by their current document ID. Queries only
+     * have a handful of words and the order barely changes between calls, so
+     * insertion sort is the right tool here.
+     */
+    private static void sortByDocId(Cursor[] cursors, int size) {
+        for (int i = 1; i < size; i++) {
+            Cursor current = cursors[i];
+            int j = i - 1;
+            while (j >= 0 && cursors[j].docId() > current.docId()) {
+                cursors[j + 1] = cursors[j];
+                j--;
+            }
+            cursors[j + 1] = current;
+        }
+    }
+
+    /**
+     * The upper bounds of postingWeight * boost for a single posting list.
+     */
+    private static class TermBounds {
+        public final PostingList postings;
+        public final double max;
+        public final double[] blockMax;
+
+        public TermBounds(PostingList postings, double[] boosts) {
+            this.postings = postings;
+            this.blockMax = new double[(postings.size() + BLOCK_SIZE - 1) / BLOCK_SIZE];
+            double overall = 0.0;
+            for (int i = 0; i < postings.size(); i++) {
+                double value = postings.getWeight(i) * boosts[postings.getDocId(i)];
+                int block = i / BLOCK_SIZE;
+                this.blockMax[block] = Math.max(this.blockMax[block], value);
+                overall = Math.max(overall, value);
+            }
+            this.max = overall;
+        }
+    }
+
+    /**
+     * A position within one query word's posting list.
+     */
+    private static class Cursor {
+        private static final int DONE = Integer.MAX_VALUE;
+
+        private final TermBounds term;
+        private final double queryWeight;
+        public final double upperBound;
+        private int position;
+
+        public Cursor(TermBounds term, double queryWeight) {
+            this.term = term;
+            this.queryWeight = queryWeight;
+            this.upperBound = queryWeight * term.max;
+            this.position = 0;
+        }
+
+        public boolean isDone() {
+            return this.position >= this.term.postings.size();
+        }
+
+        /**
+         * Returns the current document ID, or Integer.MAX_VALUE once the list is exhausted.
+         */
+        public int docId() {
+            return this.isDone() ? DONE : this.term.postings.getDocId(this.position);
+        }
+
+        /**
+         * Returns this word's contribution to the current document's relevance.
+         */
+        public double weight() {
+            return this.queryWeight * this.term.postings.getWeight(this.position);
+        }
+
+        public double blockUpperBound() {
+            return this.queryWeight * this.term.blockMax[this.position / BLOCK_SIZE];
+        }
+
+        public void next() {
+            this.position++;
+        }
+
+        /**
+         * Moves to the first posting whose document ID is at least 'docId'.
+         */
+        public void seek(int docId) {
+            this.position = this.term.postings.seek(this.position, docId);
+        }
+    }
+
+    private static class Candidate implements Comparable<Candidate> {
+        public final int docId;
+        public final double score;
+
+        public Candidate(int docId, double score) {
+            this.docId = docId;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(this.score, other.score);
+        }
+    }
+}
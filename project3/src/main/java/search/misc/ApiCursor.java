@@ -0,0 +1,53 @@
+package search.misc;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Where the next page of a JSON search picks up: the query, and the offset of the
+ * first result to send.
+ *
+ * Clients get it as an opaque string (URL-safe base64 of "offset:query"), so they
+ * can pass it straight back in a query string.
+ */
+public class ApiCursor {
+    public final int offset;
+    public final String query;
+
+    public ApiCursor(int offset, String query) {
+        this.offset = offset;
+        this.query = query;
+    }
+
+    /**
+     * Returns the string to hand to clients for this cursor.
+     */
+    public String encode() {
+        String cursor = this.offset + ":" + this.query;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads back a string made by encode(), whose offset must be below 'maxOffset'.
+     *
+     * @throws IllegalArgumentException  if 'cursor' isn't one we could have made
+     */
+    public static ApiCursor decode(String cursor, int maxOffset) {
+        try {
+            String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int colon = decoded.indexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            int offset = Integer.parseInt(decoded.substring(0, colon));
+            if (offset < 0 || offset >= maxOffset) {
+                throw new IllegalArgumentException("Malformed cursor");
+            }
+            return new ApiCursor(offset, decoded.substring(colon + 1));
+        } catch (IllegalArgumentException ex) {
+            // Includes bad base64 and bad numbers, whose own messages would only
+            // confuse a client that was meant to treat the cursor as opaque
+            throw new IllegalArgumentException("Malformed cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package search.misc;
+
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Helpers shared by the binary files the search engine keeps between runs: page
+ * segments, index snapshots and saved page ranks.
+ *
+ * Strings in those files are an integer byte length followed by that many bytes of
+ * UTF-8.
+ */
+public class BinaryFiles {
+    /**
+     * Writes a file to 'path' using 'contents', replacing any existing file.
+     *
+     * The file is written next to 'path' first and then moved into place, so a crash
+     * never leaves a half-written file behind. Files of 2GB or more are refused, since
+     * they couldn't be memory-mapped in one piece when loading.
+     *
+     * @param description  what the file holds, for error messages (such as "page segment")
+     * @throws DataExtractionException  if the file could not be written
+     */
+    public static void writeAtomically(Path path, String description, Contents contents) {
+        Path tempPath = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+            contents.writeTo(out);
+            if (out.size() == Integer.MAX_VALUE) {
+                // DataOutputStream's counter saturated: the file is too big to map in one piece
+                throw new IOException("File would be larger than 2GB");
+            }
+        } catch (IOException ex) {
+            try {
+                Files.deleteIfExists(tempPath);
+            } catch (IOException ignored) {
+                // We're already reporting the original failure
+            }
+            throw new DataExtractionException("Could not write " + description + " " + path, ex);
+        }
+
+        try {
+            Files.move(tempPath, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not move " + description + " into place", ex);
+        }
+    }
+
+    public static void writeString(DataOutputStream out, String str) throws IOException {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Reads a string written by writeString(...) and moves past it.
+     *
+     * @throws BufferUnderflowException  if the buffer ends before the string does
+     * @throws NegativeArraySizeException  if the length is negative
+     */
+    public static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface Contents {
+        void writeTo(DataOutputStream out) throws IOException;
+    }
+}
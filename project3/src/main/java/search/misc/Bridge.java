@@ -1,6 +1,7 @@
 package search.misc;
 
 import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.ConcurrentChainedHashSet;
 import datastructures.concrete.DoubleLinkedList;
 import datastructures.interfaces.IList;
 import datastructures.interfaces.ISet;
@@ -22,6 +23,14 @@ public class Bridge {
         return new ISetCollector<>();
     }
 
+    /**
+     * Like toISet(), but every thread of a parallel stream adds directly into one
+     * shared, thread-safe set instead of building partial sets and merging them.
+     */
+    public static <T> ConcurrentISetCollector<T> toConcurrentISet() {
+        return new ConcurrentISetCollector<>();
+    }
+
     public static <A, B> Function<A, B> wrapCheckedMethod(FunctionThrowsException<A, B> func) {
         return (input) -> {
             try {
@@ -86,15 +95,48 @@ public class Bridge {
 
         @Override
         public BinaryOperator<ISet<T>> combiner() {
+            // Partial results are never shared, so fold the smaller set into
+            // the larger one instead of copying both into a new set
             return (a, b) -> {
-                ISet<T> out = new ChainedHashSet<>();
-                for (T i : a) {
-                    out.add(i);
+                ISet<T> larger = a.size() >= b.size() ? a : b;
+                ISet<T> smaller = larger == a ? b : a;
+                for (T i : smaller) {
+                    larger.add(i);
                 }
+                return larger;
+            };
+        }
+
+        @Override
+        public Function<ISet<T>, ISet<T>> finisher() {
+            return Function.identity();
+        }
+
+        @Override
+        public Set<Characteristics> characteristics() {
+            return EnumSet.of(Characteristics.IDENTITY_FINISH, Characteristics.UNORDERED);
+        }
+    }
+
+    public static class ConcurrentISetCollector<T> implements Collector<T, ISet<T>, ISet<T>> {
+        @Override
+        public Supplier<ISet<T>> supplier() {
+            return ConcurrentChainedHashSet::new;
+        }
+
+        @Override
+        public BiConsumer<ISet<T>, T> accumulator() {
+            return (set, item) -> set.add(item);
+        }
+
+        @Override
+        public BinaryOperator<ISet<T>> combiner() {
+            // Only used if the stream ends up not running concurrently
+            return (a, b) -> {
                 for (T i : b) {
-                    out.add(i);
+                    a.add(i);
                 }
-                return out;
+                return a;
             };
         }
 
@@ -105,7 +147,10 @@ public class Bridge {
 
         @Override
         public Set<Characteristics> characteristics() {
-            return EnumSet.of(Characteristics.IDENTITY_FINISH);
+            return EnumSet.of(
+                    Characteristics.IDENTITY_FINISH,
+                    Characteristics.CONCURRENT,
+                    Characteristics.UNORDERED);
         }
     }
 }
@@ -0,0 +1,176 @@
+package search.misc;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Writes JSON straight to a Writer as it goes, so a large response never has to be
+ * built up in memory first.
+ *
+ * Callers open and close objects and arrays themselves, and call name(...) before
+ * each value inside an object; the writer adds the commas and escapes strings.
+ * It doesn't check that the calls make valid JSON beyond that.
+ */
+public class JsonWriter {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private final Writer out;
+    // needsComma[i] is true if the object or array opened at depth i already has an entry
+    private boolean[] needsComma;
+    private int depth;
+    private boolean afterName;
+
+    public JsonWriter(Writer out) {
+        this.out = out;
+        this.needsComma = new boolean[8];
+        this.depth = 0;
+        this.afterName = false;
+    }
+
+    public JsonWriter beginObject() throws IOException {
+        return this.open('{');
+    }
+
+    public JsonWriter endObject() throws IOException {
+        return this.close('}');
+    }
+
+    public JsonWriter beginArray() throws IOException {
+        return this.open('[');
+    }
+
+    public JsonWriter endArray() throws IOException {
+        return this.close(']');
+    }
+
+    /**
+     * Writes the name of the next entry in the current object.
+     */
+    public JsonWriter name(String name) throws IOException {
+        this.beforeValue();
+        this.writeString(name);
+        this.out.write(':');
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string, or null if 'value' is null.
+     */
+    public JsonWriter value(String value) throws IOException {
+        if (value == null) {
+            return this.nullValue();
+        }
+        this.beforeValue();
+        this.writeString(value);
+        return this;
+    }
+
+    public JsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a number.
+     *
+     * @throws IllegalArgumentException  if 'value' is NaN or infinite, which JSON can't represent
+     */
+    public JsonWriter value(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new IllegalArgumentException("JSON numbers must be finite, got " + value);
+        }
+        this.beforeValue();
+        this.out.write(Double.toString(value));
+        return this;
+    }
+
+    public JsonWriter nullValue() throws IOException {
+        this.beforeValue();
+        this.out.write("null");
+        return this;
+    }
+
+    /**
+     * Sends everything written so far on to the underlying Writer's destination.
+     */
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    private JsonWriter open(char bracket) throws IOException {
+        this.beforeValue();
+        this.out.write(bracket);
+        this.depth++;
+        if (this.depth == this.needsComma.length) {
+            this.needsComma = Arrays.copyOf(this.needsComma, this.depth * 2);
+        }
+        this.needsComma[this.depth] = false;
+        return this;
+    }
+
+    private JsonWriter close(char bracket) throws IOException {
+        if (this.depth == 0) {
+            throw new IllegalStateException("Nothing left to close");
+        }
+        this.depth--;
+        this.out.write(bracket);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (this.afterName) {
+            // The name already took care of the comma
+            this.afterName = false;
+            return;
+        }
+        if (this.needsComma[this.depth]) {
+            this.out.write(',');
+        }
+        this.needsComma[this.depth] = true;
+    }
+
+    private void writeString(String value) throws IOException {
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= 0x20 && c != '"' && c != '\\' && c != '\u2028' && c != '\u2029') {
+                continue;
+            }
+            // Write the run of plain characters before this one all at once
+            this.out.write(value, start, i - start);
+            start = i + 1;
+            switch (c) {
+                case '"':
+                    this.out.write("\\\"");
+                    break;
+                case '\\':
+                    this.out.write("\\\\");
+                    break;
+                case '\n':
+                    this.out.write("\\n");
+                    break;
+                case '\r':
+                    this.out.write("\\r");
+                    break;
+                case '\t':
+                    this.out.write("\\t");
+                    break;
+                default:
+                    // Other control characters, plus two line separators that break
+                    // JavaScript parsers even though JSON allows them
+                    this.out.write("\\u");
+                    this.out.write(HEX_DIGITS[(c >> 12) & 0xF]);
+                    this.out.write(HEX_DIGITS[(c >> 8) & 0xF]);
+                    this.out.write(HEX_DIGITS[(c >> 4) & 0xF]);
+                    this.out.write(HEX_DIGITS[c & 0xF]);
+                    break;
+            }
+        }
+        this.out.write(value, start, value.length() - start);
+        this.out.write('"');
+    }
+}
@@ -0,0 +1,113 @@
+package search.misc;
+
+import datastructures.concrete.Histogram;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes metrics in the Prometheus text format, straight to a Writer.
+ *
+ * Every metric starts with a header (see counter(...), gauge(...) and histogram(...)),
+ * followed by one or more samples. Names should be made of letters, digits and
+ * underscores; label values and help text are escaped here.
+ */
+public class PrometheusWriter {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final Writer out;
+
+    public PrometheusWriter(Writer out) {
+        this.out = out;
+    }
+
+    /**
+     * Writes a counter, which only ever goes up (until the server restarts).
+     */
+    public void counter(String name, String help, long value) throws IOException {
+        this.header(name, help, "counter");
+        this.sample(name, value);
+    }
+
+    /**
+     * Writes a gauge, which can go up and down.
+     */
+    public void gauge(String name, String help, double value) throws IOException {
+        this.header(name, help, "gauge");
+        this.sample(name, value);
+    }
+
+    /**
+     * Writes the header for a metric of the given type ("counter", "gauge", ...), for
+     * when the samples need labels.
+     */
+    public void header(String name, String help, String type) throws IOException {
+        this.out.write("# HELP ");
+        this.out.write(name);
+        this.out.write(' ');
+        this.out.write(help.replace("\\", "\\\\").replace("\n", "\\n"));
+        this.out.write("\n# TYPE ");
+        this.out.write(name);
+        this.out.write(' ');
+        this.out.write(type);
+        this.out.write('\n');
+    }
+
+    public void sample(String name, double value) throws IOException {
+        this.sample(name, null, null, value);
+    }
+
+    /**
+     * Writes one sample with a single label, or no label if 'labelName' is null.
+     */
+    public void sample(String name, String labelName, String labelValue, double value) throws IOException {
+        this.out.write(name);
+        if (labelName != null) {
+            this.out.write('{');
+            this.out.write(labelName);
+            this.out.write("=\"");
+            this.out.write(labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+            this.out.write("\"}");
+        }
+        this.out.write(' ');
+        this.out.write(formatValue(value));
+        this.out.write('\n');
+    }
+
+    /**
+     * Writes a histogram whose buckets end at the given bounds (in increasing order).
+     * The histogram's values are multiplied by 'scale' first; for example, a scale of
+     * 1e-9 turns nanoseconds into seconds, the unit Prometheus expects.
+     */
+    public void histogram(String name, String help, Histogram histogram, double[] bounds, double scale)
+            throws IOException {
+        long[] rawBounds = new long[bounds.length];
+        for (int i = 0; i < bounds.length; i++) {
+            rawBounds[i] = Math.round(bounds[i] / scale);
+        }
+        long[] counts = histogram.getCumulativeCounts(rawBounds);
+
+        this.header(name, help, "histogram");
+        for (int i = 0; i < bounds.length; i++) {
+            this.sample(name + "_bucket", "le", formatValue(bounds[i]), counts[i]);
+        }
+        this.sample(name + "_bucket", "le", "+Inf", counts[bounds.length]);
+        this.sample(name + "_sum", histogram.getSum() * scale);
+        this.sample(name + "_count", counts[bounds.length]);
+    }
+
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    private static String formatValue(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            // Whole numbers (like most counters) read better without the ".0"
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+}
@@ -1,17 +1,102 @@
 package search.misc;
 
-import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.DynamicArrayList;
 import datastructures.interfaces.IList;
 
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lowercase words.
+ *
+ * A word is a run of characters between whitespace (as matched by the regex '\s'),
+ * lowercased using the default locale, with all ASCII punctuation (as matched by
+ * '\p{Punct}') removed. Words left empty are skipped.
+ *
+ * We walk the text once, building each word in a reusable buffer. Words made only of
+ * ASCII characters (nearly all of them) are lowercased one char at a time; any other
+ * word goes through String.toLowerCase(), since lowercasing can depend on the
+ * surrounding characters (the Greek final sigma) and change a word's length.
+ */
 public class WordTokenizer {
+    private static final Pattern PUNCTUATION = Pattern.compile("\\p{Punct}");
+
+    /**
+     * Returns the words of the input, in order.
+     */
     public static IList<String> extract(String input) {
-        IList<String> out = new DoubleLinkedList<>();
-        for (String word : input.toLowerCase().split("\\s+")) {
-            word = word.replaceAll("\\p{Punct}", "");
-            if (!word.isEmpty()) {
-                out.add(word);
+        IList<String> out = new DynamicArrayList<>();
+        extract(input, out::add);
+        return out;
+    }
+
+    /**
+     * Passes each word of the input to 'sink', in order, without building a list.
+     */
+    public static void extract(String input, Consumer<String> sink) {
+        // In Turkish and Azerbaijani, even 'I' doesn't lowercase to 'i'
+        String language = Locale.getDefault().getLanguage();
+        boolean asciiFastPath = !language.equals("tr") && !language.equals("az");
+
+        char[] buffer = new char[32];
+        int length = 0;
+        int wordStart = -1;
+        boolean ascii = true;
+        int inputLength = input.length();
+        for (int i = 0; i <= inputLength; i++) {
+            char c = i < inputLength ? input.charAt(i) : ' ';
+            if (isSpace(c)) {
+                if (wordStart >= 0) {
+                    if (ascii) {
+                        if (length > 0) {
+                            sink.accept(new String(buffer, 0, length));
+                        }
+                    } else {
+                        String word = input.substring(wordStart, i).toLowerCase();
+                        word = PUNCTUATION.matcher(word).replaceAll("");
+                        if (!word.isEmpty()) {
+                            sink.accept(word);
+                        }
+                    }
+                    wordStart = -1;
+                }
+                continue;
+            }
+
+            if (wordStart < 0) {
+                wordStart = i;
+                length = 0;
+                ascii = asciiFastPath;
+            }
+            if (!ascii) {
+                continue;
+            }
+            if (c >= 0x80) {
+                ascii = false;
+            } else if (!isPunctuation(c)) {
+                if (length == buffer.length) {
+                    char[] bigger = new char[buffer.length * 2];
+                    System.arraycopy(buffer, 0, bigger, 0, length);
+                    buffer = bigger;
+                }
+                buffer[length] = (c >= 'A' && c <= 'Z') ? (char) (c + ('a' - 'A')) : c;
+                length++;
             }
         }
-        return out;
+    }
+
+    /**
+     * Returns 'true' if the regex '\s' matches the char.
+     */
+    private static boolean isSpace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    /**
+     * Returns 'true' if the regex '\p{Punct}' matches the (ASCII) char.
+     */
+    private static boolean isPunctuation(char c) {
+        return (c >= '!' && c <= '/') || (c >= ':' && c <= '@') || (c >= '[' && c <= '`') || (c >= '{' && c <= '~');
     }
 }
@@ -0,0 +1,23 @@
+package search.misc.exceptions;
+
+/**
+ * Thrown when the server is too busy to answer a request in time, and the client
+ * should try again later.
+ */
+public class OverloadedException extends RuntimeException {
+    public OverloadedException() {
+        super();
+    }
+
+    public OverloadedException(String message) {
+        super(message);
+    }
+
+    public OverloadedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public OverloadedException(Throwable cause) {
+        super(cause);
+    }
+}
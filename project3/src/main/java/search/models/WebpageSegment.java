@@ -0,0 +1,230 @@
+package search.models;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.InternedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import search.misc.BinaryFiles;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Stores many webpages in a single compact binary file (a 'segment') so they can
+ * be loaded again without re-parsing any HTML or text.
+ *
+ * Every distinct word and every distinct URI is written only once, in a table at
+ * the start of the file; each page then refers to its words and links by their
+ * integer ID in those tables. The file is memory-mapped when loading, and each
+ * page's words and links are InternedList views directly over the mapped ID arrays.
+ *
+ * File layout (all integers are 4-byte big-endian, all strings are an integer byte
+ * length followed by that many bytes of UTF-8):
+ *
+ *   header:  MAGIC, VERSION, source file count, page count, term count, URI count
+ *   terms:   'term count' strings
+ *   uris:    'URI count' strings
+ *   pages:   for each page: URI id, title, blurb, word count, link count,
+ *            then 'word count' term ids, then 'link count' URI ids
+ */
+public class WebpageSegment {
+    private static final int MAGIC = 0x57505347; // "WPSG"
+    private static final int VERSION = 1;
+
+    /**
+     * Returns 'true' if the segment at 'segmentPath' exists, was built from exactly
+     * 'sourceFiles.length' files, and is newer than every one of them.
+     */
+    public static boolean isFresh(Path segmentPath, Path[] sourceFiles) {
+        return isFresh(segmentPath, sourceFiles, MAGIC, VERSION);
+    }
+
+    /**
+     * Same as above, but for any file built from 'sourceFiles' that starts with the same
+     * three integers as a segment: a magic number, a version, and the source file count.
+     */
+    public static boolean isFresh(Path path, Path[] sourceFiles, int magic, int version) {
+        try {
+            if (!Files.isRegularFile(path) || Files.size(path) < 3 * 4) {
+                return false;
+            }
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(3 * 4);
+                while (header.hasRemaining() && channel.read(header) >= 0) {
+                    // keep reading until the header is full
+                }
+                header.flip();
+                if (header.getInt() != magic || header.getInt() != version) {
+                    return false;
+                }
+                if (header.getInt() != sourceFiles.length) {
+                    return false;
+                }
+            }
+            long fileTime = Files.getLastModifiedTime(path).toMillis();
+            for (Path file : sourceFiles) {
+                if (Files.getLastModifiedTime(file).toMillis() > fileTime) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (IOException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Writes the given pages to a segment at 'segmentPath', replacing any existing one
+     * (see BinaryFiles.writeAtomically(...)).
+     *
+     * @param sourceFileCount  the number of files the pages were loaded from; used by isFresh(...)
+     */
+    public static void save(Path segmentPath, ISet<Webpage> pages, int sourceFileCount) {
+        // Assign ids to every distinct word and URI
+        IDictionary<String, Integer> termIds = new ChainedHashDictionary<>(1024, 0.75);
+        IList<String> terms = new DoubleLinkedList<>();
+        IDictionary<URI, Integer> uriIds = new ChainedHashDictionary<>(1024, 0.75);
+        IList<URI> uris = new DoubleLinkedList<>();
+        for (Webpage page : pages) {
+            intern(page.getUri(), uriIds, uris);
+            for (String word : page.getWords()) {
+                intern(word, termIds, terms);
+            }
+            for (URI link : page.getLinks()) {
+                intern(link, uriIds, uris);
+            }
+        }
+
+        BinaryFiles.writeAtomically(segmentPath, "page segment", out -> {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(sourceFileCount);
+            out.writeInt(pages.size());
+            out.writeInt(terms.size());
+            out.writeInt(uris.size());
+
+            for (String term : terms) {
+                BinaryFiles.writeString(out, term);
+            }
+            for (URI uri : uris) {
+                BinaryFiles.writeString(out, uri.toString());
+            }
+
+            for (Webpage page : pages) {
+                out.writeInt(uriIds.get(page.getUri()));
+                BinaryFiles.writeString(out, page.getSummary().getTitle());
+                BinaryFiles.writeString(out, page.getSummary().getBlurb());
+                out.writeInt(page.getWords().size());
+                out.writeInt(page.getLinks().size());
+                for (String word : page.getWords()) {
+                    out.writeInt(termIds.get(word));
+                }
+                for (URI link : page.getLinks()) {
+                    out.writeInt(uriIds.get(link));
+                }
+            }
+        });
+    }
+
+    /**
+     * Loads every page stored in the segment at 'segmentPath'.
+     */
+    public static ISet<Webpage> load(Path segmentPath) {
+        MappedByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(segmentPath, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not open page segment " + segmentPath, ex);
+        }
+
+        try {
+            return read(buffer, segmentPath);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | IndexOutOfBoundsException | NegativeArraySizeException ex) {
+            // A truncated or damaged file: whatever length, count or ID we tripped over was garbage
+            throw new DataExtractionException("Corrupt page segment " + segmentPath, ex);
+        }
+    }
+
+    private static ISet<Webpage> read(ByteBuffer buffer, Path segmentPath) {
+        if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+            throw new DataExtractionException("Not a page segment (or an unsupported version): " + segmentPath);
+        }
+        buffer.getInt(); // source file count: only used by isFresh(...)
+        int pageCount = buffer.getInt();
+        int termCount = buffer.getInt();
+        int uriCount = buffer.getInt();
+        if (pageCount < 0 || termCount < 0 || uriCount < 0
+                || (long) pageCount + termCount + uriCount > buffer.remaining()) {
+            // Checked up front so a garbage count can't make us allocate huge arrays
+            throw new DataExtractionException("Corrupt page segment " + segmentPath);
+        }
+
+        String[] terms = new String[termCount];
+        for (int i = 0; i < termCount; i++) {
+            terms[i] = BinaryFiles.readString(buffer);
+        }
+        URI[] uris = new URI[uriCount];
+        for (int i = 0; i < uriCount; i++) {
+            uris[i] = URI.create(BinaryFiles.readString(buffer));
+        }
+
+        ISet<Webpage> pages = new ChainedHashSet<>(pageCount + 1, 0.75, false);
+        for (int i = 0; i < pageCount; i++) {
+            URI pageUri = uris[buffer.getInt()];
+            String title = BinaryFiles.readString(buffer);
+            String blurb = BinaryFiles.readString(buffer);
+            int wordCount = buffer.getInt();
+            int linkCount = buffer.getInt();
+
+            IList<String> words = new InternedList<>(terms, sliceIds(buffer, wordCount, termCount));
+            IList<URI> links = new InternedList<>(uris, sliceIds(buffer, linkCount, uriCount));
+            pages.add(new Webpage(pageUri, links, words, title, blurb));
+        }
+        return pages;
+    }
+
+    private static <T> void intern(T item, IDictionary<T, Integer> ids, IList<T> table) {
+        if (!ids.containsKey(item)) {
+            ids.put(item, table.size());
+            table.add(item);
+        }
+    }
+
+    /**
+     * Returns a view of the next 'count' integers in the buffer and skips past them.
+     *
+     * @throws IndexOutOfBoundsException  if any of them isn't a valid ID in a table of 'tableSize' entries
+     */
+    private static IntBuffer sliceIds(ByteBuffer buffer, int count, int tableSize) {
+        if (count < 0 || (long) count * 4 > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        ByteBuffer view = buffer.duplicate();
+        view.limit(view.position() + count * 4);
+        buffer.position(buffer.position() + count * 4);
+        IntBuffer ids = view.slice().asIntBuffer();
+        // InternedList only looks IDs up when they're read, long after loading, so
+        // check them now while a bad one can still be blamed on the file
+        for (int i = 0; i < count; i++) {
+            int id = ids.get(i);
+            if (id < 0 || id >= tableSize) {
+                throw new IndexOutOfBoundsException("ID " + id + " is not in a table of " + tableSize);
+            }
+        }
+        return ids;
+    }
+}
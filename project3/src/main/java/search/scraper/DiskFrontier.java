@@ -0,0 +1,389 @@
+package search.scraper;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.IPriorityQueue;
+import datastructures.interfaces.ISet;
+import misc.exceptions.EmptyContainerException;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.function.Consumer;
+
+/**
+ * A crawl frontier that keeps most of its URIs on disk, and can be checkpointed so a
+ * restarted crawl picks up exactly where the last checkpoint left off.
+ *
+ * URIs are kept in one first-in-first-out queue per distance, and removeMin() always
+ * takes from the queue with the smallest distance. Each queue is split into segments
+ * of at most 'segmentSize' URIs: only the segment being read from and the segment
+ * being appended to are in memory, and every full segment in between waits on disk.
+ * So memory use depends on the number of distinct distances, not the number of URIs.
+ *
+ * checkpoint(...) writes the in-memory segments to disk too, then atomically replaces
+ * the manifest file listing every segment of every queue, and then deletes any segment
+ * files the new manifest doesn't list. Creating a DiskFrontier over a directory holding
+ * a manifest restores the frontier as of that checkpoint.
+ *
+ * This class is not thread-safe.
+ */
+public class DiskFrontier implements IPriorityQueue<PendingUri> {
+    public static final int DEFAULT_SEGMENT_SIZE = 4096;
+
+    private static final String MANIFEST_NAME = "frontier.ckpt";
+    private static final String SEGMENT_SUFFIX = ".queue";
+
+    private final Path directory;
+    private final int segmentSize;
+
+    private IDictionary<Integer, SegmentQueue> queues;
+
+    // Every distance whose queue is non-empty, exactly once
+    private IPriorityQueue<Integer> distances;
+
+    private int size;
+    private long nextSegmentId;
+    private boolean restored;
+    private long checkpointMarker;
+
+    /**
+     * Creates a frontier keeping its segments in 'directory', restoring the last
+     * checkpoint written there if there is one.
+     */
+    public DiskFrontier(Path directory, int segmentSize) {
+        if (segmentSize < 1) {
+            throw new IllegalArgumentException("Segments must hold at least one URI, got " + segmentSize);
+        }
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.queues = new ChainedHashDictionary<>();
+        this.distances = new ArrayHeap<>();
+        this.size = 0;
+        this.nextSegmentId = 0;
+        this.restored = false;
+        this.checkpointMarker = 0;
+
+        try {
+            Files.createDirectories(directory);
+            Path manifest = directory.resolve(MANIFEST_NAME);
+            if (Files.exists(manifest)) {
+                this.loadManifest(manifest);
+                this.restored = true;
+            }
+            // Left over from a checkpoint that crashed before finishing, or consumed since
+            this.deleteUnlistedSegments();
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not open crawl frontier in " + directory, ex);
+        }
+    }
+
+    /**
+     * Returns 'true' if this frontier was restored from a checkpoint.
+     */
+    public boolean wasRestored() {
+        return this.restored;
+    }
+
+    /**
+     * Returns the marker passed to the checkpoint this frontier was restored from, or
+     * 0 if it wasn't restored.
+     */
+    public long getCheckpointMarker() {
+        return this.checkpointMarker;
+    }
+
+    @Override
+    public PendingUri removeMin() {
+        PendingUri min = this.peekMin();
+        SegmentQueue queue = this.queues.get(min.distance);
+        queue.removeFirst();
+        if (queue.size == 0) {
+            this.distances.removeMin();
+        }
+        this.size--;
+        return min;
+    }
+
+    @Override
+    public PendingUri peekMin() {
+        if (this.size == 0) {
+            throw new EmptyContainerException();
+        }
+        int distance = this.distances.peekMin();
+        return new PendingUri(distance, this.queues.get(distance).peekFirst());
+    }
+
+    @Override
+    public void insert(PendingUri item) {
+        if (item == null) {
+            throw new IllegalArgumentException();
+        }
+        SegmentQueue queue = this.getQueue(item.distance);
+        if (queue.size == 0) {
+            this.distances.insert(item.distance);
+        }
+        queue.add(item.uri);
+        this.size++;
+    }
+
+    @Override
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Passes every URI in the frontier to 'visitor', in no particular order. Segments
+     * on disk are read one at a time.
+     */
+    public void forEach(Consumer<PendingUri> visitor) {
+        for (int distance : this.queueDistances()) {
+            SegmentQueue queue = this.queues.get(distance);
+            for (URI uri : queue.head) {
+                visitor.accept(new PendingUri(distance, uri));
+            }
+            for (Segment segment : queue.segments) {
+                for (URI uri : this.readSegment(segment)) {
+                    visitor.accept(new PendingUri(distance, uri));
+                }
+            }
+            for (URI uri : queue.tail) {
+                visitor.accept(new PendingUri(distance, uri));
+            }
+        }
+    }
+
+    /**
+     * Saves the frontier to disk, along with 'marker', which getCheckpointMarker()
+     * returns once the frontier is restored. Callers can use the marker to record how
+     * far the rest of the crawl had got at the time of the checkpoint.
+     */
+    public void checkpoint(long marker) {
+        try {
+            StringBuilder manifest = new StringBuilder();
+            manifest.append(marker).append('\n');
+            for (int distance : this.queueDistances()) {
+                SegmentQueue queue = this.queues.get(distance);
+                if (queue.size == 0) {
+                    continue;
+                }
+
+                // The unread part of the head and the whole tail only exist in memory;
+                // give each its own segment file, leaving them in memory as well
+                if (!queue.head.isEmpty()) {
+                    this.appendToManifest(manifest, distance, this.writeSegment(queue.head));
+                }
+                for (Segment segment : queue.segments) {
+                    this.appendToManifest(manifest, distance, segment);
+                }
+                if (!queue.tail.isEmpty()) {
+                    this.appendToManifest(manifest, distance, this.writeSegment(queue.tail));
+                }
+            }
+
+            Path manifestPath = this.directory.resolve(MANIFEST_NAME);
+            Path tempPath = this.directory.resolve(MANIFEST_NAME + ".tmp");
+            Files.write(tempPath, manifest.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(tempPath, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.checkpointMarker = marker;
+
+            this.deleteUnlistedSegments();
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not checkpoint crawl frontier in " + this.directory, ex);
+        }
+    }
+
+    private SegmentQueue getQueue(int distance) {
+        SegmentQueue queue = this.queues.getOrDefault(distance, null);
+        if (queue == null) {
+            queue = new SegmentQueue();
+            this.queues.put(distance, queue);
+        }
+        return queue;
+    }
+
+    private IList<Integer> queueDistances() {
+        IList<Integer> out = new DoubleLinkedList<>();
+        for (KVPair<Integer, SegmentQueue> pair : this.queues) {
+            out.add(pair.getKey());
+        }
+        return out;
+    }
+
+    private void appendToManifest(StringBuilder manifest, int distance, Segment segment) {
+        manifest.append(distance).append(' ')
+                .append(segment.path.getFileName()).append(' ')
+                .append(segment.count).append('\n');
+    }
+
+    private void loadManifest(Path manifest) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            if (line == null) {
+                throw new DataExtractionException("Empty frontier manifest " + manifest);
+            }
+            this.checkpointMarker = Long.parseLong(line.trim());
+
+            line = reader.readLine();
+            while (line != null) {
+                String[] parts = line.trim().split(" ");
+                if (parts.length != 3) {
+                    throw new DataExtractionException("Malformed frontier manifest line: " + line);
+                }
+                int distance = Integer.parseInt(parts[0]);
+                Segment segment = new Segment(this.directory.resolve(parts[1]), Integer.parseInt(parts[2]));
+
+                SegmentQueue queue = this.getQueue(distance);
+                if (queue.size == 0) {
+                    this.distances.insert(distance);
+                }
+                queue.segments.add(segment);
+                queue.size += segment.count;
+                this.size += segment.count;
+                this.nextSegmentId = Math.max(this.nextSegmentId, segmentId(segment.path) + 1);
+                line = reader.readLine();
+            }
+        } catch (NumberFormatException ex) {
+            throw new DataExtractionException("Malformed frontier manifest " + manifest, ex);
+        }
+    }
+
+    /**
+     * Deletes every segment file the manifest doesn't list. Segments that have been
+     * read into memory since the manifest was written are kept until the next
+     * checkpoint, since restoring the manifest needs them.
+     */
+    private void deleteUnlistedSegments() throws IOException {
+        ISet<Path> listed = new ChainedHashSet<>();
+        Path manifest = this.directory.resolve(MANIFEST_NAME);
+        if (Files.exists(manifest)) {
+            try (BufferedReader reader = Files.newBufferedReader(manifest, StandardCharsets.UTF_8)) {
+                reader.readLine();
+                String line = reader.readLine();
+                while (line != null) {
+                    listed.add(this.directory.resolve(line.trim().split(" ")[1]).getFileName());
+                    line = reader.readLine();
+                }
+            }
+        }
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                if (!listed.contains(file.getFileName())) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private Segment writeSegment(IList<URI> uris) {
+        Path path = this.directory.resolve(this.nextSegmentId + SEGMENT_SUFFIX);
+        this.nextSegmentId++;
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+            for (URI uri : uris) {
+                writer.write(uri.toString());
+                writer.write('\n');
+            }
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not write frontier segment " + path, ex);
+        }
+        return new Segment(path, uris.size());
+    }
+
+    private IList<URI> readSegment(Segment segment) {
+        IList<URI> out = new DoubleLinkedList<>();
+        try (BufferedReader reader = Files.newBufferedReader(segment.path, StandardCharsets.UTF_8)) {
+            String line = reader.readLine();
+            while (line != null) {
+                out.add(URI.create(line));
+                line = reader.readLine();
+            }
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not read frontier segment " + segment.path, ex);
+        }
+        if (out.size() != segment.count) {
+            throw new DataExtractionException(String.format(
+                    "Frontier segment %s holds %d URIs, expected %d", segment.path, out.size(), segment.count));
+        }
+        return out;
+    }
+
+    private static long segmentId(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    /**
+     * A file holding 'count' URIs, one per line.
+     */
+    private static class Segment {
+        public final Path path;
+        public final int count;
+
+        public Segment(Path path, int count) {
+            this.path = path;
+            this.count = count;
+        }
+    }
+
+    /**
+     * The queue of URIs at one distance.
+     */
+    private class SegmentQueue {
+        // What's left of the segment currently being read from
+        public IList<URI> head = new DoubleLinkedList<>();
+
+        // Full segments waiting on disk, oldest first
+        public IList<Segment> segments = new DoubleLinkedList<>();
+
+        // The segment currently being appended to
+        public IList<URI> tail = new DoubleLinkedList<>();
+
+        public int size = 0;
+
+        public void add(URI uri) {
+            this.tail.add(uri);
+            this.size++;
+            if (this.tail.size() >= segmentSize) {
+                this.segments.add(writeSegment(this.tail));
+                this.tail = new DoubleLinkedList<>();
+            }
+        }
+
+        public URI peekFirst() {
+            this.fillHead();
+            return this.head.get(0);
+        }
+
+        public void removeFirst() {
+            this.fillHead();
+            this.head.delete(0);
+            this.size--;
+        }
+
+        private void fillHead() {
+            if (!this.head.isEmpty()) {
+                return;
+            }
+            if (!this.segments.isEmpty()) {
+                // The file stays until the next checkpoint, since the last one may list it
+                this.head = readSegment(this.segments.delete(0));
+            } else {
+                this.head = this.tail;
+                this.tail = new DoubleLinkedList<>();
+            }
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package search.scraper;
+
+/**
+ * The outcome of one (possibly conditional) page fetch: either a new body, or word
+ * from the server that the copy we already have is still current.
+ *
+ * The validators are whatever the server sent back, and are null if it sent none.
+ * Pass them to the next HttpRequester.fetch(...) of the same URI to ask only for a
+ * changed page.
+ */
+public class FetchResult {
+    private final String body;
+    private final String etag;
+    private final String lastModified;
+
+    public FetchResult(String body, String etag, String lastModified) {
+        this.body = body;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Returns the page's body, or null if the server said it hasn't changed.
+     */
+    public String getBody() {
+        return this.body;
+    }
+
+    public String getEtag() {
+        return this.etag;
+    }
+
+    public String getLastModified() {
+        return this.lastModified;
+    }
+
+    /**
+     * Returns 'true' if the server answered "304 Not Modified".
+     */
+    public boolean isNotModified() {
+        return this.body == null;
+    }
+}
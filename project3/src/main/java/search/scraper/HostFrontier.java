@@ -0,0 +1,156 @@
+package search.scraper;
+
+import datastructures.concrete.ArrayHeap;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IPriorityQueue;
+
+/**
+ * The set of URIs waiting to be crawled by several threads at once, split into one
+ * queue per host.
+ *
+ * Each host is handed to at most one thread at a time, and is only handed out
+ * again 'delayMilliseconds' after that thread finished with it. Hosts waiting for
+ * their delay to pass are kept in a heap ordered by when they become ready, so
+ * threads always pick up whichever host can be fetched from soonest instead of
+ * sleeping on a host that isn't ready yet.
+ *
+ * Within a host, URIs closer to a seed are handed out first.
+ *
+ * All methods are thread-safe.
+ */
+public class HostFrontier {
+    private final long delayMilliseconds;
+
+    private IDictionary<String, IPriorityQueue<PendingUri>> queues;
+
+    // Hosts with pending URIs that no thread is currently working on
+    private IPriorityQueue<ReadyHost> ready;
+
+    // When each host we've ever fetched from may next be fetched from
+    private IDictionary<String, Long> readyTimes;
+
+    // Hosts that are either in 'ready' or currently handed out to a thread
+    private IDictionary<String, Boolean> active;
+
+    private int size;
+    private int inProgress;
+    private boolean closed;
+
+    public HostFrontier(long delayMilliseconds) {
+        this.delayMilliseconds = delayMilliseconds;
+        this.queues = new ChainedHashDictionary<>();
+        this.ready = new ArrayHeap<>();
+        this.readyTimes = new ChainedHashDictionary<>();
+        this.active = new ChainedHashDictionary<>();
+        this.size = 0;
+        this.inProgress = 0;
+        this.closed = false;
+    }
+
+    /**
+     * Adds a URI to its host's queue.
+     */
+    public synchronized void add(PendingUri pending) {
+        String host = pending.uri.getHost();
+        IPriorityQueue<PendingUri> queue = this.queues.getOrDefault(host, null);
+        if (queue == null) {
+            queue = new ArrayHeap<>();
+            this.queues.put(host, queue);
+        }
+        queue.insert(pending);
+        this.size++;
+
+        if (!this.active.containsKey(host)) {
+            this.active.put(host, true);
+            this.ready.insert(new ReadyHost(host, this.readyTimes.getOrDefault(host, 0L)));
+            this.notifyAll();
+        }
+    }
+
+    /**
+     * Waits until some host is ready, then returns that host's next URI. The caller
+     * now owns the host, and must call release(...) once it is done making requests
+     * to it. The caller must also call finish() once it has added every link found
+     * on the page (or given up on the page).
+     *
+     * Returns null once the frontier has been closed, or once it is empty and every
+     * URI handed out has been finished (so nobody can add any more URIs).
+     */
+    public synchronized PendingUri take() throws InterruptedException {
+        while (true) {
+            if (this.closed || (this.ready.isEmpty() && this.inProgress == 0)) {
+                return null;
+            }
+            if (this.ready.isEmpty()) {
+                this.wait();
+                continue;
+            }
+
+            long timeLeft = this.ready.peekMin().readyTime - System.currentTimeMillis();
+            if (timeLeft > 0) {
+                this.wait(timeLeft);
+                continue;
+            }
+
+            ReadyHost host = this.ready.removeMin();
+            this.inProgress++;
+            this.size--;
+            return this.queues.get(host.host).removeMin();
+        }
+    }
+
+    /**
+     * Returns ownership of the given URI's host, which becomes ready again after the
+     * delay if it has more URIs pending.
+     */
+    public synchronized void release(PendingUri pending) {
+        String host = pending.uri.getHost();
+        long readyTime = System.currentTimeMillis() + this.delayMilliseconds;
+        this.readyTimes.put(host, readyTime);
+
+        if (this.queues.get(host).isEmpty()) {
+            this.active.remove(host);
+        } else {
+            this.ready.insert(new ReadyHost(host, readyTime));
+        }
+        this.notifyAll();
+    }
+
+    /**
+     * Marks one URI returned by take() as completely handled.
+     */
+    public synchronized void finish() {
+        this.inProgress--;
+        this.notifyAll();
+    }
+
+    /**
+     * Makes every current and future call to take() return null.
+     */
+    public synchronized void close() {
+        this.closed = true;
+        this.notifyAll();
+    }
+
+    /**
+     * Returns the number of URIs waiting to be handed out.
+     */
+    public synchronized int size() {
+        return this.size;
+    }
+
+    private static class ReadyHost implements Comparable<ReadyHost> {
+        public final String host;
+        public final long readyTime;
+
+        public ReadyHost(String host, long readyTime) {
+            this.host = host;
+            this.readyTime = readyTime;
+        }
+
+        public int compareTo(ReadyHost other) {
+            return Long.compare(this.readyTime, other.readyTime);
+        }
+    }
+}
@@ -1,34 +1,78 @@
 package search.scraper;
 
-import datastructures.concrete.dictionaries.ChainedHashDictionary;
-import datastructures.interfaces.IDictionary;
+import datastructures.concrete.dictionaries.ConcurrentChainedHashDictionary;
+import datastructures.interfaces.IConcurrentDictionary;
 import datastructures.interfaces.ISet;
+import org.apache.http.Header;
 import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
 import org.apache.http.client.config.RequestConfig;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.entity.ContentType;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+/**
+ * Fetches webpages over HTTP, obeying each host's robots.txt and waiting at least
+ * 'delayMilliseconds' between consecutive requests to the same host.
+ *
+ * Connections are pooled and kept alive between requests to the same host, and
+ * responses are decompressed if the server gzipped or deflated them. (Brotli isn't
+ * supported: HttpClient has no decoder for it, so we never ask for it.) Bodies are
+ * read as they arrive, and we give up on any page larger than MAX_BODY_BYTES.
+ *
+ * Pages can be fetched conditionally with fetch(...), which passes along the ETag and
+ * Last-Modified validators from an earlier fetch so an unchanged page costs a bodyless
+ * "304 Not Modified" instead of a full download.
+ *
+ * Each host's robots.txt is fetched in the background, as soon as prefetchRobots(...)
+ * or makeRequest(...) first mentions the host, and is cached for ROBOTS_TTL_MILLIS.
+ * After that we keep using the old copy while a new one downloads.
+ *
+ * This class is thread-safe: requests to different hosts may run at the same time,
+ * while requests to the same host are spaced out as usual.
+ */
 public class HttpRequester implements AutoCloseable {
     public static final String DEFAULT_USER_AGENT = "Cse373Crawler (contact mlee42@cs.washington.edu)";
     public static final long DEFAULT_DELAY = 1000; // 1 second
 
+    public static final int MAX_CONNECTIONS = 200;
+    // One for pages (which we only fetch one at a time per host) and one for robots.txt
+    public static final int MAX_CONNECTIONS_PER_HOST = 2;
+    public static final long KEEP_ALIVE_MILLIS = 30000;
+    public static final int MAX_BODY_BYTES = 8 * 1024 * 1024;
+    public static final long ROBOTS_TTL_MILLIS = 24 * 60 * 60 * 1000;
+    private static final int ROBOTS_THREADS = 4;
+
     private final String userAgent;
     private final long delayMilliseconds;
 
     // Internal state
-    private long lastRequestTimestamp;
+    private IConcurrentDictionary<String, HostTimer> hostTimers;
     private CloseableHttpClient client;
 
     private UriMatchRule defaultMatchRule;
-    private IDictionary<String, UriMatchRule> matchPattern;
+    private IConcurrentDictionary<String, RobotsRule> matchPattern;
+    private ExecutorService robotsFetcher;
     private ISet<String> allowableContentTypes;
 
     public HttpRequester() {
@@ -45,12 +89,30 @@ public class HttpRequester implements AutoCloseable {
 
         this.userAgent = userAgent;
         this.delayMilliseconds = delayMilliseconds;
-        this.lastRequestTimestamp = 0L;
-        this.matchPattern = new ChainedHashDictionary<>();
+        this.hostTimers = new ConcurrentChainedHashDictionary<>();
+        this.matchPattern = new ConcurrentChainedHashDictionary<>();
+        this.robotsFetcher = Executors.newFixedThreadPool(ROBOTS_THREADS, task -> {
+            Thread thread = new Thread(task, "robots-fetcher");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         // HTTP config
+        PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager();
+        connections.setMaxTotal(MAX_CONNECTIONS);
+        connections.setDefaultMaxPerRoute(MAX_CONNECTIONS_PER_HOST);
+
+        // Content compression (gzip and deflate) is on by default
         this.client = HttpClients.custom()
                 .setUserAgent(userAgent)
+                .setConnectionManager(connections)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE
+                            .getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, KEEP_ALIVE_MILLIS) : KEEP_ALIVE_MILLIS;
+                })
+                .evictExpiredConnections()
+                .evictIdleConnections(KEEP_ALIVE_MILLIS, TimeUnit.MILLISECONDS)
                 .setDefaultRequestConfig(RequestConfig
                         .copy(RequestConfig.DEFAULT)
                         .setConnectionRequestTimeout(5000)
@@ -63,35 +125,70 @@ public class HttpRequester implements AutoCloseable {
     }
 
     public String makeRequest(URI uri) throws IOException, URISyntaxException {
+        FetchResult result = this.fetch(uri, null, null);
+        return result == null ? null : result.getBody();
+    }
+
+    /**
+     * Fetches the page like makeRequest(...), but if 'etag' or 'lastModified' is
+     * non-null, only asks for the body if the page has changed since the server sent
+     * those validators (using If-None-Match and If-Modified-Since).
+     *
+     * Returns null if the page can't be fetched, or a FetchResult with no body if the
+     * server said it hasn't changed.
+     */
+    public FetchResult fetch(URI uri, String etag, String lastModified) throws IOException, URISyntaxException {
         if (this.isBlacklistedUri(uri)) {
             System.out.println("Is blacklisted uri: " + uri);
             return null;
         } else {
             System.out.println("Is ok uri: " + uri);
         }
-        this.respectDelay();
-        return this.rawHttpRequest(uri);
+        this.respectDelay(uri.getHost());
+        return this.rawHttpRequest(uri, etag, lastModified);
     }
 
-    private void respectDelay() {
-        long current = System.currentTimeMillis();
+    /**
+     * Starts fetching the robots.txt of the given URI's host in the background, unless
+     * we already have it. Call this as soon as a host is discovered, so its rules are
+     * ready by the time we fetch from it.
+     */
+    public void prefetchRobots(URI uri) {
+        if (this.defaultMatchRule.matches(uri)) {
+            this.getRobotsRule(uri);
+        }
+    }
 
-        long timeElapsed = current - this.lastRequestTimestamp;
-        long timeLeft = this.delayMilliseconds - timeElapsed;
+    /**
+     * Returns the minimum time between two requests to the same host.
+     */
+    public long getDelayMilliseconds() {
+        return this.delayMilliseconds;
+    }
 
-        if (timeLeft > 0) {
-            try {
-                Thread.sleep(timeLeft);
-            } catch (InterruptedException ex) {
-                throw new RuntimeException(ex);
-            }
-        }
-        this.lastRequestTimestamp = System.currentTimeMillis();
+    private void respectDelay(String host) {
+        this.hostTimers.computeIfAbsent(host, key -> new HostTimer()).await(this.delayMilliseconds);
     }
 
-    private String rawHttpRequest(URI uri) throws IOException, URISyntaxException {
+    private FetchResult rawHttpRequest(URI uri, String etag, String lastModified)
+            throws IOException, URISyntaxException {
         HttpGet request = new HttpGet(uri);
+        if (etag != null) {
+            request.setHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        }
+        if (lastModified != null) {
+            request.setHeader(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+        }
         try (CloseableHttpResponse response = this.client.execute(request)) {
+            String newEtag = headerValue(response, HttpHeaders.ETAG);
+            String newLastModified = headerValue(response, HttpHeaders.LAST_MODIFIED);
+            if (response.getStatusLine().getStatusCode() == HttpStatus.SC_NOT_MODIFIED) {
+                // A 304 may leave out validators that haven't changed
+                return new FetchResult(null,
+                        newEtag != null ? newEtag : etag,
+                        newLastModified != null ? newLastModified : lastModified);
+            }
+
             HttpEntity entity = response.getEntity();
             if (entity == null) {
                 throw new IOException("Response had no entity");
@@ -104,38 +201,167 @@ public class HttpRequester implements AutoCloseable {
                 return null;
             }
 
-            return EntityUtils.toString(entity, "UTF-8");
+            long length = entity.getContentLength();
+            if (length > MAX_BODY_BYTES) {
+                System.out.println(String.format("Skipping '%s'; body is %d bytes", uri, length));
+                return null;
+            }
+            String body = this.readBody(uri, entity, contentType);
+            return body == null ? null : new FetchResult(body, newEtag, newLastModified);
+        }
+    }
+
+    private static String headerValue(HttpResponse response, String name) {
+        Header header = response.getFirstHeader(name);
+        return header == null ? null : header.getValue();
+    }
+
+    /**
+     * Reads the entity's body as a string, or returns null if it's more than
+     * MAX_BODY_BYTES long.
+     */
+    private String readBody(URI uri, HttpEntity entity, ContentType contentType) throws IOException {
+        long length = entity.getContentLength();
+        byte[] buffer = new byte[length >= 0 ? (int) length + 1 : 16 * 1024];
+        int size = 0;
+
+        // Closing the stream early would read (and throw away) the rest of the body so
+        // the connection can be reused. If the body is too big we'd rather not, so we
+        // only close it once we've read everything; otherwise closing the response
+        // just drops the connection.
+        InputStream in = entity.getContent();
+        while (true) {
+            if (size == buffer.length) {
+                if (size > MAX_BODY_BYTES) {
+                    System.out.println(String.format("Skipping '%s'; body is over %d bytes", uri, MAX_BODY_BYTES));
+                    return null;
+                }
+                buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, MAX_BODY_BYTES + 1));
+            }
+            int read = in.read(buffer, size, buffer.length - size);
+            if (read < 0) {
+                break;
+            }
+            size += read;
         }
+        in.close();
+
+        Charset charset = contentType.getCharset() != null ? contentType.getCharset() : StandardCharsets.UTF_8;
+        return new String(buffer, 0, size, charset);
     }
 
     private boolean isBlacklistedUri(URI uri) {
-        String host = uri.getHost();
         if (!this.defaultMatchRule.matches(uri)) {
             return false;
         }
-        if (!this.matchPattern.containsKey(host)) {
+        UriMatchRule rule;
+        try {
+            rule = this.getRobotsRule(uri).rule.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(ex);
+        } catch (ExecutionException ex) {
+            throw new RuntimeException(ex.getCause());
+        }
+        return !rule.matches(uri);
+    }
+
+    /**
+     * Returns the cached robots.txt rules of the given URI's host, starting to fetch
+     * them if we don't have them yet, or fetching a new copy in the background if
+     * they've expired.
+     */
+    private RobotsRule getRobotsRule(URI uri) {
+        String host = uri.getHost();
+        RobotsRule cached = this.matchPattern.computeIfAbsent(host, key -> this.fetchRobots(uri));
+        if (cached.expiresAt <= System.currentTimeMillis() && cached.refreshing.compareAndSet(false, true)) {
+            RobotsRule refreshed = this.fetchRobots(uri);
+            refreshed.rule.whenComplete((rule, ex) -> {
+                if (ex == null) {
+                    this.matchPattern.put(host, refreshed);
+                } else {
+                    // Keep the old rules, and try again next time
+                    cached.refreshing.set(false);
+                }
+            });
+        }
+        return cached;
+    }
+
+    private RobotsRule fetchRobots(URI uri) {
+        CompletableFuture<UriMatchRule> rule = CompletableFuture.supplyAsync(() -> {
             String robotsContents;
             try {
-                robotsContents = this.rawHttpRequest(uri.resolve("/robots.txt"));
+                FetchResult robots = this.rawHttpRequest(uri.resolve("/robots.txt"), null, null);
+                robotsContents = robots == null ? null : robots.getBody();
             } catch (IOException | URISyntaxException ex) {
-                throw new RuntimeException(ex);
+                // Treat an unreachable robots.txt like a missing one
+                System.out.println(String.format("Unable to fetch robots.txt for '%s': %s", uri.getHost(), ex));
+                robotsContents = null;
             }
-            UriMatchRule newRule;
             if (robotsContents == null) {
-                newRule = new UriMatchRule(null, null);
+                return new UriMatchRule(null, null);
             } else {
-                newRule = new RobotsTxt(this.userAgent, robotsContents).getMatchRule();
+                return new RobotsTxt(this.userAgent, robotsContents).getMatchRule();
             }
-            this.matchPattern.put(host, newRule);
-        }
-        return !this.matchPattern.get(host).matches(uri);
+        }, this.robotsFetcher);
+        return new RobotsRule(rule, System.currentTimeMillis() + ROBOTS_TTL_MILLIS);
     }
 
-
     public void close() throws IOException {
+        this.robotsFetcher.shutdownNow();
         if (this.client != null) {
             this.client.close();
             this.client = null;
         }
     }
+
+    /**
+     * The robots.txt rules of one host, which may still be downloading.
+     */
+    private static class RobotsRule {
+        public final CompletableFuture<UriMatchRule> rule;
+        public final long expiresAt;
+
+        // Set once we've started fetching a replacement
+        public final AtomicBoolean refreshing;
+
+        public RobotsRule(CompletableFuture<UriMatchRule> rule, long expiresAt) {
+            this.rule = rule;
+            this.expiresAt = expiresAt;
+            this.refreshing = new AtomicBoolean(false);
+        }
+    }
+
+    /**
+     * Tracks when we last sent a request to one host.
+     */
+    private static class HostTimer {
+        private long lastRequestTimestamp;
+
+        public HostTimer() {
+            this.lastRequestTimestamp = 0L;
+        }
+
+        /**
+         * Sleeps until at least 'delayMilliseconds' have passed since the last request
+         * to this host, then records a new request. Threads waiting on the same host
+         * take turns.
+         */
+        public synchronized void await(long delayMilliseconds) {
+            long current = System.currentTimeMillis();
+
+            long timeElapsed = current - this.lastRequestTimestamp;
+            long timeLeft = delayMilliseconds - timeElapsed;
+
+            if (timeLeft > 0) {
+                try {
+                    Thread.sleep(timeLeft);
+                } catch (InterruptedException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+            this.lastRequestTimestamp = System.currentTimeMillis();
+        }
+    }
 }
@@ -0,0 +1,24 @@
+package search.scraper;
+
+import java.net.URI;
+
+/**
+ * A URI waiting to be crawled, along with the number of links we followed from a
+ * seed to find it. Pages closer to a seed are crawled first.
+ */
+public class PendingUri implements Comparable<PendingUri> {
+    public final int distance;
+    public final URI uri;
+
+    public PendingUri(int distance, URI uri) {
+        if (uri == null) {
+            throw new IllegalArgumentException();
+        }
+        this.distance = distance;
+        this.uri = uri;
+    }
+
+    public int compareTo(PendingUri other) {
+        return Integer.compare(this.distance, other.distance);
+    }
+}
@@ -2,6 +2,10 @@ package search.scraper;
 
 import datastructures.concrete.ArrayHeap;
 import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
 import datastructures.interfaces.IPriorityQueue;
 import datastructures.interfaces.ISet;
 import search.misc.WebUtils;
@@ -12,28 +16,100 @@ import org.jsoup.nodes.Document;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.net.URISyntaxException;
 import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class Scraper {
+    // Pages the crawl pipeline may hold between two stages
+    public static final int QUEUE_CAPACITY = 64;
+    public static final int DEFAULT_PARSE_THREADS = 2;
+    public static final int DEFAULT_SAVE_THREADS = 1;
+    public static final long REPORT_INTERVAL_MILLIS = 5000;
+    private static final long ABORT_CHECK_MILLIS = 100;
+
+    public static final String FRONTIER_FOLDER_NAME = "frontier";
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100;
+
     private Path outputPath;
     private IPriorityQueue<PendingUri> pendingUris;
     private ISet<String> domainWhitelist;
-    private ISet<URI> alreadyEncountered;
+    private SeenUriSet alreadyEncountered;
     private HttpRequester requester;
+    private IList<StageStats> stageStats;
+
+    // Only set once checkpointFrontier(...) is called; the same object as pendingUris
+    private DiskFrontier diskFrontier;
+    private int checkpointInterval;
 
     public Scraper(Path outputPath) {
+        this(outputPath, new HttpRequester());
+    }
+
+    public Scraper(Path outputPath, HttpRequester requester) {
+        this(outputPath, requester, new SeenUriSet());
+    }
+
+    /**
+     * Creates a scraper that records the URIs it has seen in 'alreadyEncountered'
+     * (which should be empty). Pass a SeenUriSet that spills to disk for crawls too
+     * large to remember every URI in memory.
+     */
+    public Scraper(Path outputPath, HttpRequester requester, SeenUriSet alreadyEncountered) {
         this.outputPath = outputPath;
         this.pendingUris = new ArrayHeap<>();
         this.domainWhitelist = new ChainedHashSet<>();
-        this.requester = new HttpRequester();
-        this.alreadyEncountered = new ChainedHashSet<>();
+        this.requester = requester;
+        this.stageStats = new DoubleLinkedList<>();
+        this.alreadyEncountered = alreadyEncountered;
+        this.diskFrontier = null;
+        this.checkpointInterval = 0;
+    }
+
+    /**
+     * Keeps pending URIs in a DiskFrontier in the output folder instead of in memory,
+     * and makes run(limit) checkpoint it every 'checkpointInterval' saved pages (and
+     * once more when it finishes).
+     *
+     * If the output folder already holds a checkpoint, the crawl resumes from it:
+     * seeds are ignored, and pages saved after the checkpoint are read back from disk
+     * instead of being fetched again, so the crawl continues exactly where it stopped.
+     */
+    public Scraper checkpointFrontier(int segmentSize, int checkpointInterval) {
+        if (checkpointInterval < 1) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive, got " + checkpointInterval);
+        }
+        DiskFrontier frontier = new DiskFrontier(this.outputPath.resolve(FRONTIER_FOLDER_NAME), segmentSize);
+        if (frontier.wasRestored()) {
+            System.out.println(String.format("Resuming crawl with %d pending URIs", frontier.size()));
+        } else {
+            while (!this.pendingUris.isEmpty()) {
+                frontier.insert(this.pendingUris.removeMin());
+            }
+        }
+        this.pendingUris = frontier;
+        this.diskFrontier = frontier;
+        this.checkpointInterval = checkpointInterval;
+        return this;
     }
 
     public Scraper addSeedUri(URI uri) {
@@ -41,6 +117,10 @@ public class Scraper {
         if (!normalizedUri.isPresent()) {
             throw new IllegalArgumentException("URI is malformed: " + uri);
         }
+        if (this.diskFrontier != null && this.diskFrontier.wasRestored()) {
+            System.out.println(String.format("Ignoring seed '%s'; resuming a checkpointed crawl", uri));
+            return this;
+        }
         this.pendingUris.insert(new PendingUri(0, normalizedUri.get()));
         return this;
     }
@@ -58,8 +138,10 @@ public class Scraper {
 
         File saveFile = this.outputPath.resolve("list.sav").toFile();
         this.loadAlreadyEncountered(saveFile);
+        IDictionary<URI, Boolean> replay = this.loadReplay(saveFile);
         try (PrintWriter saveWriter = this.makePrintWriter(saveFile, true)) {
             int limitCount = 0;
+            int sinceCheckpoint = 0;
             while (limitCount < limit && !this.pendingUris.isEmpty()) {
                 // Handle page
                 PendingUri pending = this.pendingUris.removeMin();
@@ -72,51 +154,612 @@ public class Scraper {
                     continue;
                 }
 
-                String body = this.requester.makeRequest(pending.uri);
-                if (body == null) {
-                    System.out.println(String.format("Unable to fetch content from '%s'", uri));
-                    continue;
+                // Pages saved after the checkpoint we resumed from are already on disk
+                String body = null;
+                if (replay.containsKey(uri)) {
+                    replay.remove(uri);
+                    body = this.loadSavedHtml(uri);
                 }
+                boolean replayed = body != null;
 
-                // Save loaded page
-                limitCount += 1;
-                this.saveHtml(uri, body);
-                saveWriter.print(uri.toString() + "\n");
+                if (!replayed) {
+                    FetchResult fetched = this.requester.fetch(pending.uri, null, null);
+                    if (fetched == null || fetched.isNotModified()) {
+                        System.out.println(String.format("Unable to fetch content from '%s'", uri));
+                        continue;
+                    }
+                    body = fetched.getBody();
+
+                    // Save loaded page
+                    limitCount += 1;
+                    this.saveHtml(uri, fetched);
+                    saveWriter.print(uri.toString() + "\n");
+                }
 
                 // Add children (if applicable)
                 Document document = Jsoup.parse(body);
                 for (URI link : WebUtils.extractLinks(uri, document)) {
                     Optional<URI> normalizedUri = WebUtils.normalize(link);
+                    if (!normalizedUri.isPresent()) {
+                        continue;
+                    }
 
-                    if (normalizedUri.isPresent() && !this.alreadyEncountered.contains(link)) {
+                    // A replayed page's children were seen, but only the checkpoint knew
+                    // it; queue them up again the first time they're found
+                    boolean needsReplay = replay.containsKey(normalizedUri.get())
+                            && !replay.get(normalizedUri.get());
+                    if (needsReplay) {
+                        replay.put(normalizedUri.get(), true);
+                    }
+                    // Mark links as seen when queueing them, so a page linked from several
+                    // others is only queued (and fetched) once
+                    if (this.alreadyEncountered.add(normalizedUri.get()) || needsReplay) {
                         this.pendingUris.insert(new PendingUri(pending.distance + 1, normalizedUri.get()));
+                        if (this.domainWhitelist.contains(normalizedUri.get().getHost())) {
+                            this.requester.prefetchRobots(normalizedUri.get());
+                        }
                     }
                 }
 
                 // Log
-                System.out.println(String.format("Fetched %s", uri));
+                System.out.println(String.format(replayed ? "Replayed %s" : "Fetched %s", uri));
+
+                sinceCheckpoint += 1;
+                if (this.diskFrontier != null && sinceCheckpoint >= this.checkpointInterval) {
+                    this.checkpoint(saveWriter, saveFile);
+                    sinceCheckpoint = 0;
+                }
+            }
+
+            if (this.diskFrontier != null) {
+                this.checkpoint(saveWriter, saveFile);
             }
         }
     }
 
-    private void saveHtml(URI uri, String body) throws IOException {
-        String hex = DigestUtils.md5Hex(uri.toString());
-        Path saveDomainPath = this.outputPath.resolve(uri.getHost());
-        Path savePath = saveDomainPath.resolve(hex + ".html");
+    /**
+     * Checkpoints the disk frontier, recording how much of list.sav it accounts for.
+     */
+    private void checkpoint(PrintWriter saveWriter, File saveFile) {
+        saveWriter.flush();
+        this.diskFrontier.checkpoint(saveFile.length());
+    }
+
+    /**
+     * If we're resuming a checkpointed crawl, returns every URI saved after the
+     * checkpoint, mapped to whether it's in the frontier. Each of them must be
+     * replayed from disk (along with finding its links again) to get the frontier
+     * back to where the crawl stopped.
+     *
+     * Also marks every URI in the restored frontier as seen, since the frontier
+     * holds URIs list.sav doesn't.
+     */
+    private IDictionary<URI, Boolean> loadReplay(File saveFile) throws IOException {
+        IDictionary<URI, Boolean> replay = new ChainedHashDictionary<>();
+        if (this.diskFrontier == null || !this.diskFrontier.wasRestored()) {
+            return replay;
+        }
+
+        // The marker is the length of list.sav in bytes at the time of the checkpoint
+        long marker = this.diskFrontier.getCheckpointMarker();
+        if (saveFile.exists() && saveFile.length() > marker) {
+            try (InputStream in = new FileInputStream(saveFile)) {
+                long skipped = 0;
+                while (skipped < marker) {
+                    skipped += in.skip(marker - skipped);
+                }
+                BufferedReader reader = new BufferedReader(new InputStreamReader(in, Charset.defaultCharset()));
+                String line = reader.readLine();
+                while (line != null) {
+                    try {
+                        replay.put(URI.create(line.trim()), false);
+                    } catch (IllegalArgumentException ex) {
+                        // The last line may be half-written if we crashed
+                    }
+                    line = reader.readLine();
+                }
+            }
+        }
+
+        this.diskFrontier.forEach(pending -> {
+            this.alreadyEncountered.add(pending.uri);
+            if (replay.containsKey(pending.uri)) {
+                replay.put(pending.uri, true);
+            }
+        });
+        if (!replay.isEmpty()) {
+            System.out.println(String.format("Replaying %d pages saved after the last checkpoint", replay.size()));
+        }
+        return replay;
+    }
 
-        if (!saveDomainPath.toFile().exists() && !saveDomainPath.toFile().mkdirs()) {
-            throw new IOException("Unable to make folder " + saveDomainPath);
+    /**
+     * Refreshes up to 'limit' of the pages an earlier crawl saved (in list.sav order),
+     * without crawling any new ones.
+     *
+     * Each page is fetched conditionally, using the ETag and Last-Modified validators
+     * saved with it, so a server that supports them can answer "not modified" without
+     * sending the page again. If the server sends the page anyway, we compare the
+     * hash of its body with the saved one. Only pages that really changed are written
+     * back to disk (and their parsing cache deleted); unchanged files keep their
+     * modification times, so if nothing changed at all SearchEngine can still reuse
+     * its segment and index snapshot instead of re-indexing everything.
+     */
+    public void recrawl(int limit) throws IOException, URISyntaxException {
+        File saveFile = this.outputPath.resolve("list.sav").toFile();
+        if (!saveFile.isFile()) {
+            throw new IOException("Nothing to recrawl: no list.sav in " + this.outputPath);
+        }
+
+        int checked = 0;
+        int notModified = 0;
+        int sameHash = 0;
+        int changed = 0;
+        int failed = 0;
+        try (BufferedReader reader = new BufferedReader(new FileReader(saveFile))) {
+            for (String line = reader.readLine(); line != null && checked < limit; line = reader.readLine()) {
+                URI uri;
+                try {
+                    uri = URI.create(line.trim());
+                } catch (IllegalArgumentException ex) {
+                    continue;
+                }
+                if (!this.domainWhitelist.contains(uri.getHost())) {
+                    continue;
+                }
+                checked += 1;
+
+                IDictionary<String, String> metadata = this.loadSavedMetadata(uri);
+                String etag = null;
+                String lastModified = null;
+                String oldHash = null;
+                if (metadata != null) {
+                    etag = metadata.getOrDefault("etag", null);
+                    lastModified = metadata.getOrDefault("last-modified", null);
+                    oldHash = metadata.getOrDefault("hash", null);
+                    if (oldHash == null) {
+                        // Saved before we stored hashes
+                        String oldBody = this.loadSavedHtml(uri);
+                        oldHash = oldBody == null ? null : hashBody(oldBody);
+                    }
+                }
+
+                FetchResult fetched = this.requester.fetch(uri, etag, lastModified);
+                if (fetched == null) {
+                    System.out.println(String.format("Unable to fetch content from '%s'", uri));
+                    failed += 1;
+                } else if (fetched.isNotModified()) {
+                    System.out.println(String.format("Not modified: %s", uri));
+                    notModified += 1;
+                } else if (hashBody(fetched.getBody()).equals(oldHash)) {
+                    System.out.println(String.format("Unchanged: %s", uri));
+                    sameHash += 1;
+                } else {
+                    this.saveHtml(uri, fetched);
+                    // Otherwise Webpage.load(...) would keep using the old page's parse
+                    Path savePath = this.getSavePath(uri);
+                    String name = savePath.getFileName().toString();
+                    Files.deleteIfExists(savePath.resolveSibling(name.replace(".html", ".cache")));
+                    System.out.println(String.format("Changed: %s", uri));
+                    changed += 1;
+                }
+            }
+        }
+        System.out.println(String.format(
+                "Recrawled %d pages: %d not modified, %d unchanged, %d changed, %d failed",
+                checked, notModified, sameHash, changed, failed));
+    }
+
+    /**
+     * Crawls like run(limit), but fetches from several hosts at once using 'threads'
+     * fetch threads. See run(limit, fetchThreads, parseThreads, saveThreads).
+     */
+    public void run(int limit, int threads) throws IOException {
+        this.run(limit, threads, DEFAULT_PARSE_THREADS, DEFAULT_SAVE_THREADS);
+    }
+
+    /**
+     * Crawls like run(limit), but as a pipeline of three stages, each with its own
+     * threads:
+     *
+     * 1. Fetch ('fetchThreads' threads): downloads pages. Each host has its own queue
+     *    of pending URIs, and each host is only fetched from by one thread at a time,
+     *    at most once per HttpRequester delay. So every host sees exactly the same
+     *    request rate as before, while the total crawl rate grows with the number of
+     *    whitelisted hosts (up to 'fetchThreads').
+     * 2. Parse ('parseThreads' threads): parses each page and queues up its links.
+     * 3. Save ('saveThreads' threads): writes each page and its list.sav entry to disk.
+     *
+     * The stages are joined by queues holding at most QUEUE_CAPACITY pages. When a
+     * stage falls behind its queue fills up and the stage before it blocks, so a slow
+     * disk slows fetching down instead of piling up pages in memory.
+     *
+     * The counters for each stage are printed every REPORT_INTERVAL_MILLIS, and can be
+     * read with getStageStats().
+     *
+     * Pages are crawled closest-to-a-seed first within each host, but not across hosts.
+     */
+    public void run(int limit, int fetchThreads, int parseThreads, int saveThreads) throws IOException {
+        if (fetchThreads < 1 || parseThreads < 1 || saveThreads < 1) {
+            throw new IllegalArgumentException(String.format(
+                    "Need at least one thread per stage, got %d/%d/%d", fetchThreads, parseThreads, saveThreads));
+        }
+        if (this.diskFrontier != null) {
+            throw new IllegalStateException("Checkpointed frontiers are only supported by run(limit)");
+        }
+        File outputFile = this.outputPath.toFile();
+        if (!outputFile.exists() && !outputFile.mkdirs()) {
+            throw new IOException("Unable to make folder " + this.outputPath);
         }
 
+        File saveFile = this.outputPath.resolve("list.sav").toFile();
+        this.loadAlreadyEncountered(saveFile);
+
+        HostFrontier frontier = new HostFrontier(this.requester.getDelayMilliseconds());
+        while (!this.pendingUris.isEmpty()) {
+            this.enqueue(frontier, this.pendingUris.removeMin());
+        }
+
+        try (PrintWriter saveWriter = this.makePrintWriter(saveFile, true)) {
+            Pipeline pipeline = new Pipeline(frontier, saveWriter, limit, fetchThreads, parseThreads, saveThreads);
+            this.stageStats = pipeline.stats;
+            pipeline.run();
+        }
+    }
+
+    /**
+     * Returns the counters of each stage of the current (or latest) pipelined crawl,
+     * in pipeline order, or an empty list if there hasn't been one.
+     */
+    public IList<StageStats> getStageStats() {
+        return this.stageStats;
+    }
+
+    /**
+     * The state shared by the threads of one call to run(limit, fetchThreads,
+     * parseThreads, saveThreads).
+     */
+    private class Pipeline {
+        private final HostFrontier frontier;
+        private final PrintWriter saveWriter;
+        private final int limit;
+        private final AtomicInteger limitCount;
+
+        private final BlockingQueue<FetchedPage> parseQueue;
+        private final BlockingQueue<FetchedPage> saveQueue;
+
+        private final int[] threads;
+        private final IList<StageStats> stats;
+        private final StageStats fetchStats;
+        private final StageStats parseStats;
+        private final StageStats saveStats;
+
+        // Set when any stage fails, so the others stop rather than blocking forever
+        private volatile boolean aborted;
+
+        public Pipeline(HostFrontier frontier, PrintWriter saveWriter, int limit,
+                        int fetchThreads, int parseThreads, int saveThreads) {
+            this.frontier = frontier;
+            this.saveWriter = saveWriter;
+            this.limit = limit;
+            this.limitCount = new AtomicInteger(0);
+            this.parseQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            this.saveQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            this.threads = new int[] {fetchThreads, parseThreads, saveThreads};
+
+            this.fetchStats = new StageStats("fetch", fetchThreads, null);
+            this.parseStats = new StageStats("parse", parseThreads, this.parseQueue);
+            this.saveStats = new StageStats("save", saveThreads, this.saveQueue);
+            this.stats = new DoubleLinkedList<>();
+            this.stats.add(this.fetchStats);
+            this.stats.add(this.parseStats);
+            this.stats.add(this.saveStats);
+            this.aborted = false;
+        }
+
+        public void run() throws IOException {
+            ExecutorService workers = Executors.newFixedThreadPool(this.threads[0] + this.threads[1] + this.threads[2]);
+            IList<Future<?>> fetchResults = new DoubleLinkedList<>();
+            IList<Future<?>> parseResults = new DoubleLinkedList<>();
+            IList<Future<?>> saveResults = new DoubleLinkedList<>();
+            for (int i = 0; i < this.threads[0]; i++) {
+                fetchResults.add(workers.submit(this::fetch));
+            }
+            for (int i = 0; i < this.threads[1]; i++) {
+                parseResults.add(workers.submit(this::parse));
+            }
+            for (int i = 0; i < this.threads[2]; i++) {
+                saveResults.add(workers.submit(this::save));
+            }
+            workers.shutdown();
+
+            // Shut the stages down in order: once every thread of one stage is done, no
+            // more pages will reach the next stage, so tell each of its threads to stop
+            try {
+                this.await(fetchResults);
+                for (int i = 0; i < this.threads[1]; i++) {
+                    this.put(this.parseQueue, FetchedPage.END);
+                }
+                this.await(parseResults);
+                for (int i = 0; i < this.threads[2]; i++) {
+                    this.put(this.saveQueue, FetchedPage.END);
+                }
+                this.await(saveResults);
+            } catch (InterruptedException ex) {
+                this.abort();
+                workers.shutdownNow();
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while crawling", ex);
+            } catch (ExecutionException ex) {
+                this.abort();
+                workers.shutdownNow();
+                throw new IOException("Crawler thread failed", ex.getCause());
+            }
+            this.report();
+        }
+
+        /**
+         * Waits for every given thread to finish, reporting progress while we wait.
+         */
+        private void await(IList<Future<?>> results) throws InterruptedException, ExecutionException {
+            for (Future<?> result : results) {
+                while (true) {
+                    try {
+                        result.get(REPORT_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                        break;
+                    } catch (TimeoutException ex) {
+                        this.report();
+                    }
+                }
+            }
+        }
+
+        private void report() {
+            StringBuilder line = new StringBuilder("Crawl pipeline:");
+            for (StageStats stage : this.stats) {
+                line.append(" [").append(stage).append("]");
+            }
+            System.out.println(line);
+        }
+
+        private void abort() {
+            this.aborted = true;
+            this.frontier.close();
+        }
+
+        /**
+         * Adds the page to the queue, waiting for room if it's full. Returns 'false'
+         * (without adding the page) if the pipeline was aborted while waiting.
+         */
+        private boolean put(BlockingQueue<FetchedPage> queue, FetchedPage page) throws InterruptedException {
+            while (!queue.offer(page, ABORT_CHECK_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (this.aborted) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * The loop each fetch thread runs.
+         */
+        private Void fetch() throws InterruptedException {
+            // If this thread fails, stop the others too rather than crawling on without it
+            boolean failed = true;
+            try {
+                PendingUri pending = this.frontier.take();
+                while (pending != null) {
+                    URI uri = pending.uri;
+                    long start = System.nanoTime();
+                    FetchResult fetched;
+                    try {
+                        fetched = requester.fetch(uri, null, null);
+                    } catch (IOException | URISyntaxException ex) {
+                        System.out.println(String.format("Unable to fetch '%s': %s", uri, ex));
+                        fetched = null;
+                    } finally {
+                        // We're done with the host; the rest of the pipeline doesn't need it
+                        this.frontier.release(pending);
+                    }
+                    this.fetchStats.record(System.nanoTime() - start);
+
+                    if (fetched == null || fetched.isNotModified()) {
+                        System.out.println(String.format("Unable to fetch content from '%s'", uri));
+                        this.frontier.finish();
+                    } else {
+                        // Other threads may have used up the limit while we were fetching
+                        int count = this.limitCount.incrementAndGet();
+                        if (count >= this.limit) {
+                            this.frontier.close();
+                        }
+                        if (count > this.limit || !this.put(this.parseQueue, new FetchedPage(pending, fetched))) {
+                            this.frontier.finish();
+                            break;
+                        }
+                        System.out.println(String.format("Fetched %s", uri));
+                    }
+                    pending = this.frontier.take();
+                }
+                failed = false;
+            } finally {
+                if (failed) {
+                    this.abort();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The loop each parse thread runs.
+         */
+        private Void parse() throws InterruptedException {
+            boolean failed = true;
+            try {
+                FetchedPage page = this.parseQueue.take();
+                while (page != FetchedPage.END) {
+                    long start = System.nanoTime();
+                    try {
+                        Document document = Jsoup.parse(page.fetched.getBody());
+                        for (URI link : WebUtils.extractLinks(page.pending.uri, document)) {
+                            enqueue(this.frontier, new PendingUri(page.pending.distance + 1, link));
+                        }
+                    } finally {
+                        this.frontier.finish();
+                    }
+                    this.parseStats.record(System.nanoTime() - start);
+
+                    if (!this.put(this.saveQueue, page)) {
+                        break;
+                    }
+                    page = this.parseQueue.take();
+                }
+                failed = false;
+            } finally {
+                if (failed) {
+                    this.abort();
+                }
+            }
+            return null;
+        }
+
+        /**
+         * The loop each save thread runs.
+         */
+        private Void save() throws IOException, InterruptedException {
+            boolean failed = true;
+            try {
+                FetchedPage page = this.saveQueue.take();
+                while (page != FetchedPage.END) {
+                    long start = System.nanoTime();
+                    URI uri = page.pending.uri;
+                    saveHtml(uri, page.fetched);
+                    synchronized (this.saveWriter) {
+                        this.saveWriter.print(uri.toString() + "\n");
+                    }
+                    this.saveStats.record(System.nanoTime() - start);
+                    page = this.saveQueue.take();
+                }
+                failed = false;
+            } finally {
+                if (failed) {
+                    this.abort();
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * A downloaded page on its way through the pipeline.
+     */
+    private static class FetchedPage {
+        // Tells the thread that takes it to stop
+        public static final FetchedPage END = new FetchedPage(null, null);
+
+        public final PendingUri pending;
+        public final FetchResult fetched;
+
+        public FetchedPage(PendingUri pending, FetchResult fetched) {
+            this.pending = pending;
+            this.fetched = fetched;
+        }
+    }
+
+    /**
+     * Adds the given URI to the frontier unless we've seen it before or its host isn't
+     * whitelisted.
+     */
+    private void enqueue(HostFrontier frontier, PendingUri pending) {
+        URI uri = pending.uri;
+        if (!this.alreadyEncountered.add(uri)) {
+            return;
+        }
+
+        if (!this.domainWhitelist.contains(uri.getHost())) {
+            System.out.println(String.format("Skipping '%s'; host not in whitelist", uri));
+            return;
+        }
+        this.requester.prefetchRobots(uri);
+        frontier.add(pending);
+    }
+
+    private Path getSavePath(URI uri) {
+        String hex = DigestUtils.md5Hex(uri.toString());
+        return this.outputPath.resolve(uri.getHost()).resolve(hex + ".html");
+    }
+
+    /**
+     * Saves the fetched page, along with its validators and the hash of its body so
+     * recrawl(...) can later tell whether it changed.
+     */
+    private void saveHtml(URI uri, FetchResult fetched) throws IOException {
+        Path savePath = this.getSavePath(uri);
+        Path saveDomainPath = savePath.getParent();
+
+        // Unlike mkdirs(), this doesn't fail if another thread creates the folder first
+        Files.createDirectories(saveDomainPath);
+
         try (PrintWriter writer = this.makePrintWriter(savePath.toFile(), false)) {
             writer.print("<!-- METADATA\n");
             writer.printf("uri: %s\n", uri.toString());
             writer.print("local: false\n");
+            if (fetched.getEtag() != null) {
+                writer.printf("etag: %s\n", fetched.getEtag());
+            }
+            if (fetched.getLastModified() != null) {
+                writer.printf("last-modified: %s\n", fetched.getLastModified());
+            }
+            writer.printf("hash: %s\n", hashBody(fetched.getBody()));
             writer.print("-->\n");
-            writer.print(body);
+            writer.print(fetched.getBody());
+        }
+    }
+
+    private static String hashBody(String body) {
+        return DigestUtils.md5Hex(body);
+    }
+
+    /**
+     * Returns the metadata header of the page saveHtml(...) saved for the given URI,
+     * or null if there isn't one. Pages saved before we stored validators have no
+     * 'etag', 'last-modified' or 'hash' entries.
+     */
+    private IDictionary<String, String> loadSavedMetadata(URI uri) throws IOException {
+        Path savePath = this.getSavePath(uri);
+        if (!Files.isRegularFile(savePath)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(savePath, Charset.defaultCharset())) {
+            String line = reader.readLine();
+            if (!"<!-- METADATA".equals(line)) {
+                return null;
+            }
+            IDictionary<String, String> metadata = new ChainedHashDictionary<>();
+            for (line = reader.readLine(); line != null && !line.equals("-->"); line = reader.readLine()) {
+                String[] parts = line.split(": ", 2);
+                if (parts.length == 2) {
+                    metadata.put(parts[0], parts[1]);
+                }
+            }
+            return metadata;
         }
     }
 
+    /**
+     * Returns the body of the page saveHtml(...) saved for the given URI, or null if
+     * there isn't one.
+     */
+    private String loadSavedHtml(URI uri) throws IOException {
+        Path savePath = this.getSavePath(uri);
+        if (!Files.isRegularFile(savePath)) {
+            return null;
+        }
+        // saveHtml(...) writes with the platform's default charset
+        String contents = new String(Files.readAllBytes(savePath), Charset.defaultCharset());
+        int bodyStart = contents.indexOf("-->\n");
+        return bodyStart < 0 ? null : contents.substring(bodyStart + "-->\n".length());
+    }
+
     private PrintWriter makePrintWriter(File file, boolean append) throws IOException {
         return new PrintWriter(new BufferedWriter(new FileWriter(file, append)));
     }
@@ -130,27 +773,11 @@ public class Scraper {
             try (BufferedReader reader = new BufferedReader(new FileReader(saveFile))) {
                 String line = reader.readLine();
                 while (line != null) {
-                    this.alreadyEncountered.add(URI.create(line.trim()));
+                    // Fingerprinting the line directly skips parsing millions of URIs
+                    this.alreadyEncountered.add(line.trim());
                     line = reader.readLine();
                 }
             }
         }
     }
-
-    private static class PendingUri implements Comparable<PendingUri> {
-        public final int distance;
-        public final URI uri;
-
-        public PendingUri(int distance, URI uri) {
-            if (uri == null) {
-                throw new IllegalArgumentException();
-            }
-            this.distance = distance;
-            this.uri = uri;
-        }
-
-        public int compareTo(PendingUri other) {
-            return Integer.compare(this.distance, other.distance);
-        }
-    }
 }
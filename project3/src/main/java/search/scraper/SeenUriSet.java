@@ -0,0 +1,249 @@
+package search.scraper;
+
+import datastructures.concrete.BloomFilter;
+import datastructures.concrete.LongHashSet;
+import search.misc.exceptions.DataExtractionException;
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * The set of URIs the crawler has already seen, stored as 64-bit fingerprints
+ * instead of URI objects.
+ *
+ * A fingerprint is the first 8 bytes of the MD5 of the URI's string form. With n
+ * URIs in the set, the chance that some new URI's fingerprint collides with one of
+ * them (so we wrongly skip it) is about n / 2^64: around 1 in 18 trillion for a
+ * million URIs.
+ *
+ * By default every fingerprint is kept in memory, in a LongHashSet. For crawls too
+ * large even for that, the set can instead keep at most 'maxInMemory' fingerprints in
+ * memory and spill the rest to a sorted file on disk. A Bloom filter in front of the
+ * spilled fingerprints answers most lookups for new URIs without touching the file;
+ * only its false positives (and real duplicates) cost a binary search of the file.
+ *
+ * All methods are thread-safe.
+ */
+public class SeenUriSet implements AutoCloseable {
+    private final LongHashSet recent;
+    private final int maxInMemory;
+
+    // Only used once we've spilled to disk
+    private final Path spillPath;
+    private final BloomFilter spilledFilter;
+    private LongBuffer spilled;
+    private long size;
+
+    private long filterChecks;
+    private long diskSearches;
+    private long filterFalsePositives;
+
+    /**
+     * Creates a set that keeps every fingerprint in memory.
+     */
+    public SeenUriSet() {
+        this.recent = new LongHashSet();
+        this.maxInMemory = Integer.MAX_VALUE;
+        this.spillPath = null;
+        this.spilledFilter = null;
+        this.spilled = LongBuffer.allocate(0);
+        this.size = 0;
+    }
+
+    /**
+     * Creates a set that keeps at most 'maxInMemory' fingerprints in memory, and
+     * spills the rest to 'spillPath' (replacing anything already there).
+     *
+     * @param expectedUris       the number of URIs the crawl is expected to see in total;
+     *                           used to size the Bloom filter
+     * @param falsePositiveRate  the fraction of lookups for new URIs that may have to
+     *                           search the spill file once 'expectedUris' URIs are in the set
+     */
+    public SeenUriSet(int maxInMemory, long expectedUris, double falsePositiveRate, Path spillPath) {
+        if (maxInMemory < 1) {
+            throw new IllegalArgumentException("Need room for at least one fingerprint, got " + maxInMemory);
+        }
+        this.recent = new LongHashSet(maxInMemory, LongHashSet.DEFAULT_LOAD_FACTOR);
+        this.maxInMemory = maxInMemory;
+        this.spillPath = spillPath;
+        this.spilledFilter = new BloomFilter(expectedUris, falsePositiveRate);
+        this.spilled = LongBuffer.allocate(0);
+        this.size = 0;
+        try {
+            Files.deleteIfExists(spillPath);
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not clear old spill file " + spillPath, ex);
+        }
+    }
+
+    /**
+     * Returns the fingerprint of the given URI string.
+     */
+    public static long fingerprint(String uri) {
+        byte[] digest = DigestUtils.md5(uri.getBytes(StandardCharsets.UTF_8));
+        long out = 0;
+        for (int i = 0; i < 8; i++) {
+            out = (out << 8) | (digest[i] & 0xFF);
+        }
+        return out;
+    }
+
+    /**
+     * Adds the URI, returning 'true' if it was not already in the set.
+     */
+    public boolean add(URI uri) {
+        return this.add(uri.toString());
+    }
+
+    /**
+     * Adds the URI with the given string form, returning 'true' if it was not
+     * already in the set.
+     */
+    public boolean add(String uri) {
+        long hash = fingerprint(uri);
+        synchronized (this) {
+            if (this.recent.contains(hash) || this.spilledContains(hash)) {
+                return false;
+            }
+            this.recent.add(hash);
+            this.size++;
+            if (this.recent.size() >= this.maxInMemory) {
+                this.spill();
+            }
+            return true;
+        }
+    }
+
+    public boolean contains(URI uri) {
+        long hash = fingerprint(uri.toString());
+        synchronized (this) {
+            return this.recent.contains(hash) || this.spilledContains(hash);
+        }
+    }
+
+    public synchronized long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of fingerprints on disk.
+     */
+    public synchronized long getSpilledCount() {
+        return this.spilled.capacity();
+    }
+
+    /**
+     * Returns the number of lookups that had to consult the Bloom filter.
+     */
+    public synchronized long getFilterChecks() {
+        return this.filterChecks;
+    }
+
+    /**
+     * Returns the number of lookups that had to search the spill file.
+     */
+    public synchronized long getDiskSearches() {
+        return this.diskSearches;
+    }
+
+    /**
+     * Returns the fraction of Bloom filter checks for fingerprints that turned out not
+     * to be on disk, but which the filter said might be.
+     */
+    public synchronized double getFilterFalsePositiveRate() {
+        long negatives = this.filterChecks - (this.diskSearches - this.filterFalsePositives);
+        return negatives == 0 ? 0.0 : (double) this.filterFalsePositives / negatives;
+    }
+
+    /**
+     * Deletes the spill file, if any. The set must not be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        this.spilled = LongBuffer.allocate(0);
+        if (this.spillPath != null) {
+            Files.deleteIfExists(this.spillPath);
+        }
+    }
+
+    private boolean spilledContains(long hash) {
+        if (this.spilled.capacity() == 0) {
+            return false;
+        }
+        this.filterChecks++;
+        if (!this.spilledFilter.mightContain(hash)) {
+            return false;
+        }
+        this.diskSearches++;
+
+        int low = 0;
+        int high = this.spilled.capacity() - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = this.spilled.get(mid);
+            if (value < hash) {
+                low = mid + 1;
+            } else if (value > hash) {
+                high = mid - 1;
+            } else {
+                return true;
+            }
+        }
+        this.filterFalsePositives++;
+        return false;
+    }
+
+    /**
+     * Merges every in-memory fingerprint into the spill file, then empties memory.
+     *
+     * The merged file is written next to the old one and moved into place, so the old
+     * file stays readable until the new one is complete.
+     */
+    private void spill() {
+        long[] fresh = this.recent.toSortedArray();
+        LongBuffer old = this.spilled;
+        long total = (long) old.capacity() + fresh.length;
+        if (total > Integer.MAX_VALUE / 8) {
+            throw new IllegalStateException("Spill file would be larger than 2GB");
+        }
+
+        Path tempPath = this.spillPath.resolveSibling(this.spillPath.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(tempPath), 1 << 16))) {
+                int i = 0;
+                int j = 0;
+                while (i < old.capacity() || j < fresh.length) {
+                    if (j == fresh.length || (i < old.capacity() && old.get(i) < fresh[j])) {
+                        out.writeLong(old.get(i++));
+                    } else {
+                        out.writeLong(fresh[j++]);
+                    }
+                }
+            }
+            Files.move(tempPath, this.spillPath,
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            try (FileChannel channel = FileChannel.open(this.spillPath, StandardOpenOption.READ)) {
+                // The mapping stays valid after the channel is closed
+                this.spilled = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).asLongBuffer();
+            }
+        } catch (IOException ex) {
+            throw new DataExtractionException("Could not spill seen URIs to " + this.spillPath, ex);
+        }
+
+        for (long hash : fresh) {
+            this.spilledFilter.add(hash);
+        }
+        this.recent.clear();
+    }
+}
@@ -0,0 +1,89 @@
+package search.scraper;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters for one stage of the crawl pipeline (see Scraper.run(limit, fetchThreads,
+ * parseThreads, saveThreads)).
+ *
+ * Every stage reads its work from a bounded queue (except the fetch stage, which
+ * reads from the HostFrontier). A queue that stays full means its stage is the
+ * bottleneck; a queue that stays empty means the stage is waiting on the one before.
+ *
+ * All methods are thread-safe.
+ */
+public class StageStats {
+    private final String name;
+    private final int threads;
+    private final BlockingQueue<?> input;
+    private final long startNanos;
+    private final AtomicLong processed;
+    private final AtomicLong busyNanos;
+
+    /**
+     * @param input  the queue this stage reads from, or null if it doesn't read from one
+     */
+    public StageStats(String name, int threads, BlockingQueue<?> input) {
+        this.name = name;
+        this.threads = threads;
+        this.input = input;
+        this.startNanos = System.nanoTime();
+        this.processed = new AtomicLong(0);
+        this.busyNanos = new AtomicLong(0);
+    }
+
+    /**
+     * Records that one item was handled, which took the given number of nanoseconds.
+     */
+    public void record(long nanos) {
+        this.processed.incrementAndGet();
+        this.busyNanos.addAndGet(nanos);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int getThreads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns the number of items waiting in this stage's input queue, or 0 if it has none.
+     */
+    public int getQueueDepth() {
+        return this.input == null ? 0 : this.input.size();
+    }
+
+    /**
+     * Returns the number of items this stage has handled so far.
+     */
+    public long getProcessed() {
+        return this.processed.get();
+    }
+
+    /**
+     * Returns the number of items handled per second since the stage started.
+     */
+    public double getThroughput() {
+        double seconds = (System.nanoTime() - this.startNanos) / 1e9;
+        return seconds <= 0 ? 0.0 : this.processed.get() / seconds;
+    }
+
+    /**
+     * Returns the fraction of this stage's thread time spent handling items (rather
+     * than waiting for input, or for room in the next stage's queue).
+     */
+    public double getUtilization() {
+        long elapsed = System.nanoTime() - this.startNanos;
+        return elapsed <= 0 ? 0.0 : (double) this.busyNanos.get() / ((double) elapsed * this.threads);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d done (%.1f/s), queue %d, %.0f%% busy",
+                this.name, this.getProcessed(), this.getThroughput(),
+                this.getQueueDepth(), 100 * this.getUtilization());
+    }
+}
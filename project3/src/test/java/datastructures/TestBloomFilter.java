@@ -0,0 +1,64 @@
+package datastructures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import datastructures.concrete.BloomFilter;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class TestBloomFilter extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testNoFalseNegatives() {
+        Random random = new Random(3);
+        long[] hashes = new long[10000];
+        BloomFilter filter = new BloomFilter(hashes.length, 0.01);
+        for (int i = 0; i < hashes.length; i++) {
+            hashes[i] = random.nextLong();
+            filter.add(hashes[i]);
+        }
+        for (long hash : hashes) {
+            assertTrue(filter.mightContain(hash));
+        }
+        assertEquals(10000L, filter.size());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testFalsePositiveRateNearTarget() {
+        Random random = new Random(4);
+        int items = 100000;
+        BloomFilter filter = new BloomFilter(items, 0.01);
+        for (int i = 0; i < items; i++) {
+            filter.add(random.nextLong());
+        }
+
+        int falsePositives = 0;
+        int trials = 200000;
+        for (int i = 0; i < trials; i++) {
+            if (filter.mightContain(random.nextLong())) {
+                falsePositives++;
+            }
+        }
+        double rate = (double) falsePositives / trials;
+        assertTrue("False positive rate was " + rate, rate > 0.005 && rate < 0.015);
+    }
+
+    @Test(timeout=SECOND)
+    public void testSizedFromParameters() {
+        // About 9.6 bits and 7 hashes per item for a 1% false positive rate
+        BloomFilter filter = new BloomFilter(1000, 0.01);
+        assertTrue(filter.getBitCount() >= 9585 && filter.getBitCount() < 9585 + 64);
+        assertEquals(7, filter.getHashCount());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyFilterContainsNothing() {
+        BloomFilter filter = new BloomFilter(100, 0.01);
+        Random random = new Random(5);
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(filter.mightContain(random.nextLong()));
+        }
+    }
+}
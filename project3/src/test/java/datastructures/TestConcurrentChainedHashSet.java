@@ -0,0 +1,81 @@
+package datastructures;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.ConcurrentChainedHashSet;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class TestConcurrentChainedHashSet extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testAddContainsRemove() {
+        ISet<String> set = new ConcurrentChainedHashSet<>();
+        set.add("a");
+        set.add("b");
+        set.add("a");
+        set.add(null);
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains("a"));
+        assertTrue(set.contains(null));
+        assertFalse(set.contains("c"));
+
+        set.remove("a");
+        assertFalse(set.contains("a"));
+        assertEquals(2, set.size());
+
+        try {
+            set.remove("a");
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIterator() {
+        ISet<Integer> set = new ConcurrentChainedHashSet<>();
+        for (int i = 0; i < 500; i++) {
+            set.add(i);
+        }
+
+        boolean[] seen = new boolean[500];
+        int count = 0;
+        for (int item : set) {
+            assertFalse(seen[item]);
+            seen[item] = true;
+            count++;
+        }
+        assertEquals(500, count);
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testAddIfAbsentFromManyThreads() throws InterruptedException {
+        ConcurrentChainedHashSet<Integer> set = new ConcurrentChainedHashSet<>();
+        AtomicInteger newlyAdded = new AtomicInteger(0);
+
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 20000; i++) {
+                    if (set.addIfAbsent(i)) {
+                        newlyAdded.incrementAndGet();
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(20000, newlyAdded.get());
+        assertEquals(20000, set.size());
+    }
+}
@@ -0,0 +1,141 @@
+package datastructures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.DynamicArrayList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import misc.exceptions.EmptyContainerException;
+import org.junit.Test;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class TestDynamicArrayList extends BaseTest {
+    protected IList<String> makeBasicList() {
+        IList<String> list = new DynamicArrayList<>();
+        list.add("a");
+        list.add("b");
+        list.add("c");
+        return list;
+    }
+
+    protected <T> void assertListMatches(T[] expected, IList<T> actual) {
+        assertEquals(expected.length, actual.size());
+        assertEquals(expected.length == 0, actual.isEmpty());
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals("Item at index " + i + " does not match", expected[i], actual.get(i));
+        }
+        Iterator<T> iter = actual.iterator();
+        for (T item : expected) {
+            assertTrue(iter.hasNext());
+            assertEquals(item, iter.next());
+        }
+        assertFalse(iter.hasNext());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddAndGetBasic() {
+        this.assertListMatches(new String[] {"a", "b", "c"}, this.makeBasicList());
+    }
+
+    @Test(timeout=SECOND)
+    public void testAddGrowsPastCapacity() {
+        IList<Integer> list = new DynamicArrayList<>(0);
+        int cap = 1000;
+        for (int i = 0; i < cap; i++) {
+            list.add(i * 2);
+        }
+        assertEquals(cap, list.size());
+        for (int i = 0; i < cap; i++) {
+            assertEquals(i * 2, (int) list.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRemoveFromEnd() {
+        IList<String> list = this.makeBasicList();
+        assertEquals("c", list.remove());
+        assertEquals("b", list.remove());
+        list.add("d");
+        this.assertListMatches(new String[] {"a", "d"}, list);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRemoveOnEmptyListThrowsException() {
+        IList<String> list = new DynamicArrayList<>();
+        try {
+            list.remove();
+            fail("Expected EmptyContainerException");
+        } catch (EmptyContainerException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testSetInsertAndDelete() {
+        IList<String> list = this.makeBasicList();
+        list.set(1, "x");
+        list.insert(0, "first");
+        list.insert(4, "last");
+        list.insert(2, "middle");
+        this.assertListMatches(new String[] {"first", "a", "middle", "x", "c", "last"}, list);
+
+        assertEquals("first", list.delete(0));
+        assertEquals("last", list.delete(4));
+        assertEquals("middle", list.delete(1));
+        this.assertListMatches(new String[] {"a", "x", "c"}, list);
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOutOfBoundsThrowsException() {
+        IList<String> list = this.makeBasicList();
+        int[] badIndices = new int[] {-1, 3};
+        for (int index : badIndices) {
+            try {
+                list.get(index);
+                fail("Expected IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException ex) {
+                // This is ok: do nothing
+            }
+            try {
+                list.delete(index);
+                fail("Expected IndexOutOfBoundsException");
+            } catch (IndexOutOfBoundsException ex) {
+                // This is ok: do nothing
+            }
+        }
+        try {
+            list.insert(4, "d");
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOfAndContains() {
+        IList<String> list = this.makeBasicList();
+        list.add(null);
+        list.add("a");
+        assertEquals(0, list.indexOf("a"));
+        assertEquals(3, list.indexOf(null));
+        assertEquals(-1, list.indexOf("z"));
+        assertTrue(list.contains("c"));
+        assertFalse(list.contains("z"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIteratorOnEmptyList() {
+        Iterator<String> iter = new DynamicArrayList<String>().iterator();
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
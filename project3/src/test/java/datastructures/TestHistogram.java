@@ -0,0 +1,110 @@
+package datastructures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.Histogram;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestHistogram extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testEmpty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0L, histogram.getCount());
+        assertEquals(0L, histogram.getSum());
+        assertEquals(0L, histogram.getMax());
+        assertEquals(0L, histogram.getValueAtPercentile(50));
+        assertArrayEquals(new long[] {0, 0, 0}, histogram.getCumulativeCounts(new long[] {1, 10}));
+    }
+
+    @Test(timeout=SECOND)
+    public void testSmallValuesAreExact() {
+        Histogram histogram = new Histogram();
+        for (long i = 0; i < Histogram.SUB_BUCKETS; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+
+        assertEquals(33L, histogram.getCount());
+        assertEquals(496L, histogram.getSum());
+        assertEquals(31L, histogram.getMax());
+        assertEquals(0L, histogram.getValueAtPercentile(0));
+        assertEquals(15L, histogram.getValueAtPercentile(50));
+        assertEquals(31L, histogram.getValueAtPercentile(100));
+    }
+
+    @Test(timeout=SECOND)
+    public void testPercentilesWithinPrecision() {
+        Histogram histogram = new Histogram();
+        for (long i = 1; i <= 100000; i++) {
+            histogram.record(i * 1000);
+        }
+        assertEquals(100000L, histogram.getCount());
+        assertEquals(100000L * 1000, histogram.getMax());
+
+        double[] percentiles = {1, 10, 50, 90, 99, 99.9};
+        for (double percentile : percentiles) {
+            long exact = (long) (percentile * 1000) * 1000;
+            long value = histogram.getValueAtPercentile(percentile);
+            assertTrue(value + " should be at least " + exact, value >= exact);
+            assertTrue(value + " should be within 1/32 of " + exact, value <= exact + exact / Histogram.SUB_BUCKETS);
+        }
+        assertEquals(100000L * 1000, histogram.getValueAtPercentile(100));
+    }
+
+    @Test(timeout=SECOND)
+    public void testHugeValues() {
+        Histogram histogram = new Histogram();
+        histogram.record(Long.MAX_VALUE);
+        histogram.record(Long.MAX_VALUE / 3);
+        assertEquals(2L, histogram.getCount());
+        assertEquals(Long.MAX_VALUE, histogram.getMax());
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        long low = histogram.getValueAtPercentile(50);
+        assertTrue(low >= Long.MAX_VALUE / 3 && low - Long.MAX_VALUE / 3 <= Long.MAX_VALUE / 3 / Histogram.SUB_BUCKETS);
+    }
+
+    @Test(timeout=SECOND)
+    public void testCumulativeCounts() {
+        Histogram histogram = new Histogram();
+        long[] values = {0, 5, 10, 100, 1000, 1000, 50000};
+        for (long value : values) {
+            histogram.record(value);
+        }
+        long[] counts = histogram.getCumulativeCounts(new long[] {0, 10, 99, 1000, 1000000});
+        assertArrayEquals(new long[] {1, 3, 3, 6, 7, 7}, counts);
+    }
+
+    @Test(timeout=SECOND)
+    public void testConcurrentRecording() throws InterruptedException {
+        Histogram histogram = new Histogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40000L, histogram.getCount());
+        assertEquals(4L * (9999L * 10000 / 2), histogram.getSum());
+        assertEquals(9999L, histogram.getMax());
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadPercentileThrowsException() {
+        Histogram histogram = new Histogram();
+        try {
+            histogram.getValueAtPercentile(101);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package datastructures;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.InternedList;
+import datastructures.interfaces.IList;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.nio.IntBuffer;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+public class TestInternedList extends BaseTest {
+    private static final String[] TABLE = new String[] {"a", "b", "c", null};
+
+    protected IList<String> makeList(int... ids) {
+        return new InternedList<>(TABLE, IntBuffer.wrap(ids));
+    }
+
+    @Test(timeout=SECOND)
+    public void testGetAndSize() {
+        IList<String> list = this.makeList(2, 0, 0, 1, 3);
+
+        assertEquals(5, list.size());
+        assertEquals("c", list.get(0));
+        assertEquals("a", list.get(1));
+        assertEquals("a", list.get(2));
+        assertEquals("b", list.get(3));
+        assertEquals(null, list.get(4));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIndexOfAndContains() {
+        IList<String> list = this.makeList(2, 0, 0, 3);
+
+        assertEquals(1, list.indexOf("a"));
+        assertEquals(3, list.indexOf(null));
+        assertEquals(-1, list.indexOf("b"));
+        assertTrue(list.contains("c"));
+        assertFalse(list.contains("d"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testIterator() {
+        IList<String> list = this.makeList(1, 2);
+        Iterator<String> iter = list.iterator();
+
+        assertEquals("b", iter.next());
+        assertEquals("c", iter.next());
+        assertFalse(iter.hasNext());
+        try {
+            iter.next();
+            fail("Expected NoSuchElementException");
+        } catch (NoSuchElementException ex) {
+            // This is ok: do nothing
+        }
+        assertFalse(this.makeList().iterator().hasNext());
+    }
+
+    @Test(timeout=SECOND)
+    public void testErrorHandling() {
+        IList<String> list = this.makeList(0);
+
+        try {
+            list.get(1);
+            fail("Expected IndexOutOfBoundsException");
+        } catch (IndexOutOfBoundsException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            list.add("b");
+            fail("Expected UnsupportedOperationException");
+        } catch (UnsupportedOperationException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package datastructures;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.LongHashSet;
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+public class TestLongHashSet extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testAddAndContainsBasic() {
+        LongHashSet set = new LongHashSet();
+        assertTrue(set.isEmpty());
+        assertTrue(set.add(3));
+        assertTrue(set.add(-7));
+        assertTrue(set.add(Long.MAX_VALUE));
+        assertFalse(set.add(3));
+
+        assertEquals(3, set.size());
+        assertTrue(set.contains(3));
+        assertTrue(set.contains(-7));
+        assertTrue(set.contains(Long.MAX_VALUE));
+        assertFalse(set.contains(4));
+    }
+
+    @Test(timeout=SECOND)
+    public void testZeroIsAnOrdinaryItem() {
+        LongHashSet set = new LongHashSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.contains(0));
+        assertEquals(1, set.size());
+        assertArrayEquals(new long[] {0}, set.toSortedArray());
+    }
+
+    @Test(timeout=SECOND)
+    public void testClear() {
+        LongHashSet set = new LongHashSet();
+        for (long i = 0; i < 100; i++) {
+            set.add(i);
+        }
+        set.clear();
+        assertTrue(set.isEmpty());
+        for (long i = 0; i < 100; i++) {
+            assertFalse(set.contains(i));
+        }
+        assertTrue(set.add(5));
+        assertEquals(1, set.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testSequentialKeysDoNotCluster() {
+        // Slots are picked from a mix of the bits, so this shouldn't degrade into a scan
+        LongHashSet set = new LongHashSet(1, 0.5);
+        for (long i = 0; i < 200000; i++) {
+            set.add(i << 20);
+        }
+        assertEquals(200000, set.size());
+        for (long i = 0; i < 200000; i++) {
+            assertTrue(set.contains(i << 20));
+        }
+        assertFalse(set.contains(1));
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testMatchesJavaHashSet() {
+        Random random = new Random(12);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100000; i++) {
+            // A narrow range so we get plenty of duplicates
+            long item = random.nextInt(50000) - 25000;
+            assertEquals(expected.add(item), set.add(item));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long item = -30000; item < 30000; item++) {
+            assertEquals(expected.contains(item), set.contains(item));
+        }
+
+        long[] sorted = new long[expected.size()];
+        int i = 0;
+        for (long item : expected) {
+            sorted[i++] = item;
+        }
+        Arrays.sort(sorted);
+        assertArrayEquals(sorted, set.toSortedArray());
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsBadArguments() {
+        try {
+            new LongHashSet(-1, 0.5);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+        try {
+            new LongHashSet(10, 1.0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package datastructures;
+
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.LruCache;
+import misc.BaseTest;
+import org.junit.Test;
+
+public class TestLruCache extends BaseTest {
+    @Test(timeout=SECOND)
+    public void testGetAndPut() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        assertNull(cache.get("a"));
+        cache.put("a", 1);
+        cache.put("b", 2);
+        assertEquals(1, (int) cache.get("a"));
+        assertEquals(2, (int) cache.get("b"));
+        cache.put("a", 3);
+        assertEquals(3, (int) cache.get("a"));
+        assertEquals(2, cache.size());
+
+        assertEquals(3L, cache.getHits());
+        assertEquals(1L, cache.getMisses());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEvictsLeastRecentlyUsed() {
+        LruCache<String, Integer> cache = new LruCache<>(3);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.put("c", 3);
+        cache.get("a");
+        cache.put("d", 4);
+
+        assertNull(cache.get("b"));
+        assertEquals(1, (int) cache.get("a"));
+        assertEquals(3, (int) cache.get("c"));
+        assertEquals(4, (int) cache.get("d"));
+        assertEquals(3, cache.size());
+        assertEquals(1L, cache.getEvictions());
+
+        // Replacing an entry counts as using it
+        cache.put("a", 5);
+        cache.put("e", 6);
+        assertNull(cache.get("c"));
+        assertEquals(5, (int) cache.get("a"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testManyEntriesStayBounded() {
+        LruCache<Integer, Integer> cache = new LruCache<>(100);
+        for (int i = 0; i < 10000; i++) {
+            cache.put(i, i * 2);
+        }
+        assertEquals(100, cache.size());
+        assertEquals(9900L, cache.getEvictions());
+        for (int i = 9900; i < 10000; i++) {
+            assertEquals(i * 2, (int) cache.get(i));
+        }
+        assertNull(cache.get(9899));
+    }
+
+    @Test(timeout=SECOND)
+    public void testEntriesExpire() {
+        long[] now = new long[] {1000};
+        LruCache<String, Integer> cache = new LruCache<>(4, 50, () -> now[0]);
+        cache.put("a", 1);
+        now[0] += 30;
+        cache.put("b", 2);
+        assertEquals(1, (int) cache.get("a"));
+
+        now[0] += 20;
+        assertNull(cache.get("a"));
+        assertEquals(2, (int) cache.get("b"));
+        assertEquals(1L, cache.getExpirations());
+        assertEquals(1, cache.size());
+
+        now[0] += 30;
+        assertNull(cache.get("b"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testClear() {
+        LruCache<String, Integer> cache = new LruCache<>(4);
+        cache.put("a", 1);
+        cache.put("b", 2);
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+
+        cache.put("c", 3);
+        assertEquals(3, (int) cache.get("c"));
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadArgumentsThrowException() {
+        try {
+            new LruCache<String, Integer>(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+        try {
+            new LruCache<String, Integer>(4, -1);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
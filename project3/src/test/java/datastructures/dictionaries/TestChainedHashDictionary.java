@@ -1,11 +1,13 @@
 package datastructures.dictionaries;
 
+import datastructures.concrete.KVPair;
 import datastructures.concrete.dictionaries.ChainedHashDictionary;
 import datastructures.interfaces.IDictionary;
 import org.junit.Test;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class TestChainedHashDictionary extends TestDictionary {
     protected <K, V> IDictionary<K, V> newDictionary() {
@@ -88,4 +90,173 @@ public class TestChainedHashDictionary extends TestDictionary {
             dict.remove(i);
         }
     }
+
+    @Test(timeout=SECOND)
+    public void testPowerOfTwoModeBasic() {
+        IDictionary<Wrapper<String>, String> dict = new ChainedHashDictionary<>(3, 0.75);
+
+        // Hash codes that only differ in their high bits would all land in
+        // the same chain without spreading.
+        for (int i = 0; i < 500; i++) {
+            dict.put(new Wrapper<>("" + i, i << 20), "val" + i);
+        }
+        dict.put(null, "null");
+
+        assertEquals(501, dict.size());
+        for (int i = 0; i < 500; i++) {
+            assertEquals("val" + i, dict.get(new Wrapper<>("" + i, i << 20)));
+        }
+        assertEquals("null", dict.get(null));
+        assertEquals("missing", dict.getOrDefault(new Wrapper<>("x", 5), "missing"));
+
+        assertEquals("val7", dict.remove(new Wrapper<>("7", 7 << 20)));
+        assertFalse(dict.containsKey(new Wrapper<>("7", 7 << 20)));
+        assertEquals(500, dict.size());
+    }
+
+    @Test(timeout=SECOND)
+    public void testPowerOfTwoModeNegativeHashCode() {
+        IDictionary<Wrapper<String>, String> dict = new ChainedHashDictionary<>(16);
+
+        Wrapper<String> key1 = new Wrapper<>("foo", Integer.MIN_VALUE);
+        Wrapper<String> key2 = new Wrapper<>("bar", -100000);
+
+        dict.put(key1, "val1");
+        dict.put(key2, "val2");
+
+        assertEquals("val1", dict.get(key1));
+        assertEquals("val2", dict.get(key2));
+    }
+
+    @Test(timeout=SECOND)
+    public void testInvalidConstructorArguments() {
+        try {
+            new ChainedHashDictionary<String, String>(0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+
+        try {
+            new ChainedHashDictionary<String, String>(10, 0.0);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    @Test(timeout=10*SECOND)
+    public void stressTestPowerOfTwoMode() {
+        int limit = 1000000;
+        IDictionary<Integer, Integer> dict = new ChainedHashDictionary<>(limit);
+
+        for (int i = 0; i < limit; i++) {
+            dict.put(i, i);
+        }
+        for (int i = 0; i < limit; i++) {
+            assertEquals(i, dict.get(i));
+            dict.remove(i);
+        }
+        assertTrue(dict.isEmpty());
+    }
+
+    @Test(timeout=SECOND)
+    public void testIncrementalResizeIteratorMidMigration() {
+        IDictionary<Integer, Integer> dict = new ChainedHashDictionary<>(4, 1.0, true);
+
+        // Check the full contents after every single put and remove, which
+        // includes every intermediate state of each incremental resize.
+        for (int i = 0; i < 300; i++) {
+            dict.put(i, i * 2);
+            this.assertIteratorVisitsExactly(dict, 0, i + 1);
+        }
+        for (int i = 0; i < 150; i++) {
+            assertEquals(i * 2, dict.remove(i));
+            assertFalse(dict.containsKey(i));
+            this.assertIteratorVisitsExactly(dict, i + 1, 300);
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testIncrementalResizeReadsDuringIteration() {
+        IDictionary<Integer, Integer> dict = new ChainedHashDictionary<>(4, 1.0, true);
+        for (int i = 0; i < 129; i++) {
+            dict.put(i, i);
+        }
+
+        // Lookups must not disturb an iteration that started mid-migration
+        int count = 0;
+        for (KVPair<Integer, Integer> pair : dict) {
+            assertEquals(pair.getValue(), dict.get(pair.getKey()));
+            assertFalse(dict.containsKey(pair.getKey() + 1000));
+            count++;
+        }
+        assertEquals(129, count);
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testIncrementalResizeMovesFewChainsPerOperation() {
+        ChainedHashDictionary<Integer, Integer> dict = new ChainedHashDictionary<>(16, 1.0, true);
+        int limit = 200000;
+        long migrated = 0;
+        for (int i = 0; i < limit; i++) {
+            dict.put(i, i);
+            migrated = assertMovedAtMostOneStep(dict, migrated);
+            if (i % 3 == 0) {
+                // Overwrites and removes advance the migration too
+                dict.put(i / 2, i / 2);
+                migrated = assertMovedAtMostOneStep(dict, migrated);
+            }
+            if (i % 5 == 4) {
+                dict.remove(i);
+                migrated = assertMovedAtMostOneStep(dict, migrated);
+                dict.put(i, i);
+                migrated = assertMovedAtMostOneStep(dict, migrated);
+            }
+        }
+
+        // Tables grew from 16 chains to at least 'limit', so every chain of every
+        // old table but the last was moved a few at a time
+        assertTrue("Only " + migrated + " chains were moved", migrated >= limit / 2 - 16);
+        assertEquals(limit, dict.size());
+        for (int i = 0; i < limit; i++) {
+            assertEquals(i, dict.get(i));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testStopTheWorldResizeMovesNoChainsIncrementally() {
+        ChainedHashDictionary<Integer, Integer> dict = new ChainedHashDictionary<>(16, 1.0, false);
+        for (int i = 0; i < 10000; i++) {
+            dict.put(i, i);
+        }
+        assertEquals(0L, dict.getMigratedChainCount());
+    }
+
+    /**
+     * Checks that the last operation on 'dict' moved at most the chain its key used to
+     * be in plus MIGRATION_STEP others, given the count from before the operation.
+     * Returns the new count.
+     */
+    private long assertMovedAtMostOneStep(ChainedHashDictionary<Integer, Integer> dict, long before) {
+        long after = dict.getMigratedChainCount();
+        assertTrue(String.format("One operation moved %d chains", after - before),
+                after - before <= ChainedHashDictionary.MIGRATION_STEP + 1);
+        return after;
+    }
+
+    private void assertIteratorVisitsExactly(IDictionary<Integer, Integer> dict, int start, int end) {
+        boolean[] seen = new boolean[end];
+        int count = 0;
+        for (KVPair<Integer, Integer> pair : dict) {
+            int key = pair.getKey();
+            assertTrue("Unexpected key " + key, key >= start && key < end);
+            assertFalse("Key visited twice: " + key, seen[key]);
+            assertEquals(key * 2, pair.getValue());
+            seen[key] = true;
+            count++;
+        }
+        assertEquals(end - start, count);
+        assertEquals(end - start, dict.size());
+    }
 }
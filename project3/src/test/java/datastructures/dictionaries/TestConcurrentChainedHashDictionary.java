@@ -0,0 +1,182 @@
+package datastructures.dictionaries;
+
+import datastructures.concrete.KVPair;
+import datastructures.concrete.dictionaries.ConcurrentChainedHashDictionary;
+import datastructures.interfaces.IConcurrentDictionary;
+import datastructures.interfaces.IDictionary;
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TestConcurrentChainedHashDictionary extends TestDictionary {
+    private static final int NUM_THREADS = 8;
+
+    protected <K, V> IDictionary<K, V> newDictionary() {
+        return new ConcurrentChainedHashDictionary<>();
+    }
+
+    protected <K, V> IConcurrentDictionary<K, V> newConcurrentDictionary() {
+        return new ConcurrentChainedHashDictionary<>(4, 4);
+    }
+
+    /**
+     * Runs the given task on NUM_THREADS threads at once (passing in the thread
+     * number) and waits for all of them to finish.
+     */
+    private void runConcurrently(ThreadTask task) throws InterruptedException {
+        Thread[] threads = new Thread[NUM_THREADS];
+        Throwable[] errors = new Throwable[NUM_THREADS];
+        for (int i = 0; i < NUM_THREADS; i++) {
+            int id = i;
+            threads[i] = new Thread(() -> {
+                try {
+                    task.run(id);
+                } catch (Throwable ex) {
+                    errors[id] = ex;
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (Throwable error : errors) {
+            if (error != null) {
+                throw new AssertionError("Worker thread failed", error);
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThreadTask {
+        void run(int threadId);
+    }
+
+    @Test(timeout=SECOND)
+    public void testManyObjectsWithSameHashCode() {
+        IDictionary<Wrapper<String>, Integer> map = this.newDictionary();
+        for (int i = 0; i < 1000; i++) {
+            map.put(new Wrapper<>("" + i, 0), i);
+        }
+        assertEquals(1000, map.size());
+
+        for (int i = 999; i >= 0; i -= 2) {
+            assertEquals(i, map.remove(new Wrapper<>("" + i, 0)));
+        }
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i % 2 == 0, map.containsKey(new Wrapper<>("" + i, 0)));
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testPutIfAbsentAndCompute() {
+        IConcurrentDictionary<String, Integer> dict = this.newConcurrentDictionary();
+
+        assertNull(dict.putIfAbsent("a", 1));
+        assertEquals(1, dict.putIfAbsent("a", 2));
+        assertEquals(1, dict.get("a"));
+
+        assertEquals(5, dict.computeIfAbsent("b", key -> 5));
+        assertEquals(5, dict.computeIfAbsent("b", key -> 6));
+        assertNull(dict.computeIfAbsent("c", key -> null));
+        assertFalse(dict.containsKey("c"));
+
+        assertEquals(2, dict.compute("a", (key, value) -> value + 1));
+        assertEquals(10, dict.compute("d", (key, value) -> value == null ? 10 : value));
+        assertNull(dict.compute("b", (key, value) -> null));
+        assertFalse(dict.containsKey("b"));
+        assertEquals(2, dict.size());
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testConcurrentPutsFromManyThreads() throws InterruptedException {
+        IConcurrentDictionary<Integer, Integer> dict = this.newConcurrentDictionary();
+        int perThread = 20000;
+
+        // Forces many resizes while other threads are writing
+        this.runConcurrently(id -> {
+            for (int i = 0; i < perThread; i++) {
+                int key = id * perThread + i;
+                dict.put(key, -key);
+            }
+        });
+
+        assertEquals(NUM_THREADS * perThread, dict.size());
+        for (int key = 0; key < NUM_THREADS * perThread; key++) {
+            assertEquals(-key, dict.get(key));
+        }
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testConcurrentComputeIsAtomic() throws InterruptedException {
+        IConcurrentDictionary<Integer, Integer> dict = this.newConcurrentDictionary();
+        int increments = 10000;
+
+        this.runConcurrently(id -> {
+            for (int i = 0; i < increments; i++) {
+                dict.compute(i % 100, (key, value) -> value == null ? 1 : value + 1);
+            }
+        });
+
+        for (int key = 0; key < 100; key++) {
+            assertEquals(NUM_THREADS * increments / 100, dict.get(key));
+        }
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testConcurrentPutIfAbsentHasOneWinner() throws InterruptedException {
+        IConcurrentDictionary<Integer, Integer> dict = this.newConcurrentDictionary();
+        AtomicInteger wins = new AtomicInteger(0);
+
+        this.runConcurrently(id -> {
+            for (int i = 0; i < 5000; i++) {
+                if (dict.putIfAbsent(i, id) == null) {
+                    wins.incrementAndGet();
+                }
+            }
+        });
+
+        assertEquals(5000, wins.get());
+        assertEquals(5000, dict.size());
+    }
+
+    @Test(timeout=10*SECOND)
+    public void testIteratorIsWeaklyConsistent() throws InterruptedException {
+        IConcurrentDictionary<Integer, Integer> dict = this.newConcurrentDictionary();
+        for (int i = 0; i < 1000; i++) {
+            dict.put(i, i);
+        }
+
+        // Thread 0 iterates while the others add and remove unrelated keys.
+        // The iterator must not fail and must see every original key.
+        this.runConcurrently(id -> {
+            if (id == 0) {
+                for (int round = 0; round < 20; round++) {
+                    boolean[] seen = new boolean[1000];
+                    for (KVPair<Integer, Integer> pair : dict) {
+                        if (pair.getKey() < 1000) {
+                            seen[pair.getKey()] = true;
+                        }
+                    }
+                    for (boolean wasSeen : seen) {
+                        assertTrue(wasSeen);
+                    }
+                }
+            } else {
+                for (int i = 0; i < 5000; i++) {
+                    int key = 1000 + id * 5000 + i;
+                    dict.put(key, key);
+                    if (i % 2 == 0) {
+                        dict.remove(key);
+                    }
+                }
+            }
+        });
+
+        assertEquals(1000 + (NUM_THREADS - 1) * 2500, dict.size());
+    }
+}
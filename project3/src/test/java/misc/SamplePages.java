@@ -0,0 +1,30 @@
+package misc;
+
+import datastructures.concrete.DoubleLinkedList;
+import datastructures.interfaces.IList;
+import search.models.Webpage;
+
+import java.net.URI;
+
+/**
+ * Builds small webpages for the tests of code that stores or indexes them.
+ */
+public class SamplePages {
+    private SamplePages() {}
+
+    /**
+     * Returns a page at 'uri' titled with its own URI, whose words are 'text' split
+     * on spaces, and which links to each of 'links'.
+     */
+    public static Webpage makePage(String uri, String text, String... links) {
+        IList<String> words = new DoubleLinkedList<>();
+        for (String word : text.split(" ")) {
+            words.add(word);
+        }
+        IList<URI> linkList = new DoubleLinkedList<>();
+        for (String link : links) {
+            linkList.add(URI.create(link));
+        }
+        return new Webpage(URI.create(uri), linkList, words, uri, text);
+    }
+}
@@ -0,0 +1,229 @@
+package search;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.After;
+import org.junit.Test;
+import search.misc.exceptions.OverloadedException;
+
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class TestQueryExecutor extends BaseTest {
+    // Every test uses one worker and room for one more query, so a single blocked
+    // query is enough to fill the queue
+    private static final int THREADS = 1;
+    private static final int QUEUE_SIZE = 1;
+
+    private ExecutorService callers = Executors.newCachedThreadPool();
+    private CountDownLatch started = new CountDownLatch(1);
+    private CountDownLatch release = new CountDownLatch(1);
+    private QueryExecutor executor;
+
+    @After
+    public void stopThreads() {
+        this.release.countDown();
+        if (this.executor != null) {
+            this.executor.close();
+        }
+        this.callers.shutdownNow();
+    }
+
+    @Test(timeout=SECOND)
+    public void testInvalidConstructorArguments() {
+        int[][] arguments = {{0, 1, 1}, {1, 0, 1}, {1, 1, 0}, {-1, 1, 1}};
+        for (int[] args : arguments) {
+            try {
+                new QueryExecutor(args[0], args[1], args[2]).close();
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                // This is ok: do nothing
+            }
+        }
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testAnswersQueries() {
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, 5 * SECOND);
+        assertEquals("a", this.executor.execute(() -> "a"));
+        assertEquals(3, this.executor.execute(() -> 1 + 2));
+        assertEquals(2L, this.executor.getCompleted());
+        assertEquals(0L, this.executor.getRejected());
+        assertEquals(0L, this.executor.getTimedOut());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testRejectsWhenQueueIsFull() throws Exception {
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, 5 * SECOND);
+        Future<Object> blocked = this.startBlockingQuery();
+        Future<Object> queued = this.callers.submit(() -> this.executor.execute(() -> "queued"));
+        while (this.executor.getQueueLength() < QUEUE_SIZE) {
+            Thread.sleep(1);
+        }
+
+        AtomicBoolean ran = new AtomicBoolean(false);
+        try {
+            this.executor.execute(() -> ran.getAndSet(true));
+            fail("Expected OverloadedException");
+        } catch (OverloadedException ex) {
+            // This is ok: do nothing
+        }
+        assertEquals(1L, this.executor.getRejected());
+
+        this.release.countDown();
+        assertEquals("blocker", blocked.get());
+        assertEquals("queued", queued.get());
+        assertFalse(ran.get());
+        assertEquals(2L, this.executor.getCompleted());
+        assertEquals(1L, this.executor.getRejected());
+        assertEquals(0L, this.executor.getTimedOut());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testDeadlineCountsTimeSpentWaiting() throws Exception {
+        long timeout = 500;
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, timeout);
+        Future<Object> blocked = this.startBlockingQuery();
+        this.callers.submit(() -> {
+            Thread.sleep(400);
+            this.release.countDown();
+            return null;
+        });
+
+        // Waits 400 ms and runs for 300 ms: in time if the deadline were measured
+        // from when the query starts running, but not from when it was submitted
+        long start = System.currentTimeMillis();
+        try {
+            this.executor.execute(() -> {
+                sleep(300);
+                return "late";
+            });
+            fail("Expected OverloadedException");
+        } catch (OverloadedException ex) {
+            // This is ok: do nothing
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        assertTrue("Gave up after " + elapsed + " ms", elapsed >= timeout && elapsed < 700);
+
+        assertEquals("blocker", blocked.get());
+        assertEquals(1L, this.executor.getCompleted());
+        assertEquals(1L, this.executor.getTimedOut());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testGivingUpRemovesQueuedQuery() throws Exception {
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, 200);
+        Future<Object> blocked = this.startBlockingQuery();
+
+        AtomicBoolean ran = new AtomicBoolean(false);
+        try {
+            this.executor.execute(() -> ran.getAndSet(true));
+            fail("Expected OverloadedException");
+        } catch (OverloadedException ex) {
+            // This is ok: do nothing
+        }
+        assertEquals(0, this.executor.getQueueLength());
+
+        // The blocking query's caller gave up too, though the query itself still runs
+        try {
+            blocked.get();
+            fail("Expected OverloadedException");
+        } catch (ExecutionException ex) {
+            assertTrue(ex.getCause() instanceof OverloadedException);
+        }
+        assertEquals(2L, this.executor.getTimedOut());
+
+        this.release.countDown();
+        assertEquals("after", this.executor.execute(() -> "after"));
+        assertFalse(ran.get());
+        assertEquals(1L, this.executor.getCompleted());
+        assertEquals(0L, this.executor.getRejected());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testRethrowsUncheckedFailures() {
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, 5 * SECOND);
+        IllegalArgumentException failure = new IllegalArgumentException("bad query");
+        try {
+            this.executor.execute(() -> {
+                throw failure;
+            });
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException ex) {
+            assertSame(failure, ex);
+        }
+
+        AssertionError error = new AssertionError("broken");
+        try {
+            this.executor.execute(() -> {
+                throw error;
+            });
+            fail("Expected AssertionError");
+        } catch (AssertionError ex) {
+            assertSame(error, ex);
+        }
+        assertEquals(0L, this.executor.getCompleted());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testWrapsCheckedFailures() {
+        this.executor = new QueryExecutor(THREADS, QUEUE_SIZE, 5 * SECOND);
+        IOException failure = new IOException("disk went away");
+        try {
+            this.executor.execute(() -> TestQueryExecutor.<RuntimeException>sneakyThrow(failure));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            assertSame(failure, ex.getCause());
+        }
+    }
+
+    /**
+     * Starts a query that holds the only worker until 'release' is counted down, and
+     * returns once it's running. The returned future holds what the executor handed
+     * back to the query's caller.
+     */
+    private Future<Object> startBlockingQuery() throws InterruptedException {
+        Future<Object> caller = this.callers.submit(() -> this.executor.execute(() -> {
+            this.started.countDown();
+            await(this.release);
+            return "blocker";
+        }));
+        this.started.await();
+        return caller;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    /**
+     * Throws a checked exception from code that doesn't declare it, the way a query
+     * built on reflection or a careless library might.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E extends Throwable> Object sneakyThrow(Throwable ex) throws E {
+        throw (E) ex;
+    }
+}
@@ -0,0 +1,134 @@
+package search.analyzers;
+
+import static misc.SamplePages.makePage;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.misc.exceptions.DataExtractionException;
+import search.models.Webpage;
+import search.models.WebpageSummary;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TestIndexSnapshot extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TfIdfAnalyzer tfIdfAnalyzer;
+    private PageRankAnalyzer pageRankAnalyzer;
+    private IDictionary<URI, WebpageSummary> pages;
+    private Path snapshotPath;
+
+    @Before
+    public void saveSnapshot() throws IOException {
+        ISet<Webpage> webpages = new ChainedHashSet<>();
+        webpages.add(makePage("http://a.com/", "apple banana cherry", "http://b.com/"));
+        webpages.add(makePage("http://b.com/", "banana banana durian", "http://a.com/", "http://c.com/"));
+        webpages.add(makePage("http://c.com/", "cherry apple", "http://a.com/"));
+
+        this.tfIdfAnalyzer = new TfIdfAnalyzer(webpages);
+        this.pageRankAnalyzer = new PageRankAnalyzer(webpages, 0.85, 0.0001, 100);
+        this.pages = new ChainedHashDictionary<>();
+        for (Webpage page : webpages) {
+            this.pages.put(page.getUri(), page.getSummary());
+        }
+        this.snapshotPath = this.folder.getRoot().toPath().resolve("index.snapshot");
+        IndexSnapshot.save(this.snapshotPath, this.tfIdfAnalyzer, this.pageRankAnalyzer, this.pages, 3);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() {
+        IndexSnapshot snapshot = IndexSnapshot.load(this.snapshotPath);
+        TfIdfAnalyzer loaded = snapshot.getTfIdfAnalyzer();
+
+        assertEquals(this.tfIdfAnalyzer.getDocumentCount(), loaded.getDocumentCount());
+        assertEquals(this.tfIdfAnalyzer.getTermDictionary().size(), loaded.getTermDictionary().size());
+        for (int docId = 0; docId < loaded.getDocumentCount(); docId++) {
+            URI uri = this.tfIdfAnalyzer.getDocument(docId);
+            assertEquals(uri, loaded.getDocument(docId));
+            assertEquals(this.tfIdfAnalyzer.getDocumentNorm(docId), loaded.getDocumentNorm(docId), 0.0);
+            assertEquals(this.pageRankAnalyzer.computePageRank(uri),
+                    snapshot.getPageRankAnalyzer().computePageRank(uri), 0.0);
+            assertEquals(this.pages.get(uri).getTitle(), snapshot.getPages().get(uri).getTitle());
+        }
+        for (int termId = 0; termId < loaded.getTermDictionary().size(); termId++) {
+            String term = this.tfIdfAnalyzer.getTermDictionary().getTerm(termId);
+            assertEquals(term, loaded.getTermDictionary().getTerm(termId));
+            assertEquals(this.tfIdfAnalyzer.getIdfScore(termId), loaded.getIdfScore(termId), 0.0);
+            PostingList expected = this.tfIdfAnalyzer.getPostings(termId);
+            PostingList actual = loaded.getPostings(termId);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.getDocId(i), actual.getDocId(i));
+                assertEquals(expected.getWeight(i), actual.getWeight(i), 0.0);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testTruncatedSnapshotThrowsDataExtractionException() throws IOException {
+        byte[] contents = Files.readAllBytes(this.snapshotPath);
+        for (int length = 0; length < contents.length; length++) {
+            Files.write(this.snapshotPath, Arrays.copyOf(contents, length));
+            try {
+                IndexSnapshot.load(this.snapshotPath);
+                fail("Expected DataExtractionException after truncating to " + length + " bytes");
+            } catch (DataExtractionException ex) {
+                // This is ok: do nothing
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadCountsThrowDataExtractionException() throws IOException {
+        byte[] contents = Files.readAllBytes(this.snapshotPath);
+        // Header: magic, version, source file count, document count, term count; then
+        // the first document's URI length
+        int[] offsets = {3 * 4, 4 * 4, 5 * 4};
+        int[] badValues = {-1, Integer.MAX_VALUE, contents.length};
+        for (int offset : offsets) {
+            for (int badValue : badValues) {
+                byte[] corrupt = contents.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, badValue);
+                Files.write(this.snapshotPath, corrupt);
+                try {
+                    IndexSnapshot.load(this.snapshotPath);
+                    fail("Expected DataExtractionException after writing " + badValue + " at " + offset);
+                } catch (DataExtractionException ex) {
+                    // This is ok: do nothing
+                }
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCorruptBytesNeverThrowAnythingElse() throws IOException {
+        byte[] contents = Files.readAllBytes(this.snapshotPath);
+        for (int i = 0; i < contents.length; i++) {
+            byte[] corrupt = contents.clone();
+            corrupt[i] ^= (byte) 0xFF;
+            Files.write(this.snapshotPath, corrupt);
+            try {
+                IndexSnapshot.load(this.snapshotPath);
+            } catch (DataExtractionException ex) {
+                // This is ok: the other option is that the damage went unnoticed
+            }
+        }
+
+        Files.write(this.snapshotPath, contents);
+        assertEquals(3, IndexSnapshot.load(this.snapshotPath).getTfIdfAnalyzer().getDocumentCount());
+    }
+}
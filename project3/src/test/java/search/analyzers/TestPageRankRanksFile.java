@@ -0,0 +1,94 @@
+package search.analyzers;
+
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import misc.BaseTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TestPageRankRanksFile extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path ranksPath;
+
+    @Before
+    public void saveRanks() {
+        IDictionary<URI, Double> ranks = new ChainedHashDictionary<>();
+        ranks.put(URI.create("http://a.com/"), 0.5);
+        ranks.put(URI.create("http://b.com/"), 0.3);
+        ranks.put(URI.create("http://c.com/"), 0.2);
+        this.ranksPath = this.folder.getRoot().toPath().resolve("pageranks.dat");
+        new PageRankAnalyzer(ranks).saveRanks(this.ranksPath);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() {
+        IDictionary<URI, Double> loaded = PageRankAnalyzer.loadRanks(this.ranksPath);
+        assertEquals(3, loaded.size());
+        assertEquals(0.5, loaded.get(URI.create("http://a.com/")), 0.0);
+        assertEquals(0.3, loaded.get(URI.create("http://b.com/")), 0.0);
+        assertEquals(0.2, loaded.get(URI.create("http://c.com/")), 0.0);
+    }
+
+    @Test(timeout=SECOND)
+    public void testTruncatedFileThrowsDataExtractionException() throws IOException {
+        byte[] contents = Files.readAllBytes(this.ranksPath);
+        for (int length = 0; length < contents.length; length++) {
+            Files.write(this.ranksPath, Arrays.copyOf(contents, length));
+            assertCorrupt("truncating to " + length + " bytes");
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testBadCountsThrowDataExtractionException() throws IOException {
+        byte[] contents = Files.readAllBytes(this.ranksPath);
+        // Header: magic, version, count; then the first URI's length
+        int[] offsets = {2 * 4, 3 * 4};
+        int[] badValues = {-1, 1000000000, 2000000000, Integer.MAX_VALUE, contents.length};
+        for (int offset : offsets) {
+            for (int badValue : badValues) {
+                byte[] corrupt = contents.clone();
+                ByteBuffer.wrap(corrupt).putInt(offset, badValue);
+                Files.write(this.ranksPath, corrupt);
+                assertCorrupt("writing " + badValue + " at " + offset);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCorruptBytesNeverThrowAnythingElse() throws IOException {
+        byte[] contents = Files.readAllBytes(this.ranksPath);
+        for (int i = 0; i < contents.length; i++) {
+            byte[] corrupt = contents.clone();
+            corrupt[i] ^= (byte) 0xFF;
+            Files.write(this.ranksPath, corrupt);
+            try {
+                PageRankAnalyzer.loadRanks(this.ranksPath);
+            } catch (DataExtractionException ex) {
+                // This is ok: the other option is that the damage went unnoticed
+            }
+        }
+    }
+
+    private void assertCorrupt(String after) {
+        try {
+            PageRankAnalyzer.loadRanks(this.ranksPath);
+            fail("Expected DataExtractionException after " + after);
+        } catch (DataExtractionException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
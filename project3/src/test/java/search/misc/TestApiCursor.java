@@ -0,0 +1,76 @@
+package search.misc;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+public class TestApiCursor extends BaseTest {
+    private static final int MAX_OFFSET = 1000;
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() {
+        String[] queries = {"", "cats", "cats and dogs", "a:b:c", "100:x", "caf\u00e9 \u4e2d\u6587", "?&=/+"};
+        int[] offsets = {0, 1, 20, MAX_OFFSET - 1};
+        for (String query : queries) {
+            for (int offset : offsets) {
+                String encoded = new ApiCursor(offset, query).encode();
+                ApiCursor decoded = ApiCursor.decode(encoded, MAX_OFFSET);
+                assertEquals(offset, decoded.offset);
+                assertEquals(query, decoded.query);
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testEncodingIsSafeInUrls() {
+        // Bytes that standard base64 would turn into '+', '/' and '=' padding
+        String encoded = new ApiCursor(0, "\u00ff\u00fe?>").encode();
+        for (char c : encoded.toCharArray()) {
+            assertTrue("Unsafe character " + c + " in " + encoded,
+                    Character.isLetterOrDigit(c) || c == '-' || c == '_');
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsMalformedCursors() {
+        String[] cursors = {
+            "not base64!",
+            "abc$",
+            encodeRaw("no colon"),
+            encodeRaw(":cats"),
+            encodeRaw("x:cats"),
+            encodeRaw("1.5:cats"),
+            encodeRaw("-1:cats"),
+            encodeRaw(MAX_OFFSET + ":cats"),
+            encodeRaw("99999999999:cats"),
+        };
+        for (String cursor : cursors) {
+            try {
+                ApiCursor.decode(cursor, MAX_OFFSET);
+                fail("Expected IllegalArgumentException for " + cursor);
+            } catch (IllegalArgumentException ex) {
+                assertEquals("Malformed cursor", ex.getMessage());
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testAcceptsPadding() {
+        // Clients may well re-pad the cursor, and the decoder takes it either way
+        String padded = Base64.getUrlEncoder().encodeToString("5:ab".getBytes(StandardCharsets.UTF_8));
+        assertFalse(padded.equals(new ApiCursor(5, "ab").encode()));
+        ApiCursor decoded = ApiCursor.decode(padded, MAX_OFFSET);
+        assertEquals(5, decoded.offset);
+        assertEquals("ab", decoded.query);
+    }
+
+    private static String encodeRaw(String cursor) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+}
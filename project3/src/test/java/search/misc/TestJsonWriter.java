@@ -0,0 +1,144 @@
+package search.misc;
+
+import static org.junit.Assert.fail;
+
+import misc.BaseTest;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+public class TestJsonWriter extends BaseTest {
+    private StringWriter out = new StringWriter();
+    private JsonWriter json = new JsonWriter(this.out);
+
+    @Test(timeout=SECOND)
+    public void testObjectCommasGoBetweenEntries() throws IOException {
+        this.json.beginObject()
+                .name("a").value(1)
+                .name("b").value("x")
+                .name("c").nullValue()
+                .name("d").value(1.5)
+                .endObject();
+        assertEquals("{\"a\":1,\"b\":\"x\",\"c\":null,\"d\":1.5}", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEmptyContainers() throws IOException {
+        this.json.beginObject()
+                .name("list").beginArray().endArray()
+                .name("object").beginObject().endObject()
+                .endObject();
+        assertEquals("{\"list\":[],\"object\":{}}", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNestedArrays() throws IOException {
+        this.json.beginArray()
+                .beginArray().value(1).value(2).endArray()
+                .beginArray().endArray()
+                .beginArray().beginArray().value(3).endArray().value(4).endArray()
+                .value(5)
+                .endArray();
+        assertEquals("[[1,2],[],[[3],4],5]", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testObjectsInsideArraysInsideObjects() throws IOException {
+        this.json.beginObject()
+                .name("results").beginArray()
+                .beginObject().name("rank").value(1).endObject()
+                .beginObject().name("rank").value(2).name("tags").beginArray().value("t").endArray().endObject()
+                .endArray()
+                .name("next").nullValue()
+                .endObject();
+        assertEquals("{\"results\":[{\"rank\":1},{\"rank\":2,\"tags\":[\"t\"]}],\"next\":null}",
+                this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testDeepNesting() throws IOException {
+        // Deeper than the writer starts out tracking
+        int depth = 20;
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            this.json.beginArray().value(i);
+            expected.append('[').append(i).append(',');
+        }
+        for (int i = 0; i < depth; i++) {
+            this.json.endArray();
+        }
+        expected.setLength(expected.length() - 1);
+        for (int i = 0; i < depth; i++) {
+            expected.append(']');
+        }
+        assertEquals(expected.toString(), this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEscapesSpecialCharacters() throws IOException {
+        this.json.value("quote \" backslash \\ slash / tab \t newline \n return \r");
+        assertEquals("\"quote \\\" backslash \\\\ slash / tab \\t newline \\n return \\r\"", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEscapesControlCharactersAndLineSeparators() throws IOException {
+        this.json.beginArray()
+                .value("\u0000")
+                .value("a\u001fb")
+                .value("\b\f")
+                .value("line\u2028paragraph\u2029")
+                .endArray();
+        assertEquals("[\"\\u0000\",\"a\\u001fb\",\"\\u0008\\u000c\",\"line\\u2028paragraph\\u2029\"]",
+                this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testLeavesOtherCharactersAlone() throws IOException {
+        // A space, DEL, an e-acute, and a surrogate pair for U+1F600
+        String plain = " \u007f\u00e9\ud83d\ude00";
+        this.json.value(plain);
+        assertEquals("\"" + plain + "\"", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testEscapesNames() throws IOException {
+        this.json.beginObject().name("a\"b\n").value(1).endObject();
+        assertEquals("{\"a\\\"b\\n\":1}", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testNullStringIsNull() throws IOException {
+        this.json.beginArray().value((String) null).value("").endArray();
+        assertEquals("[null,\"\"]", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testRejectsNonFiniteNumbers() throws IOException {
+        this.json.beginArray();
+        double[] values = {Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY};
+        for (double value : values) {
+            try {
+                this.json.value(value);
+                fail("Expected IllegalArgumentException");
+            } catch (IllegalArgumentException ex) {
+                // This is ok: do nothing
+            }
+        }
+
+        // Nothing was written for them, so the next value doesn't get a stray comma
+        this.json.value(0.25).endArray();
+        assertEquals("[0.25]", this.out.toString());
+    }
+
+    @Test(timeout=SECOND)
+    public void testCloseWithNothingOpen() throws IOException {
+        this.json.beginArray().endArray();
+        try {
+            this.json.endArray();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException ex) {
+            // This is ok: do nothing
+        }
+    }
+}
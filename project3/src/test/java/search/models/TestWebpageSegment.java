@@ -0,0 +1,104 @@
+package search.models;
+
+import static misc.SamplePages.makePage;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import datastructures.concrete.ChainedHashSet;
+import datastructures.concrete.dictionaries.ChainedHashDictionary;
+import datastructures.interfaces.IDictionary;
+import datastructures.interfaces.IList;
+import datastructures.interfaces.ISet;
+import misc.BaseTest;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import search.misc.exceptions.DataExtractionException;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+public class TestWebpageSegment extends BaseTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ISet<Webpage> pages;
+    private Path segmentPath;
+
+    @Before
+    public void saveSegment() {
+        this.pages = new ChainedHashSet<>();
+        this.pages.add(makePage("http://a.com/", "apple banana cherry", "http://b.com/"));
+        this.pages.add(makePage("http://b.com/", "banana banana durian", "http://a.com/", "http://c.com/"));
+        this.pages.add(makePage("http://c.com/", "cherry apple"));
+        this.segmentPath = this.folder.getRoot().toPath().resolve("pages.segment");
+        WebpageSegment.save(this.segmentPath, this.pages, 3);
+    }
+
+    @Test(timeout=SECOND)
+    public void testRoundTrip() {
+        ISet<Webpage> loaded = WebpageSegment.load(this.segmentPath);
+        assertEquals(this.pages.size(), loaded.size());
+
+        IDictionary<URI, Webpage> byUri = new ChainedHashDictionary<>();
+        for (Webpage page : loaded) {
+            byUri.put(page.getUri(), page);
+        }
+        for (Webpage expected : this.pages) {
+            assertTrue(byUri.containsKey(expected.getUri()));
+            Webpage actual = byUri.get(expected.getUri());
+            assertEquals(expected.getSummary().getTitle(), actual.getSummary().getTitle());
+            assertEquals(expected.getSummary().getBlurb(), actual.getSummary().getBlurb());
+            assertListsEqual(expected.getWords(), actual.getWords());
+            assertListsEqual(expected.getLinks(), actual.getLinks());
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testTruncatedSegmentThrowsDataExtractionException() throws IOException {
+        byte[] contents = Files.readAllBytes(this.segmentPath);
+        for (int length = 0; length < contents.length; length++) {
+            Files.write(this.segmentPath, Arrays.copyOf(contents, length));
+            try {
+                WebpageSegment.load(this.segmentPath);
+                fail("Expected DataExtractionException after truncating to " + length + " bytes");
+            } catch (DataExtractionException ex) {
+                // This is ok: do nothing
+            }
+        }
+    }
+
+    @Test(timeout=SECOND)
+    public void testCorruptBytesNeverThrowAnythingElse() throws IOException {
+        byte[] contents = Files.readAllBytes(this.segmentPath);
+        for (int i = 0; i < contents.length; i++) {
+            byte[] corrupt = contents.clone();
+            corrupt[i] ^= (byte) 0xFF;
+            Files.write(this.segmentPath, corrupt);
+            try {
+                // Reading every word and link makes sure no bad ID slipped through
+                for (Webpage page : WebpageSegment.load(this.segmentPath)) {
+                    for (String word : page.getWords()) {
+                        word.length();
+                    }
+                    for (URI link : page.getLinks()) {
+                        link.toString();
+                    }
+                }
+            } catch (DataExtractionException ex) {
+                // This is ok: the other option is that the damage went unnoticed
+            }
+        }
+    }
+
+    private static <T> void assertListsEqual(IList<T> expected, IList<T> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+        }
+    }
+}
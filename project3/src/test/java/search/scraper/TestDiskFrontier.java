@@ -0,0 +1,219 @@
+package search.scraper;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import analysis.utils.StubWebServer;
+import misc.BaseTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+public class TestDiskFrontier extends BaseTest {
+    private static final String MANIFEST_NAME = "frontier.ckpt";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout=SECOND)
+    public void testNewFrontierIsEmpty() throws IOException {
+        DiskFrontier frontier = new DiskFrontier(this.folder.newFolder().toPath(), 3);
+        assertFalse(frontier.wasRestored());
+        assertEquals(0L, frontier.getCheckpointMarker());
+        assertEquals(0, frontier.size());
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test(timeout=SECOND)
+    public void testSpillAndRefillKeepsOrder() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        DiskFrontier frontier = new DiskFrontier(directory, 3);
+        Model model = new Model();
+
+        for (int i = 0; i < 20; i++) {
+            model.insert(frontier, new PendingUri(i % 3, makeUri(i)));
+            if (i % 4 == 3) {
+                model.removeMin(frontier);
+            }
+        }
+        // Segments of 3 URIs, so the full ones must be waiting on disk
+        assertTrue(listSegmentFiles(directory).size() > 0);
+
+        while (!model.isEmpty()) {
+            assertEquals(model.size(), frontier.size());
+            model.removeMin(frontier);
+        }
+        assertTrue(frontier.isEmpty());
+    }
+
+    @Test(timeout=SECOND)
+    public void testRestoresCheckpointExactly() throws IOException {
+        Path directory = this.folder.newFolder().toPath();
+        DiskFrontier frontier = new DiskFrontier(directory, 3);
+        Model model = new Model();
+
+        int next = 0;
+        for (int round = 0; round < 4; round++) {
+            for (int distance = 3; distance >= 0; distance--) {
+                for (int i = 0; i < 4; i++) {
+                    model.insert(frontier, new PendingUri(distance + round, makeUri(next++)));
+                }
+            }
+            for (int i = 0; i < 5; i++) {
+                model.removeMin(frontier);
+            }
+        }
+        frontier.checkpoint(42);
+        List<PendingUri> expected = model.toList();
+
+        // Keep going: this reads segments the checkpoint lists, and writes new ones
+        for (int i = 0; i < 10; i++) {
+            model.insert(frontier, new PendingUri(i % 2, makeUri(next++)));
+            model.removeMin(frontier);
+            model.removeMin(frontier);
+        }
+
+        DiskFrontier restored = new DiskFrontier(directory, 3);
+        assertTrue(restored.wasRestored());
+        assertEquals(42L, restored.getCheckpointMarker());
+        assertEquals(expected.size(), restored.size());
+        assertEquals(listManifestSegments(directory), listSegmentFiles(directory));
+
+        for (PendingUri pending : expected) {
+            PendingUri actual = restored.removeMin();
+            assertEquals(pending.distance, actual.distance);
+            assertEquals(pending.uri, actual.uri);
+        }
+        assertTrue(restored.isEmpty());
+
+        restored.checkpoint(43);
+        assertEquals(new HashSet<String>(), listSegmentFiles(directory));
+        assertEquals(43L, new DiskFrontier(directory, 3).getCheckpointMarker());
+        assertTrue(new DiskFrontier(directory, 3).isEmpty());
+    }
+
+    @Test(timeout=30 * SECOND)
+    public void testScraperReplaysPagesSavedAfterCheckpoint() throws Exception {
+        try (StubWebServer server = new StubWebServer(2, 10);
+                HttpRequester requester = new HttpRequester(HttpRequester.DEFAULT_USER_AGENT, 500)) {
+            // An uninterrupted crawl, to compare against
+            Path reference = this.folder.newFolder().toPath();
+            this.makeScraper(reference, server, requester).run(7);
+
+            // Crawl three pages and keep a copy of the frontier as of the checkpoint
+            Path output = this.folder.newFolder().toPath();
+            Path frontierPath = output.resolve(Scraper.FRONTIER_FOLDER_NAME);
+            this.makeScraper(output, server, requester).run(3);
+            Path copy = this.folder.newFolder().toPath();
+            copyFiles(frontierPath, copy);
+
+            // Crawl two more, then pretend we crashed before checkpointing them
+            this.makeScraper(output, server, requester).run(2);
+            copyFiles(copy, frontierPath);
+
+            // The two pages must be replayed from disk, not fetched and saved again
+            this.makeScraper(output, server, requester).run(2);
+            List<String> saved = Files.readAllLines(output.resolve("list.sav"), StandardCharsets.UTF_8);
+            assertEquals(Files.readAllLines(reference.resolve("list.sav"), StandardCharsets.UTF_8), saved);
+            assertEquals(saved.size(), new HashSet<>(saved).size());
+            assertEquals(listManifestSegments(frontierPath), listSegmentFiles(frontierPath));
+        }
+    }
+
+    private Scraper makeScraper(Path output, StubWebServer server, HttpRequester requester) {
+        return new Scraper(output, requester)
+                .addDomainToWhitelist(server.getHost(0))
+                .addDomainToWhitelist(server.getHost(1))
+                .checkpointFrontier(2, 3)
+                .addSeedUri(server.getPageUri(0, 0));
+    }
+
+    private static URI makeUri(int i) {
+        return URI.create("http://example.com/page" + i);
+    }
+
+    private static void copyFiles(Path from, Path to) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(from)) {
+            for (Path file : files) {
+                Files.copy(file, to.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+            }
+        }
+    }
+
+    private static Set<String> listSegmentFiles(Path directory) throws IOException {
+        Set<String> out = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.queue")) {
+            for (Path file : files) {
+                out.add(file.getFileName().toString());
+            }
+        }
+        return out;
+    }
+
+    private static Set<String> listManifestSegments(Path directory) throws IOException {
+        Set<String> out = new HashSet<>();
+        List<String> lines = Files.readAllLines(directory.resolve(MANIFEST_NAME), StandardCharsets.UTF_8);
+        for (String line : lines.subList(1, lines.size())) {
+            out.add(line.split(" ")[1]);
+        }
+        return out;
+    }
+
+    /**
+     * What the frontier should hold: one first-in-first-out queue per distance.
+     */
+    private static class Model {
+        private final TreeMap<Integer, ArrayDeque<URI>> queues = new TreeMap<>();
+        private int size = 0;
+
+        public void insert(DiskFrontier frontier, PendingUri pending) {
+            frontier.insert(pending);
+            this.queues.computeIfAbsent(pending.distance, distance -> new ArrayDeque<>()).add(pending.uri);
+            this.size++;
+        }
+
+        public void removeMin(DiskFrontier frontier) {
+            Map.Entry<Integer, ArrayDeque<URI>> first = this.queues.firstEntry();
+            PendingUri actual = frontier.removeMin();
+            assertEquals(first.getKey().intValue(), actual.distance);
+            assertEquals(first.getValue().remove(), actual.uri);
+            if (first.getValue().isEmpty()) {
+                this.queues.remove(first.getKey());
+            }
+            this.size--;
+        }
+
+        public int size() {
+            return this.size;
+        }
+
+        public boolean isEmpty() {
+            return this.size == 0;
+        }
+
+        public List<PendingUri> toList() {
+            List<PendingUri> out = new ArrayList<>();
+            for (Map.Entry<Integer, ArrayDeque<URI>> entry : this.queues.entrySet()) {
+                for (URI uri : entry.getValue()) {
+                    out.add(new PendingUri(entry.getKey(), uri));
+                }
+            }
+            return out;
+        }
+    }
+}
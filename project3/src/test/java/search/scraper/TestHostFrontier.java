@@ -0,0 +1,177 @@
+package search.scraper;
+
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import analysis.utils.StubWebServer;
+import misc.BaseTest;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.stream.Stream;
+
+public class TestHostFrontier extends BaseTest {
+    // How long to wait before deciding that a call to take() is blocked
+    private static final long BLOCKED_MILLIS = 100;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private ExecutorService threads = Executors.newCachedThreadPool();
+
+    @After
+    public void stopThreads() {
+        this.threads.shutdownNow();
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testHandsOutEachHostToOneThreadAtATime() throws Exception {
+        HostFrontier frontier = new HostFrontier(0);
+        frontier.add(makePending("a.com", 1));
+        frontier.add(makePending("a.com", 2));
+        frontier.add(makePending("b.com", 1));
+
+        PendingUri first = frontier.take();
+        PendingUri second = frontier.take();
+        assertNotEquals(first.uri.getHost(), second.uri.getHost());
+
+        // Both hosts are handed out, so a third thread has to wait for a.com
+        PendingUri fromA = first.uri.getHost().equals("a.com") ? first : second;
+        Future<PendingUri> third = this.takeInBackground(frontier);
+        assertBlocked(third);
+        frontier.release(fromA);
+        assertEquals(makeUri("a.com", 2), third.get(SECOND, TimeUnit.MILLISECONDS).uri);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testWaitsForDelayBetweenRequestsToAHost() throws Exception {
+        long delay = 300;
+        HostFrontier frontier = new HostFrontier(delay);
+        frontier.add(makePending("a.com", 1));
+        frontier.add(makePending("a.com", 2));
+
+        PendingUri first = frontier.take();
+        long released = System.currentTimeMillis();
+        frontier.release(first);
+
+        // Another host that's ready right away goes first
+        frontier.add(makePending("b.com", 1));
+        assertEquals("b.com", frontier.take().uri.getHost());
+        assertTrue(System.currentTimeMillis() - released < delay);
+
+        assertEquals(makeUri("a.com", 2), frontier.take().uri);
+        assertTrue(System.currentTimeMillis() - released >= delay);
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testTakeReturnsNullOnlyAfterEveryFinish() throws Exception {
+        HostFrontier frontier = new HostFrontier(0);
+        frontier.add(makePending("a.com", 1));
+        PendingUri first = frontier.take();
+        frontier.release(first);
+        assertEquals(0, frontier.size());
+
+        // Nothing is pending, but the first page may still have links to add
+        Future<PendingUri> waiting = this.takeInBackground(frontier);
+        assertBlocked(waiting);
+        frontier.add(makePending("b.com", 1));
+        PendingUri second = waiting.get(SECOND, TimeUnit.MILLISECONDS);
+        assertEquals(makeUri("b.com", 1), second.uri);
+        frontier.release(second);
+
+        waiting = this.takeInBackground(frontier);
+        frontier.finish();
+        assertBlocked(waiting);
+        frontier.finish();
+        assertNull(waiting.get(SECOND, TimeUnit.MILLISECONDS));
+        assertNull(frontier.take());
+    }
+
+    @Test(timeout=5 * SECOND)
+    public void testCloseWakesUpWaitingThreads() throws Exception {
+        HostFrontier frontier = new HostFrontier(0);
+        frontier.add(makePending("a.com", 1));
+        frontier.add(makePending("a.com", 2));
+        frontier.take();
+
+        Future<PendingUri> waiting = this.takeInBackground(frontier);
+        assertBlocked(waiting);
+        frontier.close();
+        assertNull(waiting.get(SECOND, TimeUnit.MILLISECONDS));
+
+        // Even though a.com still has a URI pending
+        assertEquals(1, frontier.size());
+        assertNull(frontier.take());
+    }
+
+    @Test(timeout=30 * SECOND)
+    public void testCrawlIsPoliteToEachHost() throws Exception {
+        int numHosts = 3;
+        int pagesPerHost = 4;
+        long delay = 500;
+        Path output = this.folder.newFolder().toPath();
+        try (StubWebServer server = new StubWebServer(numHosts, pagesPerHost);
+                HttpRequester requester = new HttpRequester(HttpRequester.DEFAULT_USER_AGENT, delay)) {
+            Scraper scraper = new Scraper(output, requester).addSeedUri(server.getPageUri(0, 0));
+            for (int host = 0; host < numHosts; host++) {
+                scraper.addDomainToWhitelist(server.getHost(host));
+            }
+            scraper.run(100, numHosts);
+
+            List<String> saved = Files.readAllLines(output.resolve("list.sav"), StandardCharsets.UTF_8);
+            assertEquals(numHosts * pagesPerHost, saved.size());
+            assertEquals(saved.size(), new HashSet<>(saved).size());
+            try (Stream<Path> files = Files.walk(output)) {
+                assertEquals((long) saved.size(), files.filter(path -> path.toString().endsWith(".html")).count());
+            }
+
+            for (int host = 0; host < numHosts; host++) {
+                long[] times = server.getPageRequestTimes(host);
+                assertEquals(pagesPerHost, times.length);
+                for (int i = 1; i < times.length; i++) {
+                    long gapMillis = TimeUnit.NANOSECONDS.toMillis(times[i] - times[i - 1]);
+                    // Allow a millisecond for System.currentTimeMillis()'s granularity
+                    assertTrue("Requests to host " + host + " only " + gapMillis + " ms apart",
+                            gapMillis >= delay - 1);
+                }
+            }
+        }
+    }
+
+    private Future<PendingUri> takeInBackground(HostFrontier frontier) {
+        return this.threads.submit(frontier::take);
+    }
+
+    private static void assertBlocked(Future<PendingUri> future) throws Exception {
+        try {
+            PendingUri pending = future.get(BLOCKED_MILLIS, TimeUnit.MILLISECONDS);
+            fail("Expected take() to block, but it returned " + (pending == null ? null : pending.uri));
+        } catch (TimeoutException ex) {
+            // This is ok: do nothing
+        }
+    }
+
+    private static PendingUri makePending(String host, int page) {
+        // Using the page number as the distance makes each host hand out its pages in order
+        return new PendingUri(page, makeUri(host, page));
+    }
+
+    private static URI makeUri(String host, int page) {
+        return URI.create("http://" + host + "/p" + page + ".html");
+    }
+}